@@ -0,0 +1,153 @@
+package MyGarage;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic garages for {@link GarageBenchmark}: N users × M vehicles × K rows.
+ * The same seed and sizes always give the same data (ids, dates and amounts included),
+ * so results of different releases are measured on identical input.
+ */
+class BenchmarkData {
+
+    private static final String[] BRANDS = { "BMW", "Audi", "Honda", "Toyota", "Porsche", "Mazda", "Volkswagen", "Renault" };
+    private static final String[] MODELS = { "M2", "RS3", "Civic Type R", "GR86", "911", "MX-5", "Golf GTI", "Clio RS" };
+    private static final String[] GENERATIONS = { "F87", "8V", "FK8", "ZN8", "992", "ND", "MK7", "IV" };
+    private static final String[] TRACKS = { "Istanbul Park", "Körfez", "Nürburgring", "Spa", "Monza", "Hungaroring" };
+    private static final String[] SHOPS = { "Shell V-Power", "Opet", "BP Ultimate", "Total", "Dealer service", "Tire shop", "Car wash" };
+    private static final String[] CURRENCIES = { "TL", "TL", "TL", "USD", "EUR" };
+    private static final LocalDate START = LocalDate.of(2020, 1, 1);
+
+    /**
+     * @param seed     Seed of the random generator.
+     * @param users    Number of users.
+     * @param vehicles Vehicles per user.
+     * @param rows     Expenses per vehicle; a tenth as many track sessions and odometer readings,
+     *                 a twentieth as many Dream Spec items.
+     */
+    static List<User> generate(long seed, int users, int vehicles, int rows) {
+        Random random = new Random(seed);
+        Expense.ExpenseCategory[] expenseCategories = Expense.ExpenseCategory.values();
+        DreamItem.DreamCategory[] dreamCategories = DreamItem.DreamCategory.values();
+        List<User> result = new ArrayList<>(users);
+        long nextId = 1_600_000_000_000L;
+
+        for (int u = 0; u < users; u++) {
+            User user = new User("driver" + u, "pw" + u, "driver" + u + "@example.com");
+            for (int m = 0; m < vehicles; m++) {
+                int type = random.nextInt(BRANDS.length);
+                int km = random.nextInt(50_000);
+                Vehicle v = new Vehicle(String.valueOf(nextId++), BRANDS[type], MODELS[type], GENERATIONS[type],
+                        String.valueOf(2010 + random.nextInt(15)), "Black", km, 150 + random.nextInt(400), 200 + random.nextInt(500));
+
+                LocalDate date = START;
+                for (int k = 0; k < rows; k++) {
+                    date = date.plusDays(random.nextInt(3));
+                    v.addExpense(new Expense(expenseCategories[random.nextInt(expenseCategories.length)], 50 + random.nextInt(500_000) / 100.0,
+                            CURRENCIES[random.nextInt(CURRENCIES.length)], SHOPS[random.nextInt(SHOPS.length)], date));
+                    if (k % 10 == 0) {
+                        km += random.nextInt(1_500);
+                        v.recordKilometer(km, date);
+                        v.addTrackSession(new TrackSession(TRACKS[random.nextInt(TRACKS.length)], 95_000 + random.nextInt(40_000),
+                                date, random.nextBoolean() ? "Dry" : "Wet", "Michelin PS4S"));
+                    }
+                    if (k % 20 == 0) {
+                        v.addDreamItem(new DreamItem(dreamCategories[random.nextInt(dreamCategories.length)], "Upgrade " + k,
+                                100 + random.nextInt(2_000_000) / 100.0, CURRENCIES[random.nextInt(CURRENCIES.length)], date.plusMonths(6)));
+                    }
+                }
+                user.addVehicleToGarage(v);
+            }
+            result.add(user);
+        }
+        return result;
+    }
+
+    /**
+     * Writes a data-logger CSV of laps around a 600 m circle: time, GPS position, speed and rpm at
+     * 100 Hz, with a short preamble like real exports. There is no lap column, so the importer has
+     * to find the laps by passing the start/finish point.
+     * @param samples Number of sample lines.
+     */
+    static void writeTelemetry(Path file, long seed, int samples) throws IOException {
+        Random random = new Random(seed);
+        double radius = 600, lat0 = 40.95, lon0 = 29.40;
+        double metersPerDegLat = 6_371_000 * Math.PI / 180, metersPerDegLon = metersPerDegLat * Math.cos(Math.toRadians(lat0));
+        double distance = 0;
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("Session: benchmark");
+            out.newLine();
+            out.write("Time (s),Latitude,Longitude,Speed (km/h),RPM");
+            out.newLine();
+            for (int i = 0; i < samples; i++) {
+                double speed = 140 + random.nextDouble() * 20;
+                double angle = distance / radius;
+                out.write(String.format(Locale.ROOT, "%.2f,%.7f,%.7f,%.1f,%d%n", i / 100.0,
+                        lat0 + radius * Math.sin(angle) / metersPerDegLat, lon0 + (radius - radius * Math.cos(angle)) / metersPerDegLon,
+                        speed, (int) (3000 + speed * 20)));
+                distance += speed / 3.6 / 100;
+            }
+        }
+    }
+
+    /**
+     * Copies a garage into the classes of the original Java-serialized format, to measure the old
+     * save and load path on the same data. Free-text fields get their own String per record, as when
+     * typed into the old forms, so the stream holds them as text rather than back references.
+     */
+    static MyGarage.legacy.User toLegacy(User user) {
+        ArrayList<MyGarage.legacy.Vehicle> garage = new ArrayList<>();
+        for (Vehicle v : user.getGarage()) {
+            ArrayList<MyGarage.legacy.Expense> expenses = new ArrayList<>(v.getExpenses().size());
+            for (Expense e : v.getExpenses()) {
+                expenses.add(new MyGarage.legacy.Expense(e.getCategory() == null ? null : MyGarage.legacy.Expense.ExpenseCategory.valueOf(e.getCategory().name()),
+                        e.getAmount(), e.getCurrency(), typed(e.getDescription()), e.getDate()));
+            }
+            ArrayList<MyGarage.legacy.DreamItem> dreams = new ArrayList<>(v.getDreamList().size());
+            for (DreamItem d : v.getDreamList()) {
+                dreams.add(new MyGarage.legacy.DreamItem(d.getCategory() == null ? null : MyGarage.legacy.DreamItem.DreamCategory.valueOf(d.getCategory().name()),
+                        typed(d.getDescription()), d.getEstimatedCost(), d.getCurrency(), d.getPlannedDate(), d.isDone()));
+            }
+            ArrayList<MyGarage.legacy.TrackSession> sessions = new ArrayList<>(v.getTrackLog().size());
+            for (TrackSession t : v.getTrackLog()) {
+                sessions.add(new MyGarage.legacy.TrackSession(typed(t.getTrackName()), t.getLapTime(), t.getDate(),
+                        typed(t.getConditions()), typed(t.getTires())));
+            }
+            garage.add(new MyGarage.legacy.Vehicle(v.getId(), v.getBrand(), v.getModel(), v.getGeneration(), v.getYear(), v.getColor(),
+                    v.getKilometer(), v.getPower(), v.getTorque(), expenses, dreams, sessions));
+        }
+        return new MyGarage.legacy.User(user.getUsername(), user.getPassword(), user.getEmail(), garage);
+    }
+
+    private static String typed(String s) {
+        return s == null ? null : new String(s);
+    }
+
+    /**
+     * Writes daily USD and EUR rates from the first expense date for the given number of days,
+     * in the format of {@code rates.csv}. Weekends are left out like in real rate files.
+     */
+    static void writeRates(Path file, long seed, int days) throws IOException {
+        Random random = new Random(seed);
+        double usd = 6.0, eur = 6.6;
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("date,currency,rate");
+            out.newLine();
+            for (int day = 0; day < days; day++) {
+                LocalDate date = START.plusDays(day);
+                usd *= 1.0006 + (random.nextDouble() - 0.5) * 0.004; // Slowly weakening lira
+                eur *= 1.0006 + (random.nextDouble() - 0.5) * 0.004;
+                if (date.getDayOfWeek().getValue() >= 6) continue;
+                out.write(String.format(Locale.ROOT, "%s,USD,%.4f%n%s,EUR,%.4f%n", date, usd, date, eur));
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package MyGarage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Stores a log of fixed-size rows (see {@link GarageCodec}) as compressed blocks of
+ * {@value #BLOCK_ROWS} rows. Inside a block the bytes are shuffled by position in the row
+ * (all first bytes, then all second bytes, ...), so the similar values of a column sit next to
+ * each other, and then deflated. Logs shorter than {@value #MIN_ROWS} rows stay plain.
+ *
+ * Layout after the row count of the log:
+ * <pre>
+ *   byte  format: 0 = plain rows follow, 1 = blocks
+ *   int   block count, then per block: int rows, int first day, int last day, int byte length
+ *   the compressed blocks, in order
+ * </pre>
+ * The first and last day of each block (rows without a date left out) let a date-range read
+ * skip the blocks outside the range without inflating them.
+ */
+class BlockCodec {
+
+    static final int BLOCK_ROWS = 4096;
+    static final int MIN_ROWS = 256;
+    static final byte PLAIN = 0;
+    static final byte BLOCKS = 1;
+    static final int INDEX_ENTRY_SIZE = 16;
+
+    // Fast levels compress these blocks almost as well as the slow ones
+    private static final int LEVEL = Deflater.BEST_SPEED;
+
+    /**
+     * Encodes a log.
+     * @param rows       The rows in the plain layout.
+     * @param rowSize    Bytes per row.
+     * @param dateOffset Position of the epoch-day int inside a row.
+     * @return The format byte and everything after it.
+     */
+    static byte[] encode(byte[] rows, int count, int rowSize, int dateOffset) {
+        if (count < MIN_ROWS) {
+            byte[] plain = new byte[1 + count * rowSize];
+            plain[0] = PLAIN;
+            System.arraycopy(rows, 0, plain, 1, count * rowSize);
+            return plain;
+        }
+
+        int blocks = (count + BLOCK_ROWS - 1) / BLOCK_ROWS;
+        ByteBuffer index = ByteBuffer.allocate(1 + 4 + blocks * INDEX_ENTRY_SIZE);
+        index.put(BLOCKS).putInt(blocks);
+        byte[] shuffled = new byte[BLOCK_ROWS * rowSize];
+        byte[] compressed = new byte[rows.length / 2 + 64];
+        int compressedLength = 0;
+
+        Deflater deflater = new Deflater(LEVEL, true); // No zlib header: the snapshot has its own checksum
+        try {
+            for (int first = 0; first < count; first += BLOCK_ROWS) {
+                int n = Math.min(BLOCK_ROWS, count - first);
+                int minDay = Integer.MAX_VALUE, maxDay = Integer.MIN_VALUE;
+                for (int r = 0; r < n; r++) {
+                    int at = (first + r) * rowSize;
+                    for (int b = 0; b < rowSize; b++) shuffled[b * n + r] = rows[at + b];
+                    int day = intAt(rows, at + dateOffset);
+                    if (day == ExpenseLog.NO_DATE) continue;
+                    minDay = Math.min(minDay, day);
+                    maxDay = Math.max(maxDay, day);
+                }
+
+                deflater.reset();
+                deflater.setInput(shuffled, 0, n * rowSize);
+                deflater.finish();
+                int start = compressedLength;
+                while (!deflater.finished()) {
+                    if (compressedLength == compressed.length) compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                    compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+                }
+                index.putInt(n).putInt(minDay).putInt(maxDay).putInt(compressedLength - start);
+            }
+        } finally {
+            deflater.end();
+        }
+
+        byte[] section = Arrays.copyOf(index.array(), index.capacity() + compressedLength);
+        System.arraycopy(compressed, 0, section, index.capacity(), compressedLength);
+        return section;
+    }
+
+    private static int intAt(byte[] bytes, int at) {
+        return (bytes[at] << 24) | ((bytes[at + 1] & 0xFF) << 16) | ((bytes[at + 2] & 0xFF) << 8) | (bytes[at + 3] & 0xFF);
+    }
+
+    /**
+     * Reads a log, one block at a time, passing a buffer positioned at each row to the consumer
+     * (which reads exactly one row from it). Leaves {@code in} after the log.
+     */
+    static void read(ByteBuffer in, int count, int rowSize, Consumer<ByteBuffer> row) throws IOException {
+        if (in.get() == PLAIN) {
+            for (int r = 0; r < count; r++) row.accept(in);
+            return;
+        }
+
+        int blocks = in.getInt();
+        int dataAt = in.position() + blocks * INDEX_ENTRY_SIZE;
+        byte[] shuffled = new byte[BLOCK_ROWS * rowSize];
+        byte[] plain = new byte[BLOCK_ROWS * rowSize];
+        Inflater inflater = new Inflater(true);
+        try {
+            for (int b = 0; b < blocks; b++) {
+                int n = in.getInt();
+                in.position(in.position() + 8); // Date range, not needed for a full read
+                int length = in.getInt();
+                inflate(inflater, in.duplicate().position(dataAt).limit(dataAt + length), n, rowSize, shuffled, plain);
+                dataAt += length;
+
+                ByteBuffer rows = ByteBuffer.wrap(plain, 0, n * rowSize);
+                for (int r = 0; r < n; r++) row.accept(rows);
+            }
+        } finally {
+            inflater.end();
+        }
+        in.position(dataAt);
+    }
+
+    /**
+     * @return Position right after the log that starts (with its format byte) at {@code pos}.
+     */
+    static int skip(ByteBuffer data, int pos, int count, int rowSize) {
+        if (data.get(pos) == PLAIN) return pos + 1 + count * rowSize;
+        int blocks = data.getInt(pos + 1);
+        int end = pos + 5 + blocks * INDEX_ENTRY_SIZE;
+        for (int b = 0; b < blocks; b++) end += data.getInt(pos + 5 + b * INDEX_ENTRY_SIZE + 12);
+        return end;
+    }
+
+    /**
+     * Inflates one block and puts its rows back into the plain layout.
+     * @param block Exactly the compressed bytes of the block.
+     */
+    static void inflate(Inflater inflater, ByteBuffer block, int rows, int rowSize, byte[] shuffled, byte[] plain) throws IOException {
+        int size = rows * rowSize;
+        inflater.reset();
+        inflater.setInput(block);
+        try {
+            int done = 0;
+            while (done < size && !inflater.finished()) {
+                int n = inflater.inflate(shuffled, done, size - done);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                done += n;
+            }
+            if (done != size) throw new IOException("Damaged log block");
+        } catch (DataFormatException e) {
+            throw new IOException("Damaged log block: " + e.getMessage(), e);
+        }
+        for (int r = 0; r < rows; r++) {
+            int at = r * rowSize;
+            for (int b = 0; b < rowSize; b++) plain[at + b] = shuffled[b * rows + r];
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package MyGarage;
+
+/**
+ * Running totals converted into every currency of a {@link CurrencyRates} table at once.
+ * Each amount is converted at the rate of its own date when it is added, so showing the
+ * totals in another currency is just reading another row, with no pass over the data.
+ *
+ * Amounts are added into slots (e.g. one per expense category).
+ */
+class ConvertedTotals {
+
+    final CurrencyRates rates;
+    private final double[][] totals; // [target currency][slot]
+    private int unconverted;
+
+    ConvertedTotals(CurrencyRates rates, int slots) {
+        this.rates = rates;
+        this.totals = new double[rates.size()][slots];
+    }
+
+    /**
+     * @param epochDay Day of the amount, {@link Integer#MAX_VALUE} if it has none (the latest rates are used).
+     */
+    void add(String currency, int epochDay, int slot, double amount) {
+        int from = rates.currencyId(currency);
+        if (from < 0) {
+            unconverted++; // No rates for it, counted so the UI can say so
+            return;
+        }
+        double inBase = amount * rates.rate(from, epochDay);
+        for (int target = 0; target < totals.length; target++) {
+            totals[target][slot] += inBase / rates.rate(target, epochDay);
+        }
+    }
+
+    /**
+     * @return The sum of all slots in the currency, or NaN if there are no rates for it.
+     */
+    double total(String currency) {
+        int target = rates.currencyId(currency);
+        if (target < 0) return Double.NaN;
+        double sum = 0;
+        for (double amount : totals[target]) sum += amount;
+        return sum;
+    }
+
+    double total(String currency, int slot) {
+        int target = rates.currencyId(currency);
+        return target < 0 ? Double.NaN : totals[target][slot];
+    }
+
+    /**
+     * @return Number of amounts left out because their currency has no rates.
+     */
+    int unconverted() { return unconverted; }
+}
@@ -0,0 +1,540 @@
+package MyGarage;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Bulk import and export of expenses, Dream Spec items and track sessions as CSV
+ * (e.g. to move years of records over from a spreadsheet).
+ *
+ * Importing streams the file through one reusable buffer: lines are split into fields in place
+ * and numbers and dates are parsed straight from the bytes. Every row is validated (categories must
+ * match the enums, amounts must be numbers, lap times must parse) and valid rows are handed over in
+ * batches, so the caller can store a whole batch with a single journal write. Invalid rows are
+ * skipped and reported.
+ *
+ * The first line must name the columns (see {@link Kind}); their order does not matter and names
+ * are matched ignoring case, spaces and underscores. Comma, semicolon and tab separated files
+ * are accepted, quoted fields may contain separators, quotes ("") and line breaks.
+ * Dates are yyyy-MM-dd or dd.MM.yyyy (also dd/MM/yyyy); an empty currency means TL.
+ */
+public class CsvTransfer {
+
+    /**
+     * What a file contains, with the columns written on export.
+     */
+    public enum Kind {
+        EXPENSES("date", "category", "amount", "currency", "description"),
+        DREAM_ITEMS("category", "description", "estimated_cost", "currency", "planned_date", "done"),
+        TRACK_SESSIONS("date", "track", "lap_time", "conditions", "tires");
+
+        final String[] columns;
+
+        Kind(String... columns) {
+            this.columns = columns;
+        }
+    }
+
+    /**
+     * Receives the valid rows (Expense, DreamItem or TrackSession objects) batch by batch,
+     * on the importing thread.
+     */
+    public interface BatchHandler {
+        void commit(List<Object> batch);
+    }
+
+    /**
+     * Called after every batch.
+     */
+    public interface ProgressListener {
+        void onProgress(long bytesRead, long totalBytes, int rowsImported);
+    }
+
+    /**
+     * Outcome of an import.
+     */
+    public static class Report {
+        public int imported;
+        public int rejected;
+        public long bytesRead;
+        public final List<String> errors = new ArrayList<>(); // The first MAX_ERRORS problems
+    }
+
+    static final int DEFAULT_BATCH_SIZE = 10_000;
+    private static final int CHUNK_SIZE = 1024 * 1024;
+    private static final int MAX_ERRORS = 100;
+    private static final String DEFAULT_CURRENCY = "TL";
+
+    private static final Map<String, Expense.ExpenseCategory> EXPENSE_CATEGORIES = lookup(Expense.ExpenseCategory.values());
+    private static final Map<String, DreamItem.DreamCategory> DREAM_CATEGORIES = lookup(DreamItem.DreamCategory.values());
+
+    // --- IMPORT ---
+
+    /**
+     * Imports a CSV file.
+     * @param csv       The file to read.
+     * @param kind      What the file contains.
+     * @param batchSize Rows per batch.
+     * @param handler   Stores each batch (e.g. {@link #addToVehicle(User, Vehicle, List)}).
+     * @param progress  Notified after every batch, may be null.
+     * @return Counts and the first problems found.
+     * @throws IOException If the file cannot be read or has no usable header.
+     */
+    public static Report importFile(Path csv, Kind kind, int batchSize, BatchHandler handler, ProgressListener progress) throws IOException {
+        return new CsvTransfer(kind).run(csv, batchSize, handler, progress);
+    }
+
+    /**
+     * Adds imported rows to a vehicle and queues them for saving as one batch.
+     * Must run on the thread that owns the data (the JavaFX thread in the app).
+     */
+    public static void addToVehicle(User user, Vehicle v, List<?> batch) {
+        List<JournalEntry> entries = new ArrayList<>(batch.size());
+        for (Object row : batch) {
+            JournalEntry entry;
+            if (row instanceof Expense) {
+                v.addExpense((Expense) row);
+                entry = JournalEntry.addExpense(user, v, (Expense) row);
+            } else if (row instanceof DreamItem) {
+                v.addDreamItem((DreamItem) row);
+                entry = JournalEntry.addDreamItem(user, v, (DreamItem) row);
+            } else {
+                v.addTrackSession((TrackSession) row);
+                entry = JournalEntry.addTrackSession(user, v, (TrackSession) row);
+            }
+            user.indexChange(entry);
+            entries.add(entry);
+        }
+        PersistenceService.submitAll(entries);
+    }
+
+    private final Kind kind;
+    private final int[] columnOf;   // Kind column -> position in the file (-1 = missing)
+    private byte delimiter = ',';
+    private boolean headerRead;
+    private int row;                // Data rows seen (for error messages)
+
+    // Fields of the current line, as ranges of the read buffer
+    private int[] fieldStart = new int[16];
+    private int[] fieldEnd = new int[16];
+    private int fieldCount;
+    private byte[] b;
+
+    private CsvTransfer(Kind kind) {
+        this.kind = kind;
+        this.columnOf = new int[kind.columns.length];
+    }
+
+    private Report run(Path csv, int batchSize, BatchHandler handler, ProgressListener progress) throws IOException {
+        Report report = new Report();
+        long totalBytes = Files.size(csv);
+        List<Object> batch = new ArrayList<>(batchSize);
+
+        try (FileChannel in = FileChannel.open(csv, StandardOpenOption.READ)) {
+            ByteBuffer chunk = ByteBuffer.allocate(CHUNK_SIZE);
+            b = chunk.array();
+            while (true) {
+                int read = in.read(chunk);
+                if (read > 0) report.bytesRead += read;
+                int limit = chunk.position();
+                int lineStart = 0;
+                boolean quoted = false;
+
+                // Every complete line in the chunk (a line break inside quotes belongs to the field)
+                for (int i = 0; i < limit; i++) {
+                    if (b[i] == '"') {
+                        quoted = !quoted;
+                    } else if (b[i] == '\n' && !quoted) {
+                        int lineEnd = i > lineStart && b[i - 1] == '\r' ? i - 1 : i;
+                        readLine(csv, lineStart, lineEnd, batch, report);
+                        lineStart = i + 1;
+                        if (batch.size() >= batchSize) commit(batch, handler, progress, report, totalBytes);
+                    }
+                }
+
+                if (read < 0) {
+                    if (lineStart < limit) readLine(csv, lineStart, limit, batch, report); // No final line break
+                    break;
+                }
+                // Keep the unfinished line for the next chunk
+                System.arraycopy(b, lineStart, b, 0, limit - lineStart);
+                chunk.position(limit - lineStart);
+                if (!chunk.hasRemaining()) throw new IOException("Line longer than " + CHUNK_SIZE + " bytes in " + csv.getFileName());
+            }
+        }
+        if (!headerRead) throw new IOException("Empty file: " + csv.getFileName());
+        commit(batch, handler, progress, report, totalBytes);
+        return report;
+    }
+
+    private void commit(List<Object> batch, BatchHandler handler, ProgressListener progress, Report report, long totalBytes) {
+        if (!batch.isEmpty()) {
+            handler.commit(new ArrayList<>(batch));
+            report.imported += batch.size();
+            batch.clear();
+        }
+        if (progress != null) progress.onProgress(report.bytesRead, totalBytes, report.imported);
+    }
+
+    private void readLine(Path csv, int start, int end, List<Object> batch, Report report) throws IOException {
+        if (start == end) return; // Blank line
+        if (!headerRead) {
+            readHeader(csv, start, end);
+            return;
+        }
+        row++;
+        split(start, end);
+        try {
+            batch.add(parseRow());
+        } catch (IllegalArgumentException | DateTimeException e) {
+            report.rejected++;
+            if (report.errors.size() < MAX_ERRORS) report.errors.add("Row " + row + ": " + e.getMessage());
+        }
+    }
+
+    // --- HEADER ---
+
+    private void readHeader(Path csv, int start, int end) throws IOException {
+        if (end - start >= 3 && b[start] == (byte) 0xEF && b[start + 1] == (byte) 0xBB && b[start + 2] == (byte) 0xBF) start += 3; // UTF-8 BOM (Excel)
+        int commas = 0, semicolons = 0, tabs = 0;
+        for (int i = start; i < end; i++) {
+            if (b[i] == ',') commas++;
+            else if (b[i] == ';') semicolons++;
+            else if (b[i] == '\t') tabs++;
+        }
+        delimiter = (byte) (tabs > commas && tabs > semicolons ? '\t' : semicolons > commas ? ';' : ',');
+
+        split(start, end);
+        Arrays.fill(columnOf, -1);
+        for (int field = 0; field < fieldCount; field++) {
+            String name = canonical(fold(text(field)));
+            for (int c = 0; c < kind.columns.length; c++) {
+                if (columnOf[c] < 0 && fold(kind.columns[c]).equals(name)) columnOf[c] = field;
+            }
+        }
+        for (String required : required()) {
+            if (columnOf[Arrays.asList(kind.columns).indexOf(required)] < 0) {
+                throw new IOException("Column '" + required + "' is missing in " + csv.getFileName());
+            }
+        }
+        headerRead = true;
+    }
+
+    private String[] required() {
+        switch (kind) {
+            case EXPENSES: return new String[] { "category", "amount" };
+            case DREAM_ITEMS: return new String[] { "category", "estimated_cost" };
+            default: return new String[] { "track", "lap_time" };
+        }
+    }
+
+    /**
+     * Maps other common column names to ours (already folded).
+     */
+    private static String canonical(String name) {
+        switch (name) {
+            case "type": return "category";
+            case "cost": case "price": case "estimatedprice": return "estimatedcost";
+            case "note": case "notes": case "name": case "item": return "description";
+            case "planned": case "plandate": return "planneddate";
+            case "lap": case "time": case "besttime": case "bestlap": return "laptime";
+            case "trackname": case "circuit": return "track";
+            case "tire": case "tyres": case "tyre": return "tires";
+            case "weather": return "conditions";
+            default: return name;
+        }
+    }
+
+    // --- ROWS ---
+
+    private Object parseRow() {
+        String[] c = kind.columns;
+        switch (kind) {
+            case EXPENSES:
+                return new Expense(category(1, EXPENSE_CATEGORIES), number(2, c[2]), currency(3), optionalText(4), date(0));
+            case DREAM_ITEMS: {
+                DreamItem item = new DreamItem(category(0, DREAM_CATEGORIES), optionalText(1), number(2, c[2]), currency(3), date(4));
+                item.setDone(flag(5));
+                return item;
+            }
+            default: {
+                String track = optionalText(1);
+                if (track == null) throw new IllegalArgumentException("Track is empty");
+                return new TrackSession(track, LapTime.parse(optionalText(2)), date(0), optionalText(3), optionalText(4));
+            }
+        }
+    }
+
+    private <E extends Enum<E>> E category(int column, Map<String, E> values) {
+        String raw = optionalText(column);
+        E value = raw == null ? null : values.get(fold(raw));
+        if (value == null) throw new IllegalArgumentException("Unknown category '" + raw + "'");
+        return value;
+    }
+
+    private String currency(int column) {
+        String raw = optionalText(column);
+        return raw == null ? DEFAULT_CURRENCY : raw.toUpperCase(Locale.ROOT);
+    }
+
+    private boolean flag(int column) {
+        String raw = optionalText(column);
+        if (raw == null) return false;
+        switch (raw.toLowerCase(Locale.ROOT)) {
+            case "true": case "yes": case "1": case "x": case "done": case "evet": return true;
+            default: return false;
+        }
+    }
+
+    /**
+     * @return The trimmed text of a column, or null if it is missing or empty.
+     */
+    private String optionalText(int column) {
+        int field = columnOf[column];
+        if (field < 0 || field >= fieldCount) return null;
+        String s = text(field).trim();
+        return s.isEmpty() ? null : s;
+    }
+
+    private String text(int field) {
+        return new String(b, fieldStart[field], fieldEnd[field] - fieldStart[field], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses a decimal number without creating objects.
+     */
+    private double number(int column, String name) {
+        int field = columnOf[column];
+        if (field < 0 || field >= fieldCount) throw new IllegalArgumentException(name + " is empty");
+        int start = fieldStart[field], end = fieldEnd[field];
+        while (start < end && b[start] == ' ') start++;
+        while (end > start && b[end - 1] == ' ') end--;
+        if (start == end) throw new IllegalArgumentException(name + " is empty");
+
+        int i = start;
+        boolean negative = b[i] == '-';
+        if (negative || b[i] == '+') i++;
+        long mantissa = 0;
+        int digits = 0, fractionDigits = 0;
+        boolean fraction = false;
+        for (; i < end; i++) {
+            byte c = b[i];
+            if (c >= '0' && c <= '9' && digits < 18) {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (fraction) fractionDigits++;
+            } else if ((c == '.' || (c == ',' && delimiter != ',')) && !fraction) {
+                fraction = true;
+            } else {
+                return slowNumber(start, end, name); // Exponent, very long number or garbage
+            }
+        }
+        if (digits == 0) throw new IllegalArgumentException("Invalid " + name + " '" + text(field).trim() + "'");
+        double value = fractionDigits == 0 ? mantissa : mantissa / POWERS_OF_TEN[fractionDigits];
+        return negative ? -value : value;
+    }
+
+    private double slowNumber(int start, int end, String name) {
+        String s = new String(b, start, end - start, StandardCharsets.UTF_8);
+        double value;
+        try {
+            value = Double.parseDouble(delimiter != ',' ? s.replace(',', '.') : s);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + " '" + s + "'");
+        }
+        // "NaN", "Infinity" and "1e400" parse, but one of them would poison every running total for good
+        if (!Double.isFinite(value)) throw new IllegalArgumentException("Invalid " + name + " '" + s + "'");
+        return value;
+    }
+
+    private static final double[] POWERS_OF_TEN = new double[19];
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+
+    /**
+     * Parses yyyy-MM-dd, dd.MM.yyyy or dd/MM/yyyy straight from the bytes.
+     * @return The date, or null if the column is missing or empty.
+     */
+    private LocalDate date(int column) {
+        int field = columnOf[column];
+        if (field < 0 || field >= fieldCount) return null;
+        int start = fieldStart[field], end = fieldEnd[field];
+        while (start < end && b[start] == ' ') start++;
+        while (end > start && b[end - 1] == ' ') end--;
+        if (start == end) return null;
+        if (end - start == 10) {
+            if (b[start + 4] == '-' && b[start + 7] == '-') {
+                int y = digits(start, 4), m = digits(start + 5, 2), d = digits(start + 8, 2);
+                if (y >= 0 && m >= 0 && d >= 0) return LocalDate.of(y, m, d);
+            }
+            byte s = b[start + 2];
+            if ((s == '.' || s == '/' || s == '-') && b[start + 5] == s) {
+                int d = digits(start, 2), m = digits(start + 3, 2), y = digits(start + 6, 4);
+                if (y >= 0 && m >= 0 && d >= 0) return LocalDate.of(y, m, d);
+            }
+        }
+        throw new IllegalArgumentException("Invalid date '" + new String(b, start, end - start, StandardCharsets.UTF_8) + "'");
+    }
+
+    private int digits(int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            if (b[i] < '0' || b[i] > '9') return -1;
+            value = value * 10 + (b[i] - '0');
+        }
+        return value;
+    }
+
+    // --- FIELDS ---
+
+    /**
+     * Splits a line into fields. Quoted fields are unescaped in place ("" becomes ").
+     */
+    private void split(int start, int end) {
+        fieldCount = 0;
+        int p = start;
+        while (true) {
+            int fs, fe;
+            if (p < end && b[p] == '"') {
+                int read = p + 1, write = p + 1;
+                fs = write;
+                while (read < end) {
+                    if (b[read] == '"') {
+                        if (read + 1 < end && b[read + 1] == '"') {
+                            b[write++] = '"';
+                            read += 2;
+                            continue;
+                        }
+                        read++;
+                        break;
+                    }
+                    b[write++] = b[read++];
+                }
+                fe = write;
+                while (read < end && b[read] != delimiter) read++; // Ignore anything after the closing quote
+                p = read;
+            } else {
+                fs = p;
+                while (p < end && b[p] != delimiter) p++;
+                fe = p;
+            }
+            if (fieldCount == fieldStart.length) {
+                fieldStart = Arrays.copyOf(fieldStart, fieldCount * 2);
+                fieldEnd = Arrays.copyOf(fieldEnd, fieldCount * 2);
+            }
+            fieldStart[fieldCount] = fs;
+            fieldEnd[fieldCount] = fe;
+            fieldCount++;
+            if (p >= end) return;
+            p++; // Skip the delimiter
+        }
+    }
+
+    // --- EXPORT ---
+
+    /**
+     * Writes a vehicle's expenses, Dream Spec items or track sessions as CSV (comma separated, UTF-8).
+     * @return Number of rows written.
+     */
+    public static int exportFile(Vehicle v, Kind kind, Path csv) throws IOException {
+        StringBuilder line = new StringBuilder(128); // Reused for every row
+        int rows = 0;
+        try (BufferedWriter out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(csv), StandardCharsets.UTF_8), 1 << 16)) {
+            out.write(String.join(",", kind.columns));
+            out.newLine();
+            switch (kind) {
+                case EXPENSES: {
+                    // Straight from the columns, no Expense objects
+                    ExpenseLog log = v.getExpenseLog();
+                    for (int r = 0; r < log.size(); r++) {
+                        line.setLength(0);
+                        Expense.ExpenseCategory category = log.category(r);
+                        cell(line, log.date(r)).append(',');
+                        cell(line, category == null ? null : category.name()).append(',');
+                        line.append(log.amount(r)).append(',');
+                        cell(line, log.currency(r)).append(',');
+                        cell(line, log.description(r));
+                        out.append(line).append(System.lineSeparator());
+                        rows++;
+                    }
+                    break;
+                }
+                case DREAM_ITEMS:
+                    for (DreamItem d : v.getDreamList()) {
+                        line.setLength(0);
+                        cell(line, d.getCategory() == null ? null : d.getCategory().name()).append(',');
+                        cell(line, d.getDescription()).append(',');
+                        line.append(d.getEstimatedCost()).append(',');
+                        cell(line, d.getCurrency()).append(',');
+                        cell(line, d.getPlannedDate()).append(',');
+                        line.append(d.isDone());
+                        out.append(line).append(System.lineSeparator());
+                        rows++;
+                    }
+                    break;
+                default:
+                    for (TrackSession t : v.getTrackLog()) {
+                        line.setLength(0);
+                        cell(line, t.getDate()).append(',');
+                        cell(line, t.getTrackName()).append(',');
+                        cell(line, t.getLapTime()).append(',');
+                        cell(line, t.getConditions()).append(',');
+                        cell(line, t.getTires());
+                        out.append(line).append(System.lineSeparator());
+                        rows++;
+                    }
+                    break;
+            }
+        }
+        return rows;
+    }
+
+    static StringBuilder cell(StringBuilder line, Object value) {
+        if (value == null) return line;
+        String s = value.toString();
+        boolean quote = false;
+        for (int i = 0; i < s.length() && !quote; i++) {
+            char c = s.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r' || c == ';' || c == '\t';
+        }
+        if (!quote) return line.append(s);
+        return line.append('"').append(s.replace("\"", "\"\"")).append('"');
+    }
+
+    // --- NAMES ---
+
+    private static <E extends Enum<E>> Map<String, E> lookup(E[] values) {
+        Map<String, E> map = new HashMap<>();
+        for (E value : values) map.put(fold(value.name()), value);
+        return map;
+    }
+
+    /**
+     * Lower case letters and digits only, so "Wash / Detail", "wash_detail" and "WASH DETAIL" match.
+     */
+    private static String fold(String s) {
+        StringBuilder folded = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (Character.isLetterOrDigit(c)) folded.append(Character.toLowerCase(c));
+        }
+        return folded.toString();
+    }
+}
@@ -0,0 +1,195 @@
+package MyGarage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Historical daily exchange rates, read from {@code mygarage_data/rates.csv}.
+ * Each line is {@code date,currency,rate}, where rate is the value of one unit in TL
+ * (e.g. {@code 2024-03-01,EUR,34.87}); a header line and {@code #} comments are allowed.
+ *
+ * The rates are kept in one primitive array per currency, indexed by day, so looking up the
+ * rate of any date is an array access. Days without a rate (weekends, holidays) use the last
+ * known one; dates before the first or after the last rate use the nearest one.
+ */
+class CurrencyRates {
+
+    static final String BASE = "TL";
+
+    // Offered in the currency boxes even without a rate file (the choices of older versions)
+    static final String[] DEFAULT_CURRENCIES = { "TL", "USD", "EUR" };
+
+    private static volatile CurrencyRates current;
+
+    private final String[] currencies;            // Index 0 = BASE
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final int firstDay;
+    private final double[][] perDay;              // [currency][day - firstDay] = value of one unit in BASE
+
+    private CurrencyRates(Map<String, TreeMap<Integer, Double>> rates) {
+        currencies = new String[rates.size() + 1];
+        currencies[0] = BASE;
+        int first = Integer.MAX_VALUE, last = Integer.MIN_VALUE;
+        for (TreeMap<Integer, Double> byDay : rates.values()) {
+            first = Math.min(first, byDay.firstKey());
+            last = Math.max(last, byDay.lastKey());
+        }
+        firstDay = rates.isEmpty() ? 0 : first;
+        int days = rates.isEmpty() ? 1 : last - first + 1;
+
+        perDay = new double[currencies.length][];
+        perDay[0] = new double[] { 1 };
+        int id = 1;
+        for (Map.Entry<String, TreeMap<Integer, Double>> currency : rates.entrySet()) {
+            currencies[id] = currency.getKey();
+            double[] table = new double[days];
+            double rate = currency.getValue().firstEntry().getValue(); // Before the first rate: the first rate
+            for (int day = 0; day < days; day++) {
+                Double known = currency.getValue().get(firstDay + day);
+                if (known != null) rate = known;
+                table[day] = rate;
+            }
+            perDay[id++] = table;
+        }
+        for (int i = 0; i < currencies.length; i++) ids.put(currencies[i], i);
+    }
+
+    /**
+     * The rates of the data folder, read on first use.
+     * Without a rate file only amounts already in TL can be added up.
+     */
+    static CurrencyRates current() {
+        CurrencyRates rates = current;
+        if (rates != null) return rates;
+        synchronized (CurrencyRates.class) {
+            if (current == null) current = loadOrEmpty(DataBaseManager.ratesFile());
+            return current;
+        }
+    }
+
+    /**
+     * Replaces the rates used by every total (e.g. with a fixed table for benchmarks).
+     */
+    static void setCurrent(CurrencyRates rates) {
+        synchronized (CurrencyRates.class) {
+            current = rates;
+        }
+    }
+
+    private static CurrencyRates loadOrEmpty(File file) {
+        if (!file.exists()) {
+            System.out.println("ℹ️ No exchange rates found (" + file + "), totals are only converted between equal currencies.");
+            return new CurrencyRates(new LinkedHashMap<>());
+        }
+        try {
+            CurrencyRates rates = load(file.toPath());
+            System.out.println("✅ Exchange rates loaded: " + String.join(", ", rates.currencies));
+            return rates;
+        } catch (IOException e) {
+            System.out.println("❌ Exchange Rate Error: " + e.getMessage());
+            return new CurrencyRates(new LinkedHashMap<>());
+        }
+    }
+
+    /**
+     * Reads a rate file. Lines that cannot be read are skipped.
+     */
+    static CurrencyRates load(Path file) throws IOException {
+        Map<String, TreeMap<Integer, Double>> rates = new LinkedHashMap<>();
+        int skipped = 0;
+        boolean firstLine = true;
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            boolean header = firstLine;
+            firstLine = false;
+            // Semicolon files (spreadsheets with decimal commas) are accepted too
+            boolean semicolons = line.indexOf(';') >= 0;
+            String[] fields = line.split(semicolons ? ";" : ",");
+            try {
+                int day = (int) LocalDate.parse(fields[0].trim()).toEpochDay();
+                String currency = canonical(fields[1]);
+                double rate = Double.parseDouble(semicolons ? fields[2].trim().replace(',', '.') : fields[2].trim());
+                if (!(rate > 0) || Double.isInfinite(rate)) throw new NumberFormatException("Bad rate " + rate);
+                if (!currency.equals(BASE)) rates.computeIfAbsent(currency, k -> new TreeMap<>()).put(day, rate);
+            } catch (DateTimeParseException | NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                if (!header) skipped++;
+            }
+        }
+        if (skipped > 0) System.out.println("⚠️ Skipped " + skipped + " unreadable lines in " + file.getFileName());
+        return new CurrencyRates(rates);
+    }
+
+    /**
+     * Upper case, with the ISO code of the lira mapped to the name the app uses.
+     */
+    static String canonical(String currency) {
+        String code = currency.trim().toUpperCase(Locale.ROOT);
+        return code.equals("TRY") ? BASE : code;
+    }
+
+    // --- LOOKUPS ---
+
+    /**
+     * @return TL first, then every currency with rates.
+     */
+    String[] currencies() {
+        return currencies.clone();
+    }
+
+    /**
+     * @return The currencies offered when entering an amount: the usual ones and every one with rates.
+     */
+    List<String> choices() {
+        LinkedHashSet<String> choices = new LinkedHashSet<>(Arrays.asList(DEFAULT_CURRENCIES));
+        choices.addAll(Arrays.asList(currencies));
+        return new ArrayList<>(choices);
+    }
+
+    int size() { return currencies.length; }
+
+    /**
+     * @return The currency's index in {@link #currencies()}, or -1 if there are no rates for it.
+     */
+    int currencyId(String currency) {
+        if (currency == null) return -1;
+        Integer id = ids.get(currency);
+        if (id == null) id = ids.get(canonical(currency));
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @param epochDay Any day; days outside the table use the nearest rate ({@link Integer#MAX_VALUE} = the latest).
+     * @return The value of one unit of the currency in TL on that day.
+     */
+    double rate(int currency, int epochDay) {
+        double[] table = perDay[currency];
+        long index = (long) epochDay - firstDay;
+        if (index < 0) index = 0;
+        if (index >= table.length) index = table.length - 1;
+        return table[(int) index];
+    }
+
+    /**
+     * @return The amount in the target currency at the rates of that day, or NaN if a currency has no rates.
+     */
+    double convert(double amount, String from, String to, int epochDay) {
+        int source = currencyId(from), target = currencyId(to);
+        if (source < 0 || target < 0) return from != null && from.equals(to) ? amount : Double.NaN;
+        return amount * rate(source, epochDay) / rate(target, epochDay);
+    }
+}
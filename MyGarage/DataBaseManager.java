@@ -1,49 +1,431 @@
 package MyGarage;
 
+import MyGarage.legacy.LegacyReader;
+
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.*;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 
+/**
+ * Local storage for all users.
+ * Every user lives in its own shard (see {@link UserShard}) inside the {@code mygarage_data} folder,
+ * and a persistent hash index (see {@link UserIndex}) maps each username to its shard. Logging in
+ * reads a few index slots and opens only the shard of that user, so startup cost depends on one
+ * garage rather than on every account.
+ *
+ * Databases written by older versions (a single {@code mygarage_data.dat} file with an optional
+ * journal) are split into shards automatically the first time they are opened. Files written with
+ * Java serialization are read through {@link LegacyReader} and rewritten in the binary format.
+ */
 public class DataBaseManager {
 
-    // The name of the file where data will be stored locally.
-    private static final String FILE_NAME = "mygarage_data.dat";
+    // The folder where data will be stored locally.
+    private static final File DATA_DIR = new File("mygarage_data");
+
+    // Username list of the first sharded format (replaced by the index).
+    private static final File DIRECTORY_FILE = new File(DATA_DIR, "users.dir");
+
+    // Single-file database of older versions (migrated on first start).
+    private static final String LEGACY_FILE = "mygarage_data.dat";
+    private static final String LEGACY_JOURNAL_PREFIX = "mygarage_data.journal.";
+
+    // Held by the one process allowed to change the folder (the app, or a writing command line task)
+    private static final File LOCK_FILE = new File(DATA_DIR, "mygarage.lock");
+
+    private static final Object LOCK = new Object();
+    private static FileLock writeLock; // Released by the OS when the process ends
+
+    private static UserIndex index;
+    private static final Map<Integer, UserShard> openShards = new HashMap<>();
 
     /**
-     * Saves the list of users to a binary file using serialization.
-     * @param users The ArrayList of User objects to be saved.
+     * Loads a single user without touching any other account.
+     * The lookup ignores case, like the login screen.
+     * @param username The login name.
+     * @return The User, or null if no such user is registered (or nothing was ever saved for it).
+     * @throws IOException If the index or the user's data could not be read. The caller must not
+     *                     register the name again in that case, the data is still on disk.
      */
-    public static void saveUsers(ArrayList<User> users) {
-        // try-with-resources: Automatically closes the stream after operation
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(FILE_NAME))) {
-            oos.writeObject(users); // Convert object to bytes and write to file
-            System.out.println("✅ Data saved successfully: " + FILE_NAME);
+    public static User loadUser(String username) throws IOException {
+        Integer id;
+        UserShard shard;
+        synchronized (LOCK) {
+            id = index().find(username);
+            if (id == null) return null;
+            shard = shard(id);
+        }
+        User user = load(id, shard);
+        if (user != null) System.out.println("✅ Data loaded successfully.");
+        return user;
+    }
+
+    /**
+     * Loads a user by id. The id is the number of the user's shard, so the files are found
+     * straight from it, without going through the username index.
+     * @return The User, or null if no user has this id.
+     * @throws IOException If the user's data could not be read.
+     */
+    public static User loadUser(int id) throws IOException {
+        UserShard shard;
+        synchronized (LOCK) {
+            index(); // Older formats are migrated first
+            if (id < 1 || !new File(DATA_DIR, "user_" + id + ".dat").exists()) return null;
+            shard = shard(id);
+        }
+        return load(id, shard);
+    }
+
+    /**
+     * Loads the user of a shard and gives it the shard number as its id.
+     */
+    private static User load(int id, UserShard shard) throws IOException {
+        User user = shard.load();
+        if (user != null) user.setId(id);
+        return user;
+    }
+
+    /**
+     * Takes the cross-process write lock of the data folder, so two processes (e.g. the app and
+     * the command line tool) never compact, roll back or append to the same shards at once.
+     * It is kept until the process exits. Without it this process only reads: shards refuse to
+     * write, loads do not compact, and older formats are not migrated.
+     * @return False if another process holds the lock.
+     */
+    public static boolean lockForWriting() throws IOException {
+        synchronized (LOCK) {
+            if (writeLock != null) return true;
+            DATA_DIR.mkdirs();
+            FileChannel channel = FileChannel.open(LOCK_FILE.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            FileLock lock;
+            try {
+                lock = channel.tryLock();
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+            if (lock == null) {
+                channel.close();
+                return false;
+            }
+            writeLock = lock;
+            for (UserShard shard : openShards.values()) shard.setReadOnly(false);
+            return true;
+        }
+    }
+
+    private static void checkWritable() throws IOException {
+        if (writeLock == null) throw new IOException("The data folder is in use by another MyGarage process");
+    }
+
+    /**
+     * Registers a new user: creates its shard and adds it to the index.
+     * A name that is already in the index (registered, but its first save never happened) keeps its shard,
+     * so the index never holds the same name twice.
+     * @param user The new User.
+     */
+    public static void registerUser(User user) throws IOException {
+        synchronized (LOCK) {
+            checkWritable();
+            Integer id = index().find(user.getUsername());
+            if (id == null) id = index().add(user.getUsername());
+            shard(id).save(user);
+            user.setId(id);
+        }
+    }
+
+    /**
+     * Appends a single change to the journal of the user it belongs to.
+     * This is cheap (a few bytes) compared to rewriting the whole garage.
+     * @param entry The change that was just made in memory.
+     */
+    public static void append(JournalEntry entry) {
+        try {
+            append(entry.getUsername(), Collections.singletonList(entry.encode()));
         } catch (IOException e) {
-            System.out.println("❌ Save Error: " + e.getMessage());
+            System.out.println("❌ Journal Error: " + e.getMessage());
             e.printStackTrace();
         }
     }
 
     /**
-     * Loads the list of users from the binary file.
-     * @return An ArrayList of User objects. Returns an empty list if file doesn't exist.
+     * Appends several encoded changes of one user to its journal in a single write.
+     * @param username The owner of the changes.
+     * @param payloads Entries encoded with {@link JournalEntry#encode()}, in order.
+     */
+    public static void append(String username, List<byte[]> payloads) throws IOException {
+        UserShard shard;
+        synchronized (LOCK) {
+            Integer id = findShard(username);
+            if (id == null) throw new IOException("Unknown user " + username);
+            shard = shard(id);
+        }
+        shard.append(payloads);
+    }
+
+    /**
+     * Loads every registered user. Shards are independent, so they are read in parallel.
+     * Only meant for maintenance tasks; the UI works with {@link #loadUser(String)}.
+     * @return An ArrayList of User objects. Returns an empty list if there is no data yet.
      */
-    @SuppressWarnings("unchecked") // Suppresses the warning for casting Object to ArrayList
     public static ArrayList<User> loadUsers() {
+        Map<Integer, UserShard> shards = new LinkedHashMap<>();
+        synchronized (LOCK) {
+            try {
+                for (int id : index().shards()) shards.put(id, shard(id));
+            } catch (IOException e) {
+                System.out.println("❌ Load Error or Corrupted File: " + e.getMessage());
+            }
+        }
+        return shards.entrySet().parallelStream()
+                .map(shard -> {
+                    try {
+                        return load(shard.getKey(), shard.getValue());
+                    } catch (IOException e) {
+                        System.out.println("❌ Load Error: " + e.getMessage()); // Left out, its files stay untouched
+                        return null;
+                    }
+                })
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(ArrayList::new)); // Keeps registration order
+    }
+
+    /**
+     * Saves the given users, each into its own shard (registering new ones).
+     * @param users The ArrayList of User objects to be saved.
+     */
+    public static void saveUsers(ArrayList<User> users) {
+        synchronized (LOCK) {
+            try {
+                checkWritable();
+                for (User u : users) {
+                    Integer id = index().find(u.getUsername());
+                    if (id == null) id = index().add(u.getUsername());
+                    shard(id).save(u);
+                    u.setId(id);
+                }
+                System.out.println("✅ Data saved successfully: " + DATA_DIR);
+            } catch (IOException e) {
+                System.out.println("❌ Save Error: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // --- MAINTENANCE (used by the command line tool) ---
+
+    /**
+     * @return Every registered username, in registration order.
+     */
+    public static List<String> usernames() throws IOException {
+        List<String> names = new ArrayList<>();
+        synchronized (LOCK) {
+            index().forEach((username, shard) -> names.add(username));
+        }
+        return names;
+    }
+
+    /**
+     * Folds a user's journal into a fresh snapshot right away, instead of waiting for the app to do it.
+     * @return False if no such user is registered.
+     */
+    public static boolean compact(String username) throws IOException {
+        UserShard shard;
+        synchronized (LOCK) {
+            Integer id = findShard(username);
+            if (id == null) return false;
+            shard = shard(id);
+        }
+        User user = shard.load();
+        if (user != null) shard.save(user);
+        return true;
+    }
+
+    /**
+     * Maps the snapshots of every user read-only (see {@link GarageArchive}), without loading them.
+     */
+    static GarageArchive openArchive() throws IOException {
+        return GarageArchive.open(DATA_DIR);
+    }
+
+    /**
+     * Restores one of the snapshots kept before the current one (see {@link UserShard#rollback(int)}).
+     * @param generation 1 = the previous snapshot.
+     * @return The restored user, or null if the user or that generation does not exist.
+     */
+    public static User rollback(String username, int generation) throws IOException {
+        Integer id;
+        UserShard shard;
+        synchronized (LOCK) {
+            id = findShard(username);
+            if (id == null) return null;
+            shard = shard(id);
+        }
+        User user = shard.rollback(generation);
+        if (user != null) user.setId(id);
+        return user;
+    }
+
+    /**
+     * Verifies a user's files without changing them.
+     * @param problems Receives a description of each problem found.
+     * @return The user as it would be loaded, or null if it is not registered or has no data.
+     */
+    public static User check(String username, List<String> problems) {
+        UserShard shard;
+        synchronized (LOCK) {
+            Integer id = findShard(username);
+            if (id == null) {
+                problems.add(username + ": not in the user index");
+                return null;
+            }
+            shard = shard(id);
+        }
+        User user = shard.check(problems);
+        if (user == null) problems.add(username + ": shard has no data");
+        else if (!user.getUsername().equalsIgnoreCase(username)) problems.add(username + ": shard belongs to " + user.getUsername());
+        return user;
+    }
+
+    /**
+     * @return The exchange rate table (see {@link CurrencyRates}).
+     */
+    public static File ratesFile() {
+        return new File(DATA_DIR, "rates.csv");
+    }
+
+    /**
+     * @param name File name stored on a {@link TrackSession}.
+     * @return The telemetry file inside the data folder.
+     */
+    public static File telemetryFile(String name) {
+        return new File(new File(DATA_DIR, "telemetry"), name);
+    }
+
+    // --- INDEX ---
+
+    /**
+     * Finds the shard of a user (exact name first, then ignoring case).
+     */
+    private static Integer findShard(String username) {
+        try {
+            return index().find(username);
+        } catch (IOException e) {
+            System.out.println("❌ Index Error: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static UserShard shard(int id) {
+        return openShards.computeIfAbsent(id, k -> {
+            UserShard shard = new UserShard(DATA_DIR, "user_" + k);
+            shard.setReadOnly(writeLock == null);
+            return shard;
+        });
+    }
+
+    /**
+     * Opens the username index on first use, migrating older formats if needed.
+     */
+    private static UserIndex index() throws IOException {
+        if (index != null) return index;
+        index = new UserIndex(DATA_DIR);
+        index.open();
+
+        // Older formats are only removed once fully migrated, so an interrupted migration resumes here
+        boolean oldFormat = DIRECTORY_FILE.exists() || new File(LEGACY_FILE).exists() || !listLegacySegments().isEmpty();
+        if (oldFormat && writeLock == null) {
+            System.out.println("⚠️ Data of an older version found; it is migrated by the process that holds the data folder.");
+        } else if (DIRECTORY_FILE.exists()) {
+            migrateDirectory();
+        } else if (new File(LEGACY_FILE).exists() || !listLegacySegments().isEmpty()) {
+            migrateLegacyDatabase();
+        } else if (index.size() == 0) {
+            System.out.println("ℹ️ No save file found. Creating a new database.");
+        }
+        return index;
+    }
+
+    /**
+     * Moves the usernames of the first sharded format ({@code users.dir}) into the index.
+     * The shards themselves keep their numbers and file names.
+     */
+    private static void migrateDirectory() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(DIRECTORY_FILE)))) {
+            in.readInt(); // Version
+            in.readInt(); // Next shard (recomputed by the index)
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String username = in.readUTF();
+                int shard = in.readInt();
+                if (index.find(username) == null) index.add(username, shard);
+            }
+        }
+        DIRECTORY_FILE.delete();
+    }
+
+    // --- MIGRATION FROM THE SINGLE-FILE DATABASE ---
+
+    /**
+     * Splits an old {@code mygarage_data.dat} (plus its journal) into one shard per user.
+     * The old file is kept as {@code mygarage_data.dat.migrated} as a backup.
+     */
+    private static void migrateLegacyDatabase() {
         ArrayList<User> users = new ArrayList<>();
-        File file = new File(FILE_NAME);
-
-        // Check if the save file exists before trying to read
-        if (file.exists()) {
-            try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
-                // Read the object and cast it back to ArrayList<User>
-                users = (ArrayList<User>) ois.readObject();
-                System.out.println("✅ Data loaded successfully.");
+        long lastSegment = 0;
+        File legacy = new File(LEGACY_FILE);
+
+        if (legacy.exists()) {
+            try (LegacyReader reader = new LegacyReader(new BufferedInputStream(new FileInputStream(legacy)))) {
+                users = GarageCodec.fromLegacy(reader.readUsers());
+                lastSegment = reader.readJournalPosition();
             } catch (IOException | ClassNotFoundException e) {
+                // Leave the old file untouched so nothing is lost
                 System.out.println("❌ Load Error or Corrupted File: " + e.getMessage());
+                return;
             }
-        } else {
-            System.out.println("ℹ️ No save file found. Creating a new database.");
         }
-        return users;
+
+        ArrayList<User> all = users;
+        Map<String, User> byName = new HashMap<>();
+        for (User u : all) byName.put(u.getUsername(), u);
+        for (Map.Entry<Long, File> segment : listLegacySegments().entrySet()) {
+            if (segment.getKey() <= lastSegment) continue;
+            UserShard.readSegment(segment.getValue(), entry -> entry.apply(all, byName));
+        }
+
+        try {
+            for (User u : all) {
+                if (index.find(u.getUsername()) != null) continue; // Already migrated
+                shard(index.add(u.getUsername())).save(u);
+            }
+            if (legacy.exists()) Files.move(legacy.toPath(), Paths.get(LEGACY_FILE + ".migrated"), StandardCopyOption.REPLACE_EXISTING);
+            for (File f : listLegacySegments().values()) f.delete();
+            System.out.println("✅ Migrated " + all.size() + " users to " + DATA_DIR);
+        } catch (IOException e) {
+            System.out.println("❌ Migration Error: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private static TreeMap<Long, File> listLegacySegments() {
+        TreeMap<Long, File> segments = new TreeMap<>();
+        File[] files = new File(".").listFiles((dir, name) -> name.startsWith(LEGACY_JOURNAL_PREFIX));
+        if (files == null) return segments;
+        for (File f : files) {
+            try {
+                segments.put(Long.parseLong(f.getName().substring(LEGACY_JOURNAL_PREFIX.length())), f);
+            } catch (NumberFormatException ignored) {}
+        }
+        return segments;
     }
-}
\ No newline at end of file
+}
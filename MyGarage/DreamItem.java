@@ -1,13 +1,12 @@
 package MyGarage;
 
-import java.io.Serializable;
 import java.time.LocalDate;
 
 /**
  * Represents a specific item or modification in the user's wishlist (Dream Spec).
  * This class stores details about the planned modification, including cost, currency, and status.
  */
-public class DreamItem implements Serializable {
+public class DreamItem {
     
     // Enumeration for predefined modification categories.
     // This helps in organizing and filtering modifications.
@@ -19,9 +18,10 @@ public class DreamItem implements Serializable {
     private DreamCategory category;
     private String description;
     private double estimatedCost;
-    private String currency; // Stores currency type (e.g., "TL", "USD", "EUR")
+    private int currency; // Currency type (e.g., "TL", "USD", "EUR") as a SymbolTable id
     private LocalDate plannedDate;
     private boolean isDone; // Tracks if the modification has been completed
+    private long id;        // Stable id of the item (see IdGenerator), 0 until it is added to a vehicle if unknown
 
     /**
      * Constructor to initialize a new DreamItem.
@@ -33,6 +33,15 @@ public class DreamItem implements Serializable {
      * @param plannedDate The target date for the modification.
      */
     public DreamItem(DreamCategory category, String description, double estimatedCost, String currency, LocalDate plannedDate) {
+        this(category, description, estimatedCost, SymbolTable.id(currency), plannedDate, IdGenerator.next());
+    }
+
+    /**
+     * Recreates a stored item with its currency as a SymbolTable id (used by {@link GarageCodec}).
+     * @param id Stable id of the item, 0 if it was saved before items had ids.
+     */
+    DreamItem(DreamCategory category, String description, double estimatedCost, int currency, LocalDate plannedDate, long id) {
+        this.id = id;
         this.category = category;
         this.description = description;
         this.estimatedCost = estimatedCost;
@@ -49,7 +58,9 @@ public class DreamItem implements Serializable {
     
     public double getEstimatedCost() { return estimatedCost; }
     
-    public String getCurrency() { return currency; } 
+    public String getCurrency() { return SymbolTable.name(currency); } 
+
+    int getCurrencyId() { return currency; }
     
     public LocalDate getPlannedDate() { return plannedDate; }
     
@@ -58,4 +69,11 @@ public class DreamItem implements Serializable {
     
     // Updates the completion status when the user checks/unchecks the box
     public void setDone(boolean done) { isDone = done; }
+
+    public long getId() { return id; }
+
+    /**
+     * Replaces the id of an item that is not stored yet (used when reading the journal and older files).
+     */
+    void setId(long id) { this.id = id; }
 }
\ No newline at end of file
@@ -1,14 +1,16 @@
 package MyGarage;
 
-import java.io.Serializable;
 import java.time.LocalDate;
 
 /**
  * Represents a financial expense related to a vehicle.
  * This class stores details such as cost, category, currency, and date.
  * It is used to generate expense reports and charts.
+ *
+ * Expenses stored in a vehicle live in its {@link ExpenseLog}; the objects returned by
+ * {@link Vehicle#getExpenses()} are flyweights that only point at a row of that log.
  */
-public class Expense implements Serializable {
+public class Expense {
     
     // Enumeration defining standard categories for expenses.
     // This allows for consistent grouping in statistics and charts.
@@ -18,9 +20,14 @@ public class Expense implements Serializable {
 
     private ExpenseCategory category;
     private double amount;
-    private String currency; // Currency code (e.g., "TL", "USD", "EUR")
+    private int currency; // Currency code (e.g., "TL", "USD", "EUR") as a SymbolTable id
     private String description;
     private LocalDate date;
+    private long id; // Stable id of the record (see IdGenerator), 0 until it is added to a vehicle if unknown
+
+    // Set for flyweights: the values are read from this row of the log instead
+    private final ExpenseLog log;
+    private final int row;
 
     /**
      * Constructor to create a new Expense record.
@@ -31,22 +38,47 @@ public class Expense implements Serializable {
      * @param date        The date when the expense occurred.
      */
     public Expense(ExpenseCategory category, double amount, String currency, String description, LocalDate date) {
+        this(category, amount, currency, description, date, IdGenerator.next());
+    }
+
+    /**
+     * Recreates a stored expense with its id.
+     */
+    Expense(ExpenseCategory category, double amount, String currency, String description, LocalDate date, long id) {
         this.category = category;
         this.amount = amount;
-        this.currency = currency;
+        this.currency = SymbolTable.id(currency);
         this.description = description;
         this.date = date;
+        this.id = id;
+        this.log = null;
+        this.row = -1;
+    }
+
+    /**
+     * Flyweight view of one row of an expense log.
+     */
+    Expense(ExpenseLog log, int row) {
+        this.log = log;
+        this.row = row;
     }
     
     // --- GETTERS ---
 
-    public ExpenseCategory getCategory() { return category; }
+    public ExpenseCategory getCategory() { return log != null ? log.category(row) : category; }
     
-    public double getAmount() { return amount; }
+    public double getAmount() { return log != null ? log.amount(row) : amount; }
     
-    public String getCurrency() { return currency; } 
+    public String getCurrency() { return log != null ? log.currency(row) : SymbolTable.name(currency); } 
     
-    public String getDescription() { return description; }
+    public String getDescription() { return log != null ? log.description(row) : description; }
     
-    public LocalDate getDate() { return date; }
+    public LocalDate getDate() { return log != null ? log.date(row) : date; }
+
+    public long getId() { return log != null ? log.id(row) : id; }
+
+    /**
+     * Replaces the id of a record that is not stored yet (used when reading the journal and older files).
+     */
+    void setId(long id) { this.id = id; }
 }
\ No newline at end of file
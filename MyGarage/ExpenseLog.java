@@ -0,0 +1,307 @@
+package MyGarage;
+
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.IntFunction;
+
+/**
+ * Column-oriented storage for the expenses of one vehicle.
+ * Instead of one {@link Expense} object per row (with a boxed date, two strings and an enum
+ * reference), every field lives in its own primitive array:
+ *
+ * - category:    byte ordinal (-1 = none)
+ * - amount:      double
+ * - date:        int epoch day ({@link #NO_DATE} = none)
+ * - currency:    short id into a small table of the vehicle's currencies (0 = none), which
+ *                holds their {@link SymbolTable} ids
+ * - description: int id into a description pool, each distinct text is stored once (0 = none)
+ * - id:          long, the stable id of the record (see {@link Vehicle#findExpense(long)})
+ *
+ * A row costs about 27 bytes plus its share of the description pool. Code that works with
+ * {@link Expense} objects uses {@link #view()}, which hands out lightweight flyweights that
+ * read straight from the columns.
+ *
+ * Totals per category and per currency are updated on every add, so charts and stat cards
+ * read them without scanning the rows. Date-range totals come from a monthly
+ * {@link ExpenseRollup}.
+ */
+class ExpenseLog {
+
+    static final int NO_DATE = Integer.MIN_VALUE;
+
+    private static final Expense.ExpenseCategory[] CATEGORIES = Expense.ExpenseCategory.values();
+
+    private int size;
+    private byte[] categories = new byte[0];
+    private double[] amounts = new double[0];
+    private int[] dates = new int[0];
+    private short[] currencies = new short[0];
+    private int[] descriptions = new int[0];
+    private long[] ids = new long[0];
+    private HashMap<Long, Integer> rowsById; // Built on the first lookup by id, then kept up to date
+
+    // Id -> symbol and id -> string tables (index 0 stays null), and the reverse lookup of the pool
+    private int[] currencySymbols = new int[4];
+    private int currencyCount = 1;
+    private String[] descriptionPool = new String[8];
+    private int descriptionCount = 1;
+    private final HashMap<String, Integer> descriptionIds = new HashMap<>();
+
+    private final List<Expense> view = new View();
+
+    // Running totals, indexed by category ordinal and by currency id
+    private double[] categoryTotals = new double[CATEGORIES.length];
+    private double[] currencyTotals = new double[1];
+    private ExpenseRollup rollup = new ExpenseRollup(this);
+    private ConvertedTotals converted; // Per category in every currency with rates (built on first use)
+
+    // --- WRITING ---
+
+    /**
+     * Appends a row. Rows are never changed or removed afterwards.
+     * @return The row number.
+     */
+    int add(Expense.ExpenseCategory category, double amount, String currency, String description, LocalDate date, long id) {
+        return add(category == null ? -1 : category.ordinal(), amount, SymbolTable.id(currency), description,
+                date == null ? NO_DATE : (int) date.toEpochDay(), id);
+    }
+
+    /**
+     * Appends a row from already encoded values (used by {@link GarageCodec}, no objects are created).
+     * @param currencySymbol The currency as a SymbolTable id (0 = none).
+     * @param id             Stable id of the record, or 0 for rows saved before records had ids:
+     *                       they are numbered by their position (row + 1), which never changes.
+     */
+    int add(int categoryOrdinal, double amount, int currencySymbol, String description, int epochDay, long id) {
+        ensureCapacity(size + 1);
+        categories[size] = (byte) categoryOrdinal;
+        amounts[size] = amount;
+        dates[size] = epochDay;
+        currencies[size] = currencySlot(currencySymbol);
+        descriptions[size] = descriptionId(description);
+        ids[size] = id != 0 ? id : size + 1;
+        IdGenerator.observe(id);
+        if (rowsById != null) rowsById.putIfAbsent(ids[size], size);
+        addToTotals(size);
+        size++;
+        rollup.add(size - 1);
+        if (converted != null) convert(converted, size - 1);
+        return size - 1;
+    }
+
+    int add(Expense e) {
+        return add(e.getCategory(), e.getAmount(), e.getCurrency(), e.getDescription(), e.getDate(), e.getId());
+    }
+
+    /**
+     * Grows the columns once when the number of rows is known in advance (e.g. while loading).
+     */
+    void ensureCapacity(int rows) {
+        if (rows <= categories.length) return;
+        int capacity = Math.max(rows, Math.max(8, categories.length + (categories.length >> 1)));
+        categories = Arrays.copyOf(categories, capacity);
+        amounts = Arrays.copyOf(amounts, capacity);
+        dates = Arrays.copyOf(dates, capacity);
+        currencies = Arrays.copyOf(currencies, capacity);
+        descriptions = Arrays.copyOf(descriptions, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+    }
+
+    private short currencySlot(int symbol) {
+        if (symbol == SymbolTable.NONE) return 0;
+        for (int id = 1; id < currencyCount; id++) { // Only a handful of currencies per vehicle
+            if (currencySymbols[id] == symbol) return (short) id;
+        }
+        if (currencyCount > Short.MAX_VALUE) throw new IllegalStateException("Too many currencies");
+        if (currencyCount == currencySymbols.length) currencySymbols = Arrays.copyOf(currencySymbols, currencyCount * 2);
+        currencySymbols[currencyCount++] = symbol;
+        currencyTotals = Arrays.copyOf(currencyTotals, currencyCount);
+        return (short) (currencyCount - 1);
+    }
+
+    private int descriptionId(String description) {
+        if (description == null) return 0;
+        Integer id = descriptionIds.get(description);
+        if (id == null) {
+            if (descriptionCount == descriptionPool.length) descriptionPool = Arrays.copyOf(descriptionPool, descriptionCount * 2);
+            id = descriptionCount++;
+            descriptionPool[id] = description;
+            descriptionIds.put(description, id);
+        }
+        return id;
+    }
+
+    // --- READING ---
+
+    int size() { return size; }
+
+    Expense.ExpenseCategory category(int row) {
+        byte ordinal = categories[check(row)];
+        return ordinal < 0 ? null : CATEGORIES[ordinal];
+    }
+
+    int categoryOrdinal(int row) { return categories[check(row)]; }
+
+    double amount(int row) { return amounts[check(row)]; }
+
+    int epochDay(int row) { return dates[check(row)]; }
+
+    LocalDate date(int row) {
+        int day = dates[check(row)];
+        return day == NO_DATE ? null : LocalDate.ofEpochDay(day);
+    }
+
+    String currency(int row) { return SymbolTable.name(currencySymbols[currencies[check(row)]]); }
+
+    int currencyId(int row) { return currencies[check(row)]; }
+
+    int currencySymbol(int row) { return currencySymbols[currencies[check(row)]]; }
+
+    String currencyName(int id) { return SymbolTable.name(currencySymbols[id]); }
+
+    String description(int row) { return descriptionPool[descriptions[check(row)]]; }
+
+    long id(int row) { return ids[check(row)]; }
+
+    /**
+     * @return The row of the record with this id, or -1. If older data repeats an id, the first row keeps it.
+     */
+    int row(long id) {
+        if (rowsById == null) {
+            rowsById = new HashMap<>(size * 2);
+            for (int row = 0; row < size; row++) rowsById.putIfAbsent(ids[row], row);
+        }
+        Integer row = rowsById.get(id);
+        return row == null ? -1 : row;
+    }
+
+    private int check(int row) {
+        if (row < 0 || row >= size) throw new IndexOutOfBoundsException("Row " + row + ", size " + size);
+        return row;
+    }
+
+    // --- TOTALS ---
+
+    private void addToTotals(int row) {
+        if (categories[row] >= 0) categoryTotals[categories[row]] += amounts[row];
+        currencyTotals[currencies[row]] += amounts[row];
+    }
+
+    /**
+     * @return Sum of the amounts in a category (all currencies added together, like the pie chart).
+     */
+    double categoryTotal(Expense.ExpenseCategory category) {
+        return categoryTotals[category.ordinal()];
+    }
+
+    /**
+     * @return Sum of the amounts per currency, in the order the currencies first appeared.
+     */
+    Map<String, Double> currencyTotals() {
+        Map<String, Double> totals = new LinkedHashMap<>();
+        for (int id = 0; id < currencyCount; id++) {
+            boolean used = id > 0 || currencyTotals[0] != 0; // The null slot only if a row uses it
+            if (used) totals.put(SymbolTable.name(currencySymbols[id]), currencyTotals[id]);
+        }
+        return totals;
+    }
+
+    /**
+     * Recomputes the totals from the rows and replaces the running ones if they differ.
+     * @return True if the running totals were correct.
+     */
+    boolean rebuildTotals() {
+        double[] oldCategories = categoryTotals;
+        double[] oldCurrencies = currencyTotals;
+        categoryTotals = new double[CATEGORIES.length];
+        currencyTotals = new double[currencyCount];
+        rollup = new ExpenseRollup(this);
+        converted = null;
+        for (int row = 0; row < size; row++) {
+            addToTotals(row);
+            rollup.add(row);
+        }
+        return Arrays.equals(oldCategories, categoryTotals) && Arrays.equals(oldCurrencies, currencyTotals);
+    }
+
+    /**
+     * Totals per category converted into every currency of the rate table, each expense at the
+     * rate of its own date. Built in one pass over the rows the first time (or when the rates
+     * were reloaded), then kept up to date by {@link #add}.
+     * Slot {@code CATEGORIES.length} holds the expenses without a category.
+     */
+    ConvertedTotals converted(CurrencyRates rates) {
+        if (converted == null || converted.rates != rates) {
+            ConvertedTotals totals = new ConvertedTotals(rates, CATEGORIES.length + 1);
+            for (int row = 0; row < size; row++) convert(totals, row);
+            converted = totals;
+        }
+        return converted;
+    }
+
+    private void convert(ConvertedTotals totals, int row) {
+        int slot = categories[row] < 0 ? CATEGORIES.length : categories[row];
+        int day = dates[row] == NO_DATE ? Integer.MAX_VALUE : dates[row];
+        totals.add(SymbolTable.name(currencySymbols[currencies[row]]), day, slot, amounts[row]);
+    }
+
+    /**
+     * Sums the expenses between two dates (both inclusive) per currency and category.
+     * @return Totals indexed by [currency id][category slot], see {@link ExpenseRollup}.
+     */
+    double[][] totalsBetween(LocalDate from, LocalDate to) {
+        return rollup.totals((int) from.toEpochDay(), (int) to.toEpochDay());
+    }
+
+    /**
+     * @return The first and last expense date, or null if no expense has a date.
+     */
+    LocalDate[] dateRange() { return rollup.dateRange(); }
+
+    /**
+     * Freezes the rows as they are now, for reading on another thread while rows are still
+     * appended here (the table filter and sort, see {@link VirtualRowList}). Costs nothing: the
+     * columns and tables are only ever replaced by grown copies and a row is never written again,
+     * so the current arrays keep holding the current rows. Call on the thread that appends and
+     * hand the result over through an executor.
+     * @return Creates a standalone Expense for a row below the current size.
+     */
+    IntFunction<Expense> snapshot() {
+        int rows = size;
+        byte[] categories = this.categories;
+        double[] amounts = this.amounts;
+        int[] dates = this.dates;
+        short[] currencies = this.currencies;
+        int[] descriptions = this.descriptions;
+        long[] ids = this.ids;
+        int[] currencySymbols = this.currencySymbols;
+        String[] descriptionPool = this.descriptionPool;
+        return row -> {
+            Objects.checkIndex(row, rows);
+            byte category = categories[row];
+            return new Expense(category < 0 ? null : CATEGORIES[category], amounts[row],
+                    SymbolTable.name(currencySymbols[currencies[row]]), descriptionPool[descriptions[row]],
+                    dates[row] == NO_DATE ? null : LocalDate.ofEpochDay(dates[row]), ids[row]);
+        };
+    }
+
+    /**
+     * @return A read-only list of flyweight {@link Expense} objects backed by the columns.
+     */
+    List<Expense> view() { return view; }
+
+    private class View extends AbstractList<Expense> implements RandomAccess {
+        @Override
+        public Expense get(int index) { return new Expense(ExpenseLog.this, check(index)); }
+
+        @Override
+        public int size() { return size; }
+    }
+}
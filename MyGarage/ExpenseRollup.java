@@ -0,0 +1,169 @@
+package MyGarage;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Monthly rollup of an {@link ExpenseLog}, used for trend charts and date-range totals.
+ * Every month that has expenses gets a bucket holding the sum per (currency, category) and the
+ * row numbers of its expenses. Prefix sums over the buckets (rebuilt lazily after changes) answer
+ * "total between two dates" by subtracting two prefix rows for the whole months in the range and
+ * scanning only the rows of the partial months at both ends.
+ *
+ * Rows without a date are not part of the rollup.
+ */
+class ExpenseRollup {
+
+    // One slot per category plus a last one for rows without a category
+    static final int CATEGORY_SLOTS = Expense.ExpenseCategory.values().length + 1;
+    static final int NO_CATEGORY = CATEGORY_SLOTS - 1;
+
+    private final ExpenseLog log;
+    private final TreeMap<Integer, Bucket> buckets = new TreeMap<>(); // month number -> bucket
+    private int currencyCount = 1;
+
+    // Prefix sums in month order: prefix[i] = sum of all buckets before index i
+    private int[] months;
+    private double[][] prefix;
+    private boolean dirty = true;
+
+    private static class Bucket {
+        double[] sums = new double[0]; // [currency * CATEGORY_SLOTS + category]
+        int[] rows = new int[4];
+        int rowCount;
+    }
+
+    ExpenseRollup(ExpenseLog log) {
+        this.log = log;
+    }
+
+    /**
+     * Adds one row of the log to its month.
+     */
+    void add(int row) {
+        int day = log.epochDay(row);
+        if (day == ExpenseLog.NO_DATE) return;
+
+        Bucket bucket = buckets.computeIfAbsent(month(day), k -> new Bucket());
+        currencyCount = Math.max(currencyCount, log.currencyId(row) + 1);
+        int cell = cell(log.currencyId(row), log.categoryOrdinal(row));
+        if (cell >= bucket.sums.length) {
+            bucket.sums = Arrays.copyOf(bucket.sums, currencyCount * CATEGORY_SLOTS);
+        }
+        bucket.sums[cell] += log.amount(row);
+
+        if (bucket.rowCount == bucket.rows.length) bucket.rows = Arrays.copyOf(bucket.rows, bucket.rowCount * 2);
+        bucket.rows[bucket.rowCount++] = row;
+        dirty = true;
+    }
+
+    /**
+     * Sums the expenses between two dates (both inclusive).
+     * @return Totals indexed by [currency id][category slot].
+     */
+    double[][] totals(int fromDay, int toDay) {
+        double[][] result = new double[currencyCount][CATEGORY_SLOTS];
+        if (fromDay > toDay || buckets.isEmpty()) return result;
+
+        int fromMonth = month(fromDay);
+        int toMonth = month(toDay);
+        if (fromMonth == toMonth) {
+            scan(buckets.get(fromMonth), fromDay, toDay, result);
+            return result;
+        }
+
+        // Partial months at both ends are scanned row by row
+        int firstFull = fromMonth;
+        if (fromDay != firstDay(fromMonth)) {
+            scan(buckets.get(fromMonth), fromDay, toDay, result);
+            firstFull++;
+        }
+        int lastFull = toMonth;
+        if (toDay != firstDay(toMonth + 1) - 1) {
+            scan(buckets.get(toMonth), fromDay, toDay, result);
+            lastFull--;
+        }
+
+        // Whole months in between come from the prefix sums
+        if (firstFull <= lastFull) {
+            rebuildPrefix();
+            double[] upper = prefix[indexOf(lastFull + 1)];
+            double[] lower = prefix[indexOf(firstFull)];
+            for (int cell = 0; cell < upper.length; cell++) {
+                double sum = upper[cell] - (cell < lower.length ? lower[cell] : 0);
+                if (sum != 0) result[cell / CATEGORY_SLOTS][cell % CATEGORY_SLOTS] += sum;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return The first and last date that has expenses, or null if there are none.
+     */
+    LocalDate[] dateRange() {
+        if (buckets.isEmpty()) return null;
+        int first = Integer.MAX_VALUE, last = Integer.MIN_VALUE;
+        for (Bucket b : new Bucket[] { buckets.firstEntry().getValue(), buckets.lastEntry().getValue() }) {
+            for (int i = 0; i < b.rowCount; i++) {
+                int day = log.epochDay(b.rows[i]);
+                first = Math.min(first, day);
+                last = Math.max(last, day);
+            }
+        }
+        return new LocalDate[] { LocalDate.ofEpochDay(first), LocalDate.ofEpochDay(last) };
+    }
+
+    private void scan(Bucket bucket, int fromDay, int toDay, double[][] result) {
+        if (bucket == null) return;
+        for (int i = 0; i < bucket.rowCount; i++) {
+            int row = bucket.rows[i];
+            int day = log.epochDay(row);
+            if (day < fromDay || day > toDay) continue;
+            int category = log.categoryOrdinal(row);
+            result[log.currencyId(row)][category < 0 ? NO_CATEGORY : category] += log.amount(row);
+        }
+    }
+
+    private void rebuildPrefix() {
+        if (!dirty) return;
+        int width = currencyCount * CATEGORY_SLOTS;
+        months = new int[buckets.size()];
+        prefix = new double[buckets.size() + 1][];
+        prefix[0] = new double[width];
+        int i = 0;
+        for (Map.Entry<Integer, Bucket> entry : buckets.entrySet()) {
+            months[i] = entry.getKey();
+            double[] next = prefix[i].clone();
+            double[] sums = entry.getValue().sums;
+            for (int cell = 0; cell < sums.length; cell++) next[cell] += sums[cell];
+            prefix[++i] = next;
+        }
+        dirty = false;
+    }
+
+    /**
+     * @return Index of the first bucket whose month is at or after the given month.
+     */
+    private int indexOf(int month) {
+        int found = Arrays.binarySearch(months, month);
+        return found >= 0 ? found : -found - 1;
+    }
+
+    private static int cell(int currencyId, int categoryOrdinal) {
+        return currencyId * CATEGORY_SLOTS + (categoryOrdinal < 0 ? NO_CATEGORY : categoryOrdinal);
+    }
+
+    // --- MONTH NUMBERS (months since year 0) ---
+
+    static int month(int epochDay) {
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        return date.getYear() * 12 + date.getMonthValue() - 1;
+    }
+
+    static int firstDay(int month) {
+        return (int) YearMonth.of(Math.floorDiv(month, 12), Math.floorMod(month, 12) + 1).atDay(1).toEpochDay();
+    }
+}
@@ -0,0 +1,311 @@
+package MyGarage;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reports over every vehicle of every user, e.g. for a club or a fleet:
+ * spend per category per brand, median running cost per km by generation, most visited tracks.
+ *
+ * Vehicles are split over the cores with a parallel stream. Every worker fills its own
+ * {@link Totals} and the partial results are merged pairwise at the end, so the workers never
+ * share a map or take a lock; the result is the same as a sequential run.
+ */
+class FleetAnalytics {
+
+    private static final Expense.ExpenseCategory[] CATEGORIES = Expense.ExpenseCategory.values();
+
+    /**
+     * Analyzes the vehicles of all given users, in parallel.
+     */
+    static Totals analyze(List<User> users) {
+        return analyze(users, true);
+    }
+
+    static Totals analyze(List<User> users, boolean parallel) {
+        // One flat list splits evenly, even when a few users own most of the vehicles
+        List<Vehicle> vehicles = new ArrayList<>();
+        for (User u : users) vehicles.addAll(u.getGarage());
+        Totals totals = (parallel ? vehicles.parallelStream() : vehicles.stream())
+                .collect(Totals::new, Totals::add, Totals::merge);
+        totals.users = users.size();
+        return totals;
+    }
+
+    /**
+     * Mergeable accumulator of the fleet figures. Names (brands, tracks) are grouped ignoring
+     * case and punctuation; the first spelling seen is shown.
+     */
+    static class Totals {
+        int users;
+        int vehicles;
+        long expenses;
+        long trackSessions;
+
+        private final Map<String, BrandSpend> brands = new HashMap<>();
+        private final Map<String, GenerationCosts> generations = new HashMap<>();
+        private final Map<String, TrackVisits> tracks = new HashMap<>();
+
+        /**
+         * Adds one vehicle.
+         */
+        void add(Vehicle v) {
+            vehicles++;
+
+            // Spend: straight from the expense columns, no Expense objects
+            ExpenseLog log = v.getExpenseLog();
+            BrandSpend brand = brands.computeIfAbsent(key(v.getBrand()), k -> new BrandSpend(v.getBrand()));
+            brand.vehicles++;
+            for (int row = 0; row < log.size(); row++) {
+                int category = log.categoryOrdinal(row);
+                if (category < 0) continue;
+                String currency = log.currency(row);
+                brand.byCurrency.computeIfAbsent(currency == null ? "" : currency, k -> new double[CATEGORIES.length])[category] += log.amount(row);
+            }
+            expenses += log.size();
+
+            // Running cost per km: one sample per vehicle and currency
+            Map<String, Double> costPerKm = v.getRunningCostPerKm();
+            if (!costPerKm.isEmpty()) {
+                GenerationCosts generation = generations.computeIfAbsent(key(v.getBrand()) + "|" + key(v.getGeneration()),
+                        k -> new GenerationCosts(v.getBrand(), v.getGeneration()));
+                costPerKm.forEach((currency, cost) -> generation.samples.computeIfAbsent(currency, k -> new Samples()).add(cost));
+            }
+
+            // Track visits
+            Map<String, TrackVisits> visited = new HashMap<>();
+            Map<Integer, TrackVisits> bySymbol = new HashMap<>(); // The key text is built once per track name
+            for (TrackSession s : v.getTrackLog()) {
+                TrackVisits track = bySymbol.get(s.trackId());
+                if (track == null) {
+                    track = visited.computeIfAbsent(key(s.getTrackName()), k -> new TrackVisits(s.getTrackName()));
+                    bySymbol.put(s.trackId(), track);
+                }
+                track.sessions++;
+                if (s.hasValidLapTime() && (track.bestLapMillis == LapTime.INVALID || s.getLapTimeMillis() < track.bestLapMillis)) {
+                    track.bestLapMillis = s.getLapTimeMillis();
+                }
+            }
+            trackSessions += v.getTrackLog().size();
+            for (Map.Entry<String, TrackVisits> t : visited.entrySet()) {
+                t.getValue().vehicles = 1;
+                tracks.merge(t.getKey(), t.getValue(), TrackVisits::merge);
+            }
+        }
+
+        /**
+         * Adds the figures of another (disjoint) set of vehicles.
+         */
+        void merge(Totals other) {
+            users += other.users;
+            vehicles += other.vehicles;
+            expenses += other.expenses;
+            trackSessions += other.trackSessions;
+            other.brands.forEach((k, b) -> brands.merge(k, b, BrandSpend::merge));
+            other.generations.forEach((k, g) -> generations.merge(k, g, GenerationCosts::merge));
+            other.tracks.forEach((k, t) -> tracks.merge(k, t, TrackVisits::merge));
+        }
+
+        // --- REPORTS ---
+
+        /**
+         * Spend per brand, currency and category, biggest first within a brand.
+         */
+        Table spendByBrand() {
+            Table table = new Table("fleet_spend_by_brand", "brand", "vehicles", "currency", "category", "total");
+            List<BrandSpend> sorted = new ArrayList<>(brands.values());
+            sorted.sort(Comparator.comparing(b -> b.name.toLowerCase()));
+            for (BrandSpend b : sorted) {
+                List<Object[]> rows = new ArrayList<>();
+                b.byCurrency.forEach((currency, totals) -> {
+                    for (Expense.ExpenseCategory cat : CATEGORIES) {
+                        if (totals[cat.ordinal()] != 0) rows.add(new Object[] { b.name, b.vehicles, currency, cat.name(), round(totals[cat.ordinal()], 2) });
+                    }
+                });
+                rows.sort(Comparator.comparing((Object[] r) -> (String) r[2]).thenComparing(r -> -(double) r[4])); // Currency, then biggest
+                table.rows.addAll(rows);
+            }
+            return table;
+        }
+
+        /**
+         * Median fuel + maintenance cost per km of the vehicles of each brand and generation.
+         */
+        Table costPerKmByGeneration() {
+            Table table = new Table("fleet_cost_per_km_by_generation", "brand", "generation", "currency", "vehicles", "median_per_km", "min_per_km", "max_per_km");
+            List<GenerationCosts> sorted = new ArrayList<>(generations.values());
+            sorted.sort(Comparator.comparing((GenerationCosts g) -> g.brand.toLowerCase()).thenComparing(g -> g.generation.toLowerCase()));
+            for (GenerationCosts g : sorted) {
+                g.samples.forEach((currency, samples) -> {
+                    double[] values = samples.sorted();
+                    table.rows.add(new Object[] { g.brand, g.generation, currency, values.length,
+                            round(median(values), 4), round(values[0], 4), round(values[values.length - 1], 4) });
+                });
+            }
+            return table;
+        }
+
+        /**
+         * Tracks by number of sessions, most visited first.
+         * @param limit Maximum number of tracks.
+         */
+        Table topTracks(int limit) {
+            Table table = new Table("fleet_tracks", "track", "sessions", "vehicles", "best_lap");
+            List<TrackVisits> sorted = new ArrayList<>(tracks.values());
+            sorted.sort(Comparator.comparingLong((TrackVisits t) -> -t.sessions).thenComparing(t -> t.name.toLowerCase()));
+            for (TrackVisits t : sorted.subList(0, Math.min(limit, sorted.size()))) {
+                table.rows.add(new Object[] { t.name, t.sessions, t.vehicles, t.bestLapMillis == LapTime.INVALID ? "" : LapTime.format(t.bestLapMillis) });
+            }
+            return table;
+        }
+    }
+
+    // --- GROUPS ---
+
+    private static class BrandSpend {
+        final String name;
+        int vehicles;
+        final Map<String, double[]> byCurrency = new TreeMap<>(); // currency -> total per category
+
+        BrandSpend(String name) { this.name = name; }
+
+        BrandSpend merge(BrandSpend other) {
+            vehicles += other.vehicles;
+            other.byCurrency.forEach((currency, totals) -> {
+                double[] mine = byCurrency.computeIfAbsent(currency, k -> new double[CATEGORIES.length]);
+                for (int i = 0; i < mine.length; i++) mine[i] += totals[i];
+            });
+            return this;
+        }
+    }
+
+    private static class GenerationCosts {
+        final String brand, generation;
+        final Map<String, Samples> samples = new TreeMap<>(); // currency -> cost per km of each vehicle
+
+        GenerationCosts(String brand, String generation) {
+            this.brand = brand;
+            this.generation = generation;
+        }
+
+        GenerationCosts merge(GenerationCosts other) {
+            other.samples.forEach((currency, s) -> samples.merge(currency, s, Samples::merge));
+            return this;
+        }
+    }
+
+    private static class TrackVisits {
+        final String name;
+        long sessions;
+        int vehicles;
+        int bestLapMillis = LapTime.INVALID;
+
+        TrackVisits(String name) { this.name = name; }
+
+        TrackVisits merge(TrackVisits other) {
+            sessions += other.sessions;
+            vehicles += other.vehicles;
+            if (other.bestLapMillis != LapTime.INVALID && (bestLapMillis == LapTime.INVALID || other.bestLapMillis < bestLapMillis)) {
+                bestLapMillis = other.bestLapMillis;
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Growable list of doubles (a median needs every value, not just a sum).
+     */
+    private static class Samples {
+        double[] values = new double[8];
+        int size;
+
+        void add(double value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        Samples merge(Samples other) {
+            if (size + other.size > values.length) values = Arrays.copyOf(values, Math.max(values.length * 2, size + other.size));
+            System.arraycopy(other.values, 0, values, size, other.size);
+            size += other.size;
+            return this;
+        }
+
+        double[] sorted() {
+            double[] copy = Arrays.copyOf(values, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+
+    private static double median(double[] sorted) {
+        int mid = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[mid] : (sorted[mid - 1] + sorted[mid]) / 2;
+    }
+
+    private static double round(double value, int decimals) {
+        double scale = Math.pow(10, decimals);
+        return Math.round(value * scale) / scale;
+    }
+
+    /**
+     * Grouping key: "BMW", "bmw" and " B.M.W " are the same brand.
+     */
+    private static String key(String name) {
+        if (name == null) return "";
+        StringBuilder key = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isLetterOrDigit(c)) key.append(Character.toLowerCase(c));
+        }
+        return key.toString();
+    }
+
+    // --- OUTPUT ---
+
+    /**
+     * One report: a name, column names and rows.
+     */
+    static class Table {
+        final String name;
+        final String[] columns;
+        final List<Object[]> rows = new ArrayList<>();
+
+        Table(String name, String... columns) {
+            this.name = name;
+            this.columns = columns;
+        }
+
+        /**
+         * Writes the table as CSV (comma separated, UTF-8), in the same style as {@link CsvTransfer}.
+         */
+        void writeCsv(Path csv) throws IOException {
+            StringBuilder line = new StringBuilder(128);
+            try (BufferedWriter out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(csv), StandardCharsets.UTF_8))) {
+                out.write(String.join(",", columns));
+                out.newLine();
+                for (Object[] row : rows) {
+                    line.setLength(0);
+                    for (int i = 0; i < row.length; i++) {
+                        if (i > 0) line.append(',');
+                        // Plain digits: fleet totals easily pass the point where Double.toString switches to 1.0E7
+                        CsvTransfer.cell(line, row[i] instanceof Double ? BigDecimal.valueOf((Double) row[i]).toPlainString() : row[i]);
+                    }
+                    out.append(line).append(System.lineSeparator());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,563 @@
+package MyGarage;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.TreeMap;
+import java.util.function.IntFunction;
+import java.util.zip.Inflater;
+
+/**
+ * Read-only, memory-mapped view of the snapshots in a data folder, for reports and tools that
+ * only read. Opening maps each {@code user_N.dat} and builds a small offset table per user,
+ * vehicle and log; no row is read until it is asked for. Rows are fixed-size in
+ * {@link GarageCodec}, so row N of a log is one offset calculation away.
+ *
+ * Logs stored in compressed blocks ({@link BlockCodec}) are inflated a block at a time, only the
+ * blocks holding the rows asked for; a date-range read skips the blocks outside the range.
+ *
+ * Heap use is a few ints per vehicle and block, one int per {@value #STRING_STRIDE} strings
+ * (built on the first string lookup), one int per symbol and at most {@value #BLOCK_CACHE_SIZE} inflated blocks
+ * per user, whatever the size of the files.
+ *
+ * The view shows the state of the last snapshots: changes still in the journals are not included
+ * (run {@code compact} first when they matter). Snapshots are not checksummed on open, as that
+ * would read every byte; {@code check} does that. Legacy (Java serialization) snapshots are skipped.
+ *
+ * The dashboard does not read through this view. It shows its own edits right away, and those
+ * are only in the journal until the next snapshot. Saving also renames a new snapshot over the
+ * mapped file, which Windows refuses. It loads the one shard of the logged-in user instead
+ * ({@link UserShard}). Readers are the {@code stats} command and the {@code archive.*} benchmarks.
+ */
+class GarageArchive implements Closeable {
+
+    private static final int STRING_STRIDE = 64;                  // Strings between two entries of the sparse string index
+    private static final int VEHICLE_HEADER_SIZE = 36;
+    private static final int BLOCK_CACHE_SIZE = 8;                // Inflated blocks kept per user
+
+    private static final Expense.ExpenseCategory[] EXPENSE_CATEGORIES = Expense.ExpenseCategory.values();
+    private static final DreamItem.DreamCategory[] DREAM_CATEGORIES = DreamItem.DreamCategory.values();
+
+    private final List<UserView> users;
+    private final long mappedBytes;
+
+    private GarageArchive(List<UserView> users, long mappedBytes) {
+        this.users = users;
+        this.mappedBytes = mappedBytes;
+    }
+
+    /**
+     * Maps every user snapshot of the folder, in shard order.
+     */
+    static GarageArchive open(File folder) throws IOException {
+        TreeMap<Integer, File> snapshots = new TreeMap<>();
+        File[] files = folder.listFiles((dir, name) -> name.matches("user_\\d+\\.dat"));
+        if (files != null) {
+            for (File f : files) snapshots.put(Integer.parseInt(f.getName().replaceAll("\\D", "")), f);
+        }
+        List<UserView> users = new ArrayList<>();
+        long bytes = 0;
+        for (File file : snapshots.values()) {
+            UserView user = UserView.map(file);
+            if (user == null) continue;
+            users.add(user);
+            bytes += user.data.capacity();
+        }
+        return new GarageArchive(users, bytes);
+    }
+
+    List<UserView> users() {
+        return Collections.unmodifiableList(users);
+    }
+
+    /**
+     * @return The user (ignoring case like the login), or null.
+     */
+    UserView user(String username) {
+        for (UserView u : users) {
+            if (u.username().equalsIgnoreCase(username)) return u;
+        }
+        return null;
+    }
+
+    long mappedBytes() {
+        return mappedBytes;
+    }
+
+    /**
+     * Drops the mappings. They are released by the garbage collector; until then the files
+     * cannot be replaced on Windows.
+     */
+    @Override
+    public void close() {
+        users.clear();
+    }
+
+    // --- USER ---
+
+    /**
+     * One mapped snapshot.
+     */
+    static class UserView {
+        private final File file;
+        private final ByteBuffer data; // Read with absolute positions only, so views can be shared between threads
+        private final byte version;
+        private final long lastSegment;
+
+        private final int stringsAt;   // Position of the first string (after the count)
+        private final int stringCount;
+        private volatile int[] stringIndex; // Position of every STRING_STRIDE-th string
+        private final int symbolsAt;   // Symbol count, -1 before version 7 (symbols were strings)
+        private volatile int[] symbols; // SymbolTable id of every symbol
+
+        private final int userAt;      // username, password, email ids
+        private final VehicleView[] vehicles;
+
+        // The last inflated blocks of compressed logs, shared by all logs of this user
+        private final Map<Integer, ByteBuffer> blocks = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, ByteBuffer> eldest) {
+                return size() > BLOCK_CACHE_SIZE;
+            }
+        };
+
+        private UserView(File file, ByteBuffer data, int body, long lastSegment) throws IOException {
+            this.file = file;
+            this.data = data;
+            this.lastSegment = lastSegment;
+            this.version = data.get(body);
+            if (version < 1 || version > GarageCodec.VERSION) throw new IOException("Unsupported data version: " + version);
+
+            int pos = body + 1;
+            int tableLength = version >= 5 ? data.getInt(pos) : -1;
+            if (version >= 5) pos += 4;
+            stringCount = data.getInt(pos);
+            stringsAt = pos + 4;
+            if (tableLength >= 0) {
+                pos += tableLength;
+            } else {
+                pos = stringsAt;
+                for (int i = 0; i < stringCount; i++) pos += 4 + data.getInt(pos); // Older files: hop over the strings
+            }
+            symbolsAt = version >= 7 ? pos + 4 : -1;
+            if (version >= 7) pos += 4 + data.getInt(pos);
+            userAt = pos;
+            pos += 12;
+
+            // The offset table: one hop per log (or per block), the rows themselves are not touched
+            vehicles = new VehicleView[data.getInt(pos)];
+            pos += 4;
+            for (int i = 0; i < vehicles.length; i++) {
+                VehicleView v = new VehicleView(this, pos);
+                pos += VEHICLE_HEADER_SIZE;
+                v.expenses = new MappedLog(this, pos, GarageCodec.expenseSize(version));
+                v.dreams = new MappedLog(this, v.expenses.end, GarageCodec.dreamSize(version));
+                v.sessions = new MappedLog(this, v.dreams.end, GarageCodec.sessionSize(version));
+                pos = v.sessions.end;
+                if (version >= 4) pos += 8 + data.getInt(pos + 4); // Odometer readings
+                vehicles[i] = v;
+            }
+        }
+
+        /**
+         * @return The view, or null if the file is a legacy snapshot.
+         */
+        private static UserView map(File file) throws IOException {
+            MappedByteBuffer data;
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); // Stays valid after the channel is closed
+            }
+            try {
+                int magic = data.getInt(0);
+                if (magic == UserShard.CHECKED_SNAPSHOT_MAGIC) return new UserView(file, data, UserShard.CHECKED_HEADER_SIZE, data.getLong(4));
+                if (magic == UserShard.SNAPSHOT_MAGIC) return new UserView(file, data, UserShard.HEADER_SIZE, data.getLong(4));
+            } catch (IndexOutOfBoundsException e) {
+                throw new IOException("Damaged snapshot: " + file.getName(), e);
+            }
+            System.out.println("⚠️ Skipped " + file.getName() + " (old format, converted when the user next logs in).");
+            return null;
+        }
+
+        String username() { return string(data.getInt(userAt)); }
+        String email() { return string(data.getInt(userAt + 8)); }
+
+        List<VehicleView> vehicles() {
+            return List.of(vehicles);
+        }
+
+        /**
+         * @return The vehicle with the id, or null.
+         */
+        VehicleView vehicle(String id) {
+            for (VehicleView v : vehicles) {
+                if (v.id().equals(id)) return v;
+            }
+            return null;
+        }
+
+        /**
+         * @return The saved search index of this snapshot, or null if it is missing or out of date.
+         *         Its hits point at rows of {@link #vehicle(String)}.
+         */
+        SearchIndex searchIndex() {
+            String name = file.getName();
+            return SearchIndex.read(new File(file.getParentFile(), name.substring(0, name.length() - 4) + ".search"), lastSegment);
+        }
+
+        /**
+         * Looks up a string of the dictionary: a jump through the sparse index and at most
+         * {@value #STRING_STRIDE} hops over length prefixes.
+         */
+        String string(int id) {
+            if (id == 0) return null;
+            int[] index = stringIndex;
+            if (index == null) index = buildStringIndex();
+            int i = id - 1;
+            int pos = index[i / STRING_STRIDE];
+            for (int skip = i % STRING_STRIDE; skip > 0; skip--) pos += 4 + data.getInt(pos);
+            byte[] utf8 = new byte[data.getInt(pos)];
+            data.get(pos + 4, utf8);
+            return new String(utf8, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * @return The text of a symbol id (brand, model, generation, color, currency, track, conditions, tires).
+         */
+        String symbol(int id) {
+            return SymbolTable.name(symbolId(id));
+        }
+
+        /**
+         * @return The {@link SymbolTable} id of a stored symbol id.
+         */
+        int symbolId(int id) {
+            if (symbolsAt < 0) return SymbolTable.id(string(id));
+            int[] table = symbols;
+            if (table == null) table = readSymbols();
+            return table[id];
+        }
+
+        private synchronized int[] readSymbols() {
+            if (symbols != null) return symbols;
+            int[] table = new int[data.getInt(symbolsAt) + 1];
+            int pos = symbolsAt + 4;
+            for (int i = 1; i < table.length; i++) {
+                byte[] utf8 = new byte[data.getInt(pos)];
+                data.get(pos + 4, utf8);
+                table[i] = SymbolTable.id(new String(utf8, StandardCharsets.UTF_8));
+                pos += 4 + utf8.length;
+            }
+            symbols = table;
+            return table;
+        }
+
+        private synchronized int[] buildStringIndex() {
+            if (stringIndex != null) return stringIndex;
+            int[] index = new int[(stringCount + STRING_STRIDE - 1) / STRING_STRIDE];
+            int pos = stringsAt;
+            for (int i = 0; i < stringCount; i++) {
+                if (i % STRING_STRIDE == 0) index[i / STRING_STRIDE] = pos;
+                pos += 4 + data.getInt(pos);
+            }
+            stringIndex = index;
+            return index;
+        }
+    }
+
+    // --- LOGS ---
+
+    /**
+     * Receives the rows of a log a block at a time (a plain log is one block).
+     */
+    interface RowBlock {
+        /**
+         * @param rows  The rows in the plain layout, read with absolute positions from 0.
+         * @param count Number of rows.
+         */
+        void accept(ByteBuffer rows, int count);
+    }
+
+    /**
+     * Where one log of a vehicle is: a run of plain rows, or the index of its compressed blocks.
+     */
+    private static class MappedLog {
+        private final UserView user;
+        private final int count, rowSize;
+        private final int rowsAt;       // First plain row, -1 if the log is in blocks
+        private final int end;          // Position after the log
+        private int[] firstRow, firstDay, lastDay, blockAt, blockLength;
+
+        MappedLog(UserView user, int pos, int rowSize) {
+            ByteBuffer data = user.data;
+            this.user = user;
+            this.rowSize = rowSize;
+            this.count = data.getInt(pos);
+            pos += 4;
+            if (user.version < 6 || data.get(pos) == BlockCodec.PLAIN) {
+                rowsAt = user.version < 6 ? pos : pos + 1;
+                end = rowsAt + count * rowSize;
+                return;
+            }
+            rowsAt = -1;
+            int blocks = data.getInt(pos + 1);
+            firstRow = new int[blocks];
+            firstDay = new int[blocks];
+            lastDay = new int[blocks];
+            blockAt = new int[blocks];
+            blockLength = new int[blocks];
+            int entry = pos + 5, at = entry + blocks * BlockCodec.INDEX_ENTRY_SIZE, row = 0;
+            for (int b = 0; b < blocks; b++, entry += BlockCodec.INDEX_ENTRY_SIZE) {
+                firstRow[b] = row;
+                row += data.getInt(entry);
+                firstDay[b] = data.getInt(entry + 4);
+                lastDay[b] = data.getInt(entry + 8);
+                blockAt[b] = at;
+                blockLength[b] = data.getInt(entry + 12);
+                at += blockLength[b];
+            }
+            end = at;
+        }
+
+        /**
+         * @return The row's bytes, read with absolute positions from 0.
+         */
+        ByteBuffer row(int row) {
+            if (row < 0 || row >= count) throw new IndexOutOfBoundsException("Row " + row + ", size " + count);
+            if (rowsAt >= 0) return user.data.slice(rowsAt + row * rowSize, rowSize);
+            int b = Arrays.binarySearch(firstRow, row);
+            if (b < 0) b = -b - 2; // The block starting before the row
+            return block(b).slice((row - firstRow[b]) * rowSize, rowSize);
+        }
+
+        /**
+         * Passes every block that may hold rows dated between the two days (both inclusive) to the consumer.
+         * Rows are not filtered: blocks overlap the range, they do not have to lie inside it.
+         * Pass {@link Integer#MIN_VALUE} and {@link Integer#MAX_VALUE} to read every row, undated ones included.
+         * @return Number of blocks read.
+         */
+        int scan(int fromDay, int toDay, RowBlock consumer) {
+            if (rowsAt >= 0) {
+                if (count > 0) consumer.accept(user.data.slice(rowsAt, count * rowSize), count);
+                return 1;
+            }
+            int read = 0;
+            for (int b = 0; b < firstRow.length; b++) {
+                if (lastDay[b] < fromDay || firstDay[b] > toDay) continue;
+                consumer.accept(block(b), rows(b));
+                read++;
+            }
+            return read;
+        }
+
+        private int rows(int b) {
+            return (b + 1 < firstRow.length ? firstRow[b + 1] : count) - firstRow[b];
+        }
+
+        private ByteBuffer block(int b) {
+            int key = blockAt[b]; // Position in the file, unique within the user
+            synchronized (user.blocks) {
+                ByteBuffer cached = user.blocks.get(key);
+                if (cached != null) return cached.duplicate();
+            }
+            int rows = rows(b);
+            byte[] plain = new byte[rows * rowSize];
+            Inflater inflater = new Inflater(true);
+            try {
+                BlockCodec.inflate(inflater, user.data.slice(blockAt[b], blockLength[b]), rows, rowSize, new byte[plain.length], plain);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                inflater.end();
+            }
+            ByteBuffer block = ByteBuffer.wrap(plain).asReadOnlyBuffer();
+            synchronized (user.blocks) {
+                user.blocks.put(key, block);
+            }
+            return block.duplicate();
+        }
+    }
+
+    // --- VEHICLE ---
+
+    /**
+     * One vehicle of a mapped snapshot. Rows are decoded on every access; nothing is cached
+     * besides the last inflated blocks.
+     */
+    static class VehicleView {
+        private final UserView user;
+        private final ByteBuffer data;
+        private final int headerAt;
+        private MappedLog expenses, dreams, sessions;
+
+        private VehicleView(UserView user, int headerAt) {
+            this.user = user;
+            this.data = user.data;
+            this.headerAt = headerAt;
+        }
+
+        String id() { return header(0); }
+        String brand() { return symbolHeader(1); }
+        String model() { return symbolHeader(2); }
+        String generation() { return symbolHeader(3); }
+        String year() { return header(4); }
+        String color() { return symbolHeader(5); }
+        int kilometer() { return data.getInt(headerAt + 24); }
+        int power() { return data.getInt(headerAt + 28); }
+        int torque() { return data.getInt(headerAt + 32); }
+
+        String displayName() {
+            return year() + " " + brand() + " " + model() + " (" + generation() + ")";
+        }
+
+        private String header(int field) {
+            return user.string(data.getInt(headerAt + field * 4));
+        }
+
+        private String symbolHeader(int field) {
+            return user.symbol(data.getInt(headerAt + field * 4));
+        }
+
+        // --- EXPENSES ---
+
+        int expenseCount() { return expenses.count; }
+
+        /**
+         * @return A new Expense with the values of the row.
+         */
+        Expense expense(int row) {
+            ByteBuffer r = expenses.row(row);
+            byte category = r.get(0);
+            return new Expense(category < 0 ? null : EXPENSE_CATEGORIES[category], r.getDouble(1),
+                    user.symbol(r.getInt(9)), user.string(r.getInt(13)), GarageCodec.date(r.getInt(17)), recordId(r, 21, row));
+        }
+
+        /**
+         * @return The expenses as a read-only list that decodes a row on each {@code get}
+         *         (e.g. for a {@link VirtualRowList}).
+         */
+        List<Expense> expenses() {
+            return new RowList<>(expenseCount(), this::expense);
+        }
+
+        /**
+         * Sums the amounts per currency in one pass over the rows, in the order the currencies first appear.
+         * Only the currency names are decoded.
+         */
+        Map<String, Double> expenseTotalsByCurrency() {
+            return expenseTotalsByCurrency(Integer.MIN_VALUE, Integer.MAX_VALUE);
+        }
+
+        /**
+         * Total spent per currency between two dates (both inclusive), like
+         * {@link Vehicle#getExpenseTotalsByCurrency(LocalDate, LocalDate)}. Only the blocks
+         * overlapping the range are read.
+         */
+        Map<String, Double> expenseTotalsByCurrency(LocalDate from, LocalDate to) {
+            return expenseTotalsByCurrency((int) from.toEpochDay(), (int) to.toEpochDay());
+        }
+
+        private Map<String, Double> expenseTotalsByCurrency(int fromDay, int toDay) {
+            boolean all = fromDay == Integer.MIN_VALUE && toDay == Integer.MAX_VALUE;
+            Map<Integer, double[]> byId = new LinkedHashMap<>();
+            expenses.scan(fromDay, toDay, (rows, count) -> {
+                for (int pos = 0, row = 0; row < count; row++, pos += expenses.rowSize) {
+                    int day = rows.getInt(pos + 17);
+                    if (!all && (day == ExpenseLog.NO_DATE || day < fromDay || day > toDay)) continue;
+                    byId.computeIfAbsent(rows.getInt(pos + 9), k -> new double[1])[0] += rows.getDouble(pos + 1);
+                }
+            });
+            Map<String, Double> totals = new LinkedHashMap<>();
+            byId.forEach((id, total) -> totals.put(user.symbol(id), total[0]));
+            return totals;
+        }
+
+        /**
+         * @return Total cost of ownership in the currency, each expense at the rate of its own date
+         *         (NaN if there are no rates for the currency), like {@link Vehicle#getExpenseTotal(String)}.
+         */
+        double expenseTotal(String currency) {
+            ConvertedTotals totals = new ConvertedTotals(CurrencyRates.current(), 1);
+            Map<Integer, String> names = new HashMap<>();
+            expenses.scan(Integer.MIN_VALUE, Integer.MAX_VALUE, (rows, count) -> {
+                for (int pos = 0, row = 0; row < count; row++, pos += expenses.rowSize) {
+                    String from = names.computeIfAbsent(rows.getInt(pos + 9), user::symbol);
+                    int day = rows.getInt(pos + 17);
+                    totals.add(from, day == ExpenseLog.NO_DATE ? Integer.MAX_VALUE : day, 0, rows.getDouble(pos + 1));
+                }
+            });
+            return totals.total(currency);
+        }
+
+        // --- DREAM SPEC AND TRACK LOG ---
+
+        int dreamCount() { return dreams.count; }
+
+        DreamItem dreamItem(int row) {
+            ByteBuffer r = dreams.row(row);
+            byte category = r.get(0);
+            DreamItem item = new DreamItem(category < 0 ? null : DREAM_CATEGORIES[category], user.string(r.getInt(1)), r.getDouble(5),
+                    user.symbolId(r.getInt(13)), GarageCodec.date(r.getInt(17)), recordId(r, 22, row));
+            item.setDone(r.get(21) != 0);
+            return item;
+        }
+
+        List<DreamItem> dreamItems() {
+            return new RowList<>(dreamCount(), this::dreamItem);
+        }
+
+        int sessionCount() { return sessions.count; }
+
+        TrackSession trackSession(int row) {
+            TrackSession session = GarageCodec.readSession(sessions.row(row), user.version, user::string, user::symbolId);
+            if (session.getId() == 0) session.setId(row + 1);
+            return session;
+        }
+
+        /**
+         * @return The id stored at the position of the row, or the row + 1 for files from before
+         *         records had ids (like {@link Vehicle} numbers them on load).
+         */
+        private long recordId(ByteBuffer r, int at, int row) {
+            return user.version >= 8 ? r.getLong(at) : row + 1;
+        }
+
+        List<TrackSession> trackSessions() {
+            return new RowList<>(sessionCount(), this::trackSession);
+        }
+    }
+
+    /**
+     * Read-only list decoding each row when it is asked for.
+     */
+    private static class RowList<T> extends AbstractList<T> implements RandomAccess {
+        private final int size;
+        private final IntFunction<T> rowAt;
+
+        RowList(int size, IntFunction<T> rowAt) {
+            this.size = size;
+            this.rowAt = rowAt;
+        }
+
+        @Override
+        public T get(int index) { return rowAt.apply(index); }
+
+        @Override
+        public int size() { return size; }
+    }
+}
@@ -0,0 +1,502 @@
+package MyGarage;
+
+import MyGarage.legacy.LegacyReader;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Micro benchmarks of the hot paths: saving and loading garages, login lookups, journal appends,
+ * the totals behind the overview and charts, search, data-logger imports and the expense table model. Saving and
+ * loading are also measured in the original Java-serialized format, for comparison.
+ *
+ * Every benchmark runs on {@link BenchmarkData} in a temporary folder (never the real data folder).
+ * Like JMH, each one gets warmup iterations first and is then timed over fixed-length iterations;
+ * the score is the mean time per operation and the error the standard deviation between iterations.
+ *
+ * Results are written as CSV with the seed, sizes and JVM in the header, so two runs can be compared:
+ * with {@code --baseline} every benchmark slower than the threshold is reported and the exit code is 1.
+ *
+ * Usage: {@code java -cp <classes>:<javafx>/* MyGarage.GarageBenchmark [options]}
+ * (javafx.base is only needed for the table benchmarks, they are skipped without it).
+ */
+public class GarageBenchmark {
+
+    private static final String USAGE = String.join("\n",
+            "Usage: GarageBenchmark [options]",
+            "  --users N          Users (default 20)",
+            "  --vehicles N       Vehicles per user (default 3)",
+            "  --rows N           Expenses per vehicle (default 2000)",
+            "  --logins N         Registered users besides the generated ones, for login.lookup (default 100000)",
+            "  --samples N        Lines of the data-logger CSV, for telemetry.import (default 500000)",
+            "  --seed N           Seed of the generated data (default 42)",
+            "  --warmup N         Warmup iterations (default 3)",
+            "  --iterations N     Measured iterations (default 5)",
+            "  --time MS          Length of one iteration (default 500)",
+            "  --filter TEXT      Only benchmarks whose name contains the text",
+            "  --out FILE         Write the results as CSV",
+            "  --baseline FILE    Compare with the results of an earlier run",
+            "  --threshold PCT    Slowdown reported as a regression (default 10)");
+
+    private static final int TABLE_PAGE = 40;       // Rows a table shows at once
+    private static final String[] QUERIES = { "shell", "michelin", "spa", "bmw m2", "tire", "upgrade 40" };
+
+    private static final PrintStream out = System.out;
+
+    // Results are folded into this so the JIT cannot drop the measured work
+    private static volatile long sink;
+
+    private final Map<String, String> options;
+    private final int warmup, iterations;
+    private final long iterationNanos;
+    private final String filter;
+    private int logins; // Registered users besides the generated ones
+    private int samples; // Lines of the generated data-logger CSV
+
+    private final List<Result> results = new ArrayList<>();
+
+    /**
+     * One benchmarked operation.
+     * @param i Number of the call, e.g. to pick a different user each time.
+     */
+    interface Op {
+        Object run(int i) throws Exception;
+    }
+
+    static class Result {
+        final String name;
+        final double nanosPerOp, error;
+        final long ops;
+
+        Result(String name, double nanosPerOp, double error, long ops) {
+            this.name = name;
+            this.nanosPerOp = nanosPerOp;
+            this.error = error;
+            this.ops = ops;
+        }
+    }
+
+    private GarageBenchmark(Map<String, String> options) {
+        this.options = options;
+        this.warmup = intOption("warmup", 3);
+        this.iterations = Math.max(1, intOption("iterations", 5));
+        this.iterationNanos = intOption("time", 500) * 1_000_000L;
+        this.filter = options.get("filter");
+    }
+
+    public static void main(String[] args) {
+        System.setOut(System.err); // Storage logs go to stderr, results to stdout
+        int exitCode;
+        try {
+            Map<String, String> options = parse(args);
+            exitCode = options == null ? usage() : new GarageBenchmark(options).run();
+        } catch (NumberFormatException e) {
+            exitCode = usage();
+        } catch (Exception e) {
+            System.err.println("❌ Benchmark Error: " + e);
+            exitCode = 1;
+        }
+        out.flush();
+        System.exit(exitCode);
+    }
+
+    private int run() throws Exception {
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        int users = intOption("users", 20), vehicles = intOption("vehicles", 3), rows = intOption("rows", 2000);
+        logins = intOption("logins", 100_000);
+        samples = intOption("samples", 500_000);
+        String data = String.format("seed=%d users=%d vehicles=%d rows=%d logins=%d samples=%d", seed, users, vehicles, rows, logins, samples);
+        out.println("📊 MyGarage benchmarks: " + data + ", " + warmup + " warmup + " + iterations + " iterations of " + iterationNanos / 1_000_000 + " ms");
+
+        Path folder = Files.createTempDirectory("mygarage-bench");
+        try {
+            Path rates = folder.resolve("rates.csv");
+            BenchmarkData.writeRates(rates, seed, 365 * 7);
+            CurrencyRates.setCurrent(CurrencyRates.load(rates)); // Fixed rates, not the ones of the data folder
+
+            List<User> garages = BenchmarkData.generate(seed, users, vehicles, rows);
+            persistence(folder.toFile(), garages);
+            aggregates(folder, garages);
+            footprint(garages);
+            telemetry(folder, seed);
+            tableModel(garages);
+        } finally {
+            deleteTree(folder);
+        }
+
+        String header = String.join("\n",
+                "# MyGarage benchmark results, " + LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS),
+                "# data " + data,
+                String.format("# run warmup=%d iterations=%d time_ms=%d", warmup, iterations, iterationNanos / 1_000_000),
+                String.format("# jvm %s %s, %s %s, %d cores, %d MB heap", System.getProperty("java.vm.name"), System.getProperty("java.version"),
+                        System.getProperty("os.name"), System.getProperty("os.arch"), Runtime.getRuntime().availableProcessors(),
+                        Runtime.getRuntime().maxMemory() / (1024 * 1024)));
+        if (options.containsKey("out")) {
+            write(Paths.get(options.get("out")), header);
+            out.println("-> " + options.get("out"));
+        }
+        return options.containsKey("baseline") ? compare(Paths.get(options.get("baseline")), "# data " + data) : 0;
+    }
+
+    // --- BENCHMARKS ---
+
+    private void persistence(File folder, List<User> garages) throws Exception {
+        UserShard[] shards = new UserShard[garages.size()];
+        for (int u = 0; u < shards.length; u++) {
+            shards[u] = new UserShard(folder, "user_" + (u + 1));
+            shards[u].save(garages.get(u));
+        }
+        int n = garages.size();
+        bench("save.snapshot", i -> { shards[i % n].save(garages.get(i % n)); return null; });
+        bench("load.snapshot", i -> shards[i % n].load());
+        bench("save.encode", i -> GarageCodec.encode(garages.get(i % n)));
+
+        // The original format on the same data: ObjectOutputStream straight into the file, as the old
+        // DataBaseManager wrote it, and reading it back through LegacyReader (without the conversion)
+        // (the old app held these objects, so converting them is not part of the measurement)
+        File[] legacy = new File[n];
+        List<MyGarage.legacy.User> legacyGarages = new ArrayList<>(n);
+        for (int u = 0; u < n; u++) {
+            legacy[u] = new File(folder, "legacy_" + (u + 1) + ".dat");
+            legacyGarages.add(BenchmarkData.toLegacy(garages.get(u)));
+            writeLegacy(legacy[u], legacyGarages.get(u));
+        }
+        out.println(String.format(Locale.ROOT, "ℹ️ Snapshot size: %,d bytes (Java serialization: %,d bytes)",
+                new File(folder, "user_1.dat").length(), legacy[0].length()));
+        bench("save.legacy", i -> {
+            writeLegacy(legacy[i % n], legacyGarages.get(i % n));
+            return null;
+        });
+        bench("load.legacy", i -> {
+            try (LegacyReader reader = new LegacyReader(new FileInputStream(legacy[i % n]))) {
+                return reader.readUser();
+            }
+        });
+
+        // Read-only mapped view: opening it, and a total read straight from the mapping
+        bench("archive.open", i -> {
+            try (GarageArchive archive = GarageArchive.open(folder)) {
+                return archive.users().size();
+            }
+        });
+        GarageArchive archive = GarageArchive.open(folder);
+        List<GarageArchive.VehicleView> mapped = new ArrayList<>();
+        for (GarageArchive.UserView u : archive.users()) mapped.addAll(u.vehicles());
+        bench("archive.totals", i -> mapped.get(i % mapped.size()).expenseTotalsByCurrency());
+        bench("archive.range", i -> {
+            // One month of one vehicle: only the blocks overlapping it are inflated
+            LocalDate from = LocalDate.of(2020, 1, 1).plusDays((i * 37L) % 1500);
+            return mapped.get(i % mapped.size()).expenseTotalsByCurrency(from, from.plusMonths(1));
+        });
+
+        // Journal appends, the path of every edit in the app (one entry) and of CSV imports (batches)
+        User user = garages.get(0);
+        Vehicle v = user.getGarage().get(0);
+        UserShard journal = new UserShard(folder, "journal");
+        journal.save(user);
+        Expense expense = v.getExpenses().get(0);
+        bench("journal.append.1", i -> {
+            journal.append(List.of(JournalEntry.addExpense(user, v, expense).encode()));
+            return null;
+        });
+        bench("journal.append.batch100", i -> {
+            List<byte[]> batch = new ArrayList<>(100);
+            for (int k = 0; k < 100; k++) batch.add(JournalEntry.addExpense(user, v, expense).encode());
+            journal.append(batch);
+            return null;
+        });
+
+        // Login: one lookup among all registered users
+        UserIndex index = new UserIndex(new File(folder, "index"));
+        index.open();
+        List<String> names = new ArrayList<>();
+        for (User u : garages) names.add(u.getUsername());
+        for (int k = 0; k < logins; k++) names.add("member" + k);
+        for (String name : names) index.add(name);
+        bench("login.lookup", i -> index.find(names.get((int) ((i * 7919L) % names.size()))));
+        index.close();
+    }
+
+    private void aggregates(Path folder, List<User> garages) throws Exception {
+        List<Vehicle> vehicles = new ArrayList<>();
+        for (User u : garages) vehicles.addAll(u.getGarage());
+        int n = vehicles.size();
+
+        // What the overview tab reads
+        bench("overview.totals", i -> {
+            Vehicle v = vehicles.get(i % n);
+            return v.getExpenseTotalsByCurrency().size() + v.getDreamTotalsByCurrency().size()
+                    + v.getRunningCostPerKm().size() + v.getFuelCostPer100Km().size()
+                    + v.getKilometersPerMonth() + v.getExpenseTotal(CurrencyRates.BASE);
+        });
+        bench("pie.categories", i -> vehicles.get(i % n).getExpenseTotalsByCategory(CurrencyRates.BASE));
+        bench("trend.monthly", i -> {
+            Vehicle v = vehicles.get(i % n);
+            LocalDate last = v.getExpenseDateRange()[1];
+            double sum = 0;
+            for (int month = 11; month >= 0; month--) {
+                LocalDate from = last.minusMonths(month).withDayOfMonth(1);
+                for (double total : v.getExpenseTotalsByCurrency(from, from.plusMonths(1).minusDays(1)).values()) sum += total;
+            }
+            return sum;
+        });
+        // The work done for every vehicle on load: indexes plus converted totals from scratch
+        bench("aggregate.rebuild", i -> {
+            Vehicle v = vehicles.get(i % n);
+            v.rebuildIndexes();
+            return v.getExpenseTotal(CurrencyRates.BASE);
+        });
+        bench("fleet.analyze", i -> FleetAnalytics.analyze(garages));
+        bench("fleet.analyze.sequential", i -> FleetAnalytics.analyze(garages, false));
+
+        int users = garages.size();
+        bench("search.build", i -> SearchIndex.build(garages.get(i % users)));
+        SearchIndex index = SearchIndex.build(garages.get(0));
+        bench("search.query", i -> index.search(QUERIES[i % QUERIES.length], 50));
+
+        // The saved index of a user, read at login instead of building it
+        File indexFile = folder.resolve("user_1.search").toFile();
+        index.write(indexFile, 1);
+        out.println(String.format(Locale.ROOT, "ℹ️ Search index file: %,d bytes", indexFile.length()));
+        bench("search.load", i -> SearchIndex.read(indexFile, 1));
+    }
+
+    /**
+     * Heap used by every generated expense, stored in columns and as one object per expense
+     * (strings created per row, as when read from a file). Not timed; reported with the results.
+     */
+    private void footprint(List<User> garages) {
+        String name = "footprint.expenses";
+        if (filter != null && !name.contains(filter)) return;
+        List<Expense> expenses = new ArrayList<>();
+        for (User u : garages) for (Vehicle v : u.getGarage()) expenses.addAll(v.getExpenses());
+
+        long before = usedHeap();
+        ExpenseLog columns = new ExpenseLog();
+        for (Expense e : expenses) columns.add(copy(e));
+        long columnBytes = usedHeap() - before;
+
+        before = usedHeap();
+        ArrayList<Expense> objects = new ArrayList<>();
+        for (Expense e : expenses) objects.add(copy(e));
+        long objectBytes = usedHeap() - before;
+
+        consume(columns.size() + objects.size());
+        int rows = expenses.size();
+        out.println(String.format(Locale.ROOT, "ℹ️ %s (%,d rows): ExpenseLog %,d bytes (%d/row), ArrayList<Expense> %,d bytes (%d/row)",
+                name, rows, columnBytes, columnBytes / Math.max(1, rows), objectBytes, objectBytes / Math.max(1, rows)));
+    }
+
+    private static Expense copy(Expense e) {
+        return new Expense(e.getCategory(), e.getAmount(), new String(e.getCurrency()),
+                e.getDescription() == null ? null : new String(e.getDescription()), e.getDate());
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private void telemetry(Path folder, long seed) throws Exception {
+        // One data-logger export, parsed and written as a telemetry file each time
+        Path csv = folder.resolve("logger.csv");
+        BenchmarkData.writeTelemetry(csv, seed, samples);
+        File output = folder.resolve("logger.tlm").toFile();
+        out.println(String.format(Locale.ROOT, "ℹ️ Data-logger CSV: %,d bytes", Files.size(csv)));
+        bench("telemetry.import", i -> TelemetryImporter.importFile(csv, output).laps);
+    }
+
+    private void tableModel(List<User> garages) throws Exception {
+        try {
+            Class.forName("javafx.collections.ObservableListBase");
+        } catch (ClassNotFoundException e) {
+            System.err.println("⚠️ javafx.base is not on the class path, table benchmarks skipped.");
+            return;
+        }
+        List<Vehicle> vehicles = new ArrayList<>();
+        for (User u : garages) vehicles.addAll(u.getGarage());
+        int n = vehicles.size();
+
+        // Opening the expenses tab: the list behind the table plus the rows of the first page
+        bench("table.open", i -> {
+            Vehicle v = vehicles.get(i % n);
+            VirtualRowList<Expense> rows = new VirtualRowList<>(() -> v.getExpenses().size(), row -> v.getExpenses().get(row));
+            long hash = 0;
+            for (int row = 0; row < Math.min(TABLE_PAGE, rows.size()); row++) hash += rows.get(row).hashCode();
+            return hash;
+        });
+        // Scrolling: one page somewhere in the middle
+        bench("table.scroll", i -> {
+            List<Expense> expenses = vehicles.get(i % n).getExpenses();
+            int first = expenses.size() <= TABLE_PAGE ? 0 : (int) ((i * 31L) % (expenses.size() - TABLE_PAGE));
+            long hash = 0;
+            for (int row = first; row < Math.min(first + TABLE_PAGE, expenses.size()); row++) hash += expenses.get(row).hashCode();
+            return hash;
+        });
+    }
+
+    private static void writeLegacy(File file, MyGarage.legacy.User user) throws IOException {
+        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(file))) {
+            oos.writeObject(user);
+        }
+    }
+
+    // --- HARNESS ---
+
+    private void bench(String name, Op op) throws Exception {
+        if (filter != null && !name.contains(filter)) return;
+        System.gc(); // Start every benchmark from the same heap state
+
+        int[] calls = { 0 };
+        for (int w = 0; w < warmup; w++) iteration(op, calls);
+
+        double[] scores = new double[iterations];
+        long ops = 0;
+        for (int it = 0; it < iterations; it++) {
+            long[] timed = iteration(op, calls);
+            scores[it] = (double) timed[0] / timed[1];
+            ops += timed[1];
+        }
+
+        double mean = 0;
+        for (double s : scores) mean += s;
+        mean /= scores.length;
+        double variance = 0;
+        for (double s : scores) variance += (s - mean) * (s - mean);
+        double error = scores.length > 1 ? Math.sqrt(variance / (scores.length - 1)) : 0;
+
+        results.add(new Result(name, mean, error, ops));
+        out.println(String.format(Locale.ROOT, "%-28s %14s ± %-12s %,12d ops", name, time(mean), time(error), ops));
+    }
+
+    /**
+     * Calls the operation until the iteration time is over (at least once).
+     * @return Elapsed nanoseconds and number of calls.
+     */
+    private long[] iteration(Op op, int[] calls) throws Exception {
+        long start = System.nanoTime();
+        long deadline = start + iterationNanos;
+        long count = 0, now;
+        do {
+            consume(op.run(calls[0]++));
+            count++;
+            now = System.nanoTime();
+        } while (now < deadline);
+        return new long[] { now - start, count };
+    }
+
+    private static void consume(Object result) {
+        if (result != null) sink += result.hashCode();
+    }
+
+    // --- RESULTS ---
+
+    private void write(Path file, String header) throws IOException {
+        try (PrintWriter csv = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            csv.println(header);
+            csv.println("benchmark,ns_per_op,error_ns,ops");
+            for (Result r : results) {
+                csv.println(String.format(Locale.ROOT, "%s,%.1f,%.1f,%d", r.name, r.nanosPerOp, r.error, r.ops));
+            }
+        }
+    }
+
+    /**
+     * Compares the results with an earlier results file.
+     * @return 1 if a benchmark got slower by more than the threshold, else 0.
+     */
+    private int compare(Path baselineFile, String dataLine) throws IOException {
+        double threshold = Double.parseDouble(options.getOrDefault("threshold", "10"));
+        Map<String, Double> baseline = new LinkedHashMap<>();
+        boolean sameData = false;
+        for (String line : Files.readAllLines(baselineFile, StandardCharsets.UTF_8)) {
+            if (line.startsWith("#")) {
+                if (line.equals(dataLine)) sameData = true;
+                continue;
+            }
+            String[] fields = line.split(",");
+            if (fields.length < 2 || fields[0].equals("benchmark")) continue;
+            baseline.put(fields[0], Double.parseDouble(fields[1]));
+        }
+        if (!sameData) System.err.println("⚠️ The baseline was measured on other data sizes, the comparison is only a rough guide.");
+
+        out.println();
+        out.println("Compared with " + baselineFile + " (threshold " + threshold + "%):");
+        int regressions = 0;
+        for (Result r : results) {
+            Double before = baseline.get(r.name);
+            if (before == null) {
+                out.println(String.format(Locale.ROOT, "%-28s %14s   (new)", r.name, time(r.nanosPerOp)));
+                continue;
+            }
+            double change = (r.nanosPerOp - before) / before * 100;
+            boolean regression = change > threshold;
+            if (regression) regressions++;
+            out.println(String.format(Locale.ROOT, "%-28s %14s -> %-14s %+7.1f%%%s", r.name, time(before), time(r.nanosPerOp), change,
+                    regression ? "  REGRESSION" : ""));
+        }
+        out.println(regressions == 0 ? "No regressions." : regressions + " regression(s).");
+        return regressions == 0 ? 0 : 1;
+    }
+
+    /**
+     * @return The duration in the most readable unit, e.g. "812.4 ns" or "3.21 ms".
+     */
+    private static String time(double nanos) {
+        if (nanos < 1_000) return String.format(Locale.ROOT, "%.1f ns", nanos);
+        if (nanos < 1_000_000) return String.format(Locale.ROOT, "%.2f µs", nanos / 1_000);
+        if (nanos < 1_000_000_000) return String.format(Locale.ROOT, "%.2f ms", nanos / 1_000_000);
+        return String.format(Locale.ROOT, "%.2f s", nanos / 1_000_000_000);
+    }
+
+    // --- HELPERS ---
+
+    /**
+     * @return The options as name -> value, or null if an argument is not a known option.
+     */
+    private static Map<String, String> parse(String[] args) {
+        List<String> known = List.of("users", "vehicles", "rows", "logins", "samples", "seed", "warmup", "iterations", "time", "filter", "out", "baseline", "threshold");
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            String name = args[i].startsWith("--") ? args[i].substring(2) : "";
+            if (!known.contains(name) || i + 1 == args.length) return null;
+            options.put(name, args[++i]);
+        }
+        return options;
+    }
+
+    private int intOption(String name, int defaultValue) {
+        return Integer.parseInt(options.getOrDefault(name, String.valueOf(defaultValue)));
+    }
+
+    private static int usage() {
+        out.println(USAGE);
+        return 2;
+    }
+
+    private static void deleteTree(Path folder) throws IOException {
+        try (Stream<Path> paths = Files.walk(folder)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package MyGarage;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Command line mode for servers and scripts (nightly reports, data migrations).
+ * Works on the same data folder as the app but never loads a JavaFX class, so it runs
+ * without a display and starts in a fraction of a second.
+ *
+ * Results go to standard output; the status messages of the storage classes go to standard error.
+ * Exit code: 0 = done, 1 = failed or problems found, 2 = wrong usage.
+ */
+public class GarageCli {
+
+    private static final String[] COMMANDS = { "users", "report", "stats", "fleet", "import", "export", "compact", "check", "rollback", "help" };
+    private static final int FLEET_TOP_TRACKS = 20;
+
+    private static final String USAGE = String.join("\n",
+            "Usage: Run <command> [arguments]",
+            "  users                                    List registered users",
+            "  report [user]                            Totals per vehicle (every user if omitted)",
+            "  stats [user]                             Row counts and totals per vehicle, read from the saved snapshots",
+            "  fleet [folder]                           Reports over all users, also saved as CSV files in the folder",
+            "  import <user> <vehicle> <kind> <file>    Add the rows of a CSV file to a vehicle",
+            "  export <user> <vehicle> <kind> <file>    Write a vehicle's rows as CSV",
+            "  compact [user]                           Fold journals into fresh snapshots",
+            "  check [user]                             Verify snapshots, journals and indexes",
+            "  rollback <user> [n]                      Restore the n-th previous snapshot (default 1, up to " + UserShard.GENERATIONS + ")",
+            "  <vehicle> is a vehicle id or its number in the report, <kind> is expenses, dream or track.");
+
+    private static final PrintStream out = System.out;
+
+    /**
+     * @return True if the argument is a command of this tool (and not an option for the app).
+     */
+    public static boolean isCommand(String arg) {
+        for (String command : COMMANDS) {
+            if (command.equals(arg)) return true;
+        }
+        return false;
+    }
+
+    public static void main(String[] args) {
+        System.setOut(System.err); // Keep "✅ Data loaded" and friends out of the results
+        int exitCode;
+        try {
+            exitCode = run(args);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("❌ " + e.getMessage());
+            exitCode = 1;
+        }
+        int unsaved = PersistenceService.flush();
+        if (unsaved > 0) exitCode = fail(unsaved + " changes could not be saved");
+        out.flush();
+        System.exit(exitCode);
+    }
+
+    private static int run(String[] args) throws IOException {
+        String command = args.length == 0 ? "" : args[0];
+
+        // Commands that change shards need the data folder to themselves; the others only read
+        boolean writes = command.equals("import") || command.equals("compact") || command.equals("rollback");
+        boolean data = writes || List.of("users", "report", "stats", "fleet", "export", "check").contains(command);
+        if (data && !DataBaseManager.lockForWriting()) {
+            if (writes) return fail("The data folder is in use by the MyGarage app or another command; close it and try again.");
+            System.err.println("ℹ️ The data folder is in use by the MyGarage app; reading without changing anything.");
+        }
+
+        switch (command) {
+            case "users":
+                for (String username : DataBaseManager.usernames()) out.println(username);
+                return 0;
+            case "report":
+                for (String username : usersFrom(args)) {
+                    User user = DataBaseManager.loadUser(username);
+                    if (user == null) return fail("No such user: " + username);
+                    report(user);
+                }
+                return 0;
+            case "stats":
+                return stats(args.length > 1 ? args[1] : null);
+            case "fleet":
+                return fleet(args.length > 1 ? Paths.get(args[1]) : null);
+            case "import":
+            case "export":
+                if (args.length != 5) return usage();
+                return transfer(command.equals("import"), args[1], args[2], kind(args[3]), Paths.get(args[4]));
+            case "compact":
+                for (String username : usersFrom(args)) {
+                    if (!DataBaseManager.compact(username)) return fail("No such user: " + username);
+                    out.println(username + ": compacted");
+                }
+                return 0;
+            case "check":
+                return check(usersFrom(args));
+            case "rollback":
+                if (args.length < 2 || args.length > 3) return usage();
+                return rollback(args[1], args.length == 3 ? Integer.parseInt(args[2]) : 1);
+            case "help":
+                out.println(USAGE);
+                return 0;
+            default:
+                return usage();
+        }
+    }
+
+    // --- REPORT ---
+
+    private static void report(User user) {
+        out.println(user.getUsername() + " (" + user.getGarage().size() + " vehicles)");
+        Map<String, Double> garageTotals = new LinkedHashMap<>();
+        int number = 1;
+        for (Vehicle v : user.getGarage()) {
+            long done = v.getDreamList().stream().filter(DreamItem::isDone).count();
+            out.println(String.format("  #%d %s [%s]", number++, v.getDisplayName(), v.getId()));
+            out.println(String.format("     odometer      %,d km (%,.0f km driven, %,.0f km/month)",
+                    v.getKilometer(), v.getKilometersDriven(), v.getKilometersPerMonth()));
+            out.println(String.format("     expenses      %,d: %s", v.getExpenses().size(), money(v.getExpenseTotalsByCurrency())));
+            out.println(String.format("     running cost  %s per km", money(v.getRunningCostPerKm())));
+            double totalCost = v.getExpenseTotal(CurrencyRates.BASE);
+            out.println(String.format("     total cost    %,.2f %s (at each expense's exchange rate%s)", totalCost, CurrencyRates.BASE,
+                    v.getUnconvertedCount() > 0 ? ", " + v.getUnconvertedCount() + " without rates left out" : ""));
+            out.println(String.format("     dream spec    %d/%d done: %s", done, v.getDreamList().size(), money(v.getDreamTotalsByCurrency())));
+            out.println(String.format("     track days    %,d sessions, %d personal bests",
+                    v.getTrackLog().size(), v.getTrackRecords().personalBests().size()));
+            v.getExpenseTotalsByCurrency().forEach((currency, total) -> garageTotals.merge(currency, total, Double::sum));
+        }
+        out.println("  total expenses: " + money(garageTotals));
+        out.println();
+    }
+
+    private static String money(Map<String, Double> totals) {
+        if (totals.isEmpty()) return "-";
+        List<String> parts = new ArrayList<>();
+        totals.forEach((currency, amount) -> parts.add(String.format("%,.2f %s", amount, currency)));
+        return String.join(", ", parts);
+    }
+
+    // --- STATS ---
+
+    /**
+     * Like a short report, but straight from the mapped snapshots: nothing is loaded, so it stays
+     * fast on any amount of data. Changes still in the journals are not counted.
+     */
+    private static int stats(String username) throws IOException {
+        long start = System.nanoTime();
+        try (GarageArchive archive = DataBaseManager.openArchive()) {
+            long opened = System.nanoTime();
+            List<GarageArchive.UserView> users = archive.users();
+            if (username != null) {
+                GarageArchive.UserView user = archive.user(username);
+                if (user == null) return fail("No snapshot of user: " + username);
+                users = List.of(user);
+            }
+            for (GarageArchive.UserView user : users) {
+                out.println(user.username() + " (" + user.vehicles().size() + " vehicles)");
+                int number = 1;
+                for (GarageArchive.VehicleView v : user.vehicles()) {
+                    out.println(String.format("  #%d %s [%s]: %,d expenses, %,d dream items, %,d sessions",
+                            number++, v.displayName(), v.id(), v.expenseCount(), v.dreamCount(), v.sessionCount()));
+                    out.println("     expenses " + money(v.expenseTotalsByCurrency()));
+                }
+            }
+            out.println(String.format("(%,d MB mapped in %,d ms, read in %,d ms)", archive.mappedBytes() / (1024 * 1024),
+                    (opened - start) / 1_000_000, (System.nanoTime() - opened) / 1_000_000));
+        }
+        return 0;
+    }
+
+    // --- FLEET ---
+
+    private static int fleet(Path folder) throws IOException {
+        long start = System.nanoTime();
+        List<User> users = DataBaseManager.loadUsers();
+        long loaded = System.nanoTime();
+        FleetAnalytics.Totals totals = FleetAnalytics.analyze(users);
+        long analyzed = System.nanoTime();
+
+        out.println(String.format("%,d users, %,d vehicles, %,d expenses, %,d track sessions",
+                totals.users, totals.vehicles, totals.expenses, totals.trackSessions));
+        out.println(String.format("(loaded in %,d ms, analyzed in %,d ms on %d cores)",
+                (loaded - start) / 1_000_000, (analyzed - loaded) / 1_000_000, Runtime.getRuntime().availableProcessors()));
+
+        FleetAnalytics.Table[] tables = { totals.spendByBrand(), totals.costPerKmByGeneration(), totals.topTracks(FLEET_TOP_TRACKS) };
+        if (folder != null) Files.createDirectories(folder);
+        for (FleetAnalytics.Table table : tables) {
+            out.println();
+            print(table);
+            if (folder != null) {
+                Path csv = folder.resolve(table.name + ".csv");
+                table.writeCsv(csv);
+                out.println("-> " + csv);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Prints a table with aligned columns.
+     */
+    private static void print(FleetAnalytics.Table table) {
+        List<String[]> lines = new ArrayList<>();
+        lines.add(table.columns);
+        for (Object[] row : table.rows) {
+            String[] cells = new String[row.length];
+            for (int i = 0; i < row.length; i++) {
+                Object value = row[i];
+                cells[i] = value instanceof Double ? String.format(Math.abs((Double) value) < 10 ? "%,.4f" : "%,.2f", (Double) value)
+                        : value instanceof Number ? String.format("%,d", ((Number) value).longValue()) : String.valueOf(value);
+            }
+            lines.add(cells);
+        }
+        int[] widths = new int[table.columns.length];
+        for (String[] cells : lines) {
+            for (int i = 0; i < cells.length; i++) widths[i] = Math.max(widths[i], cells[i].length());
+        }
+        out.println(table.name);
+        for (String[] cells : lines) {
+            StringBuilder line = new StringBuilder();
+            for (int i = 0; i < cells.length; i++) line.append(String.format("%-" + (widths[i] + 2) + "s", cells[i]));
+            out.println(line.toString().trim());
+        }
+    }
+
+    // --- IMPORT / EXPORT ---
+
+    private static int transfer(boolean importing, String username, String vehicleArg, CsvTransfer.Kind kind, Path file) throws IOException {
+        User user = DataBaseManager.loadUser(username);
+        if (user == null) return fail("No such user: " + username);
+        Vehicle v = findVehicle(user, vehicleArg);
+        if (v == null) return fail("No such vehicle: " + vehicleArg);
+
+        if (!importing) {
+            int rows = CsvTransfer.exportFile(v, kind, file);
+            out.println(String.format("Exported %,d rows to %s", rows, file));
+            return 0;
+        }
+        CsvTransfer.Report report = CsvTransfer.importFile(file, kind, CsvTransfer.DEFAULT_BATCH_SIZE,
+                batch -> CsvTransfer.addToVehicle(user, v, batch), null);
+        int unsaved = PersistenceService.flush();
+        if (unsaved > 0) return fail(String.format("%,d imported rows could not be saved", unsaved));
+        out.println(String.format("Imported %,d rows, skipped %,d", report.imported, report.rejected));
+        for (String error : report.errors) out.println("  " + error);
+        return 0;
+    }
+
+    /**
+     * @param arg A vehicle id, or the vehicle's number in the report (1 = first).
+     */
+    private static Vehicle findVehicle(User user, String arg) {
+        Vehicle byId = user.findVehicle(arg);
+        if (byId != null) return byId;
+        try {
+            int number = Integer.parseInt(arg.startsWith("#") ? arg.substring(1) : arg);
+            if (number >= 1 && number <= user.getGarage().size()) return user.getGarage().get(number - 1);
+        } catch (NumberFormatException ignored) {}
+        return null;
+    }
+
+    private static CsvTransfer.Kind kind(String arg) {
+        switch (arg.toLowerCase(Locale.ROOT)) {
+            case "expenses": return CsvTransfer.Kind.EXPENSES;
+            case "dream": return CsvTransfer.Kind.DREAM_ITEMS;
+            case "track": return CsvTransfer.Kind.TRACK_SESSIONS;
+            default: return CsvTransfer.Kind.valueOf(arg.toUpperCase(Locale.ROOT));
+        }
+    }
+
+    // --- INTEGRITY CHECK ---
+
+    private static int check(List<String> usernames) {
+        int failed = 0;
+        for (String username : usernames) {
+            List<String> problems = new ArrayList<>();
+            User user = DataBaseManager.check(username, problems);
+            if (user != null) checkGarage(user, problems);
+            if (problems.isEmpty()) {
+                out.println(username + ": OK");
+            } else {
+                failed++;
+                out.println(username + ": " + problems.size() + " problem(s)");
+                for (String problem : problems) out.println("  " + problem);
+            }
+        }
+        out.println(String.format("%d users checked, %d with problems", usernames.size(), failed));
+        return failed == 0 ? 0 : 1;
+    }
+
+    /**
+     * Checks the in-memory data: unique vehicle ids, and running totals matching the expenses they summarize.
+     */
+    private static void checkGarage(User user, List<String> problems) {
+        Set<String> ids = new HashSet<>();
+        for (Vehicle v : user.getGarage()) {
+            if (!ids.add(v.getId())) problems.add("vehicle id " + v.getId() + " is used twice");
+            Map<String, Double> sums = new LinkedHashMap<>();
+            for (Expense e : v.getExpenses()) sums.merge(e.getCurrency(), e.getAmount(), Double::sum);
+            Map<String, Double> totals = v.getExpenseTotalsByCurrency();
+            Set<String> currencies = new HashSet<>(sums.keySet());
+            currencies.addAll(totals.keySet());
+            for (String currency : currencies) {
+                double expected = sums.getOrDefault(currency, 0.0);
+                double actual = totals.getOrDefault(currency, 0.0);
+                if (Math.abs(expected - actual) > 0.005 * Math.max(1, v.getExpenses().size())) {
+                    problems.add(String.format("%s: %s total is %,.2f but the expenses add up to %,.2f", v.getDisplayName(), currency, actual, expected));
+                }
+            }
+        }
+    }
+
+    // --- ROLLBACK ---
+
+    private static int rollback(String username, int generation) throws IOException {
+        User user = DataBaseManager.rollback(username, generation);
+        if (user == null) return fail("No snapshot " + generation + " of user " + username);
+        out.println(String.format("%s: restored snapshot %d (%d vehicles), \"rollback %s\" undoes it",
+                username, generation, user.getGarage().size(), username));
+        return 0;
+    }
+
+    // --- HELPERS ---
+
+    /**
+     * @return The user given after the command, or every registered user.
+     */
+    private static List<String> usersFrom(String[] args) throws IOException {
+        return args.length > 1 ? List.of(args[1]) : DataBaseManager.usernames();
+    }
+
+    private static int usage() {
+        out.println(USAGE);
+        return 2;
+    }
+
+    private static int fail(String message) {
+        System.err.println("❌ " + message);
+        return 1;
+    }
+}
@@ -0,0 +1,434 @@
+package MyGarage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Compact, versioned binary format for one user's garage.
+ * Replaces Java serialization: no class descriptors, no reflection, enums are stored as ordinals,
+ * dates as epoch-day ints and every string once in a shared dictionary (rows refer to it by id).
+ * The short values that repeat across records (see {@link SymbolTable}) have a table of their own,
+ * written straight from the records' symbol ids and interned once per distinct value on load.
+ *
+ * Layout (version 8, big-endian):
+ * <pre>
+ *   byte  version
+ *   int   byte length of the string table, so readers can skip it   (version 5+)
+ *   int   string count, then per string: int length + UTF-8 bytes    (id 0 = null, ids start at 1)
+ *   int   byte length of the symbol table                             (version 7+)
+ *   int   symbol count, then per symbol: int length + UTF-8 bytes    (id 0 = null, ids start at 1)
+ *   int   username, password, email                                   (string ids)
+ *   int   vehicle count, then per vehicle:
+ *           int id, brand*, model*, generation*, year, color*          (string ids, * symbol ids)
+ *           int kilometer, power, torque
+ *           int expense count, per row:  byte category (-1 = none), double amount, int currency*, int description, int date, long id
+ *           int dream count, per row:    byte category (-1 = none), int description, double cost, int currency*, int date, byte done,
+ *                                        long id
+ *           int session count, per row:  int track*, int lap ms, int lap text, int date, int conditions*, int tires*,
+ *                                        int sector 1..3 ms, int telemetry file, long id
+ *           int odometer reading count, int byte length, then the encoded readings (see OdometerLog)
+ * </pre>
+ * Every row has a fixed size, so a reader can jump straight to row N of a log. From version 6 the
+ * rows of each log are preceded by a format byte and long logs are stored in compressed blocks
+ * (see {@link BlockCodec}); the row layouts above stay the same inside a block.
+ * The lap text is only stored for old sessions whose time could not be parsed (0 otherwise).
+ * Version 1 stored the lap time as text only (int track, int lapTime, ...; 20 bytes per session),
+ * version 2 had no sector times and telemetry file (24 bytes per session),
+ * version 3 had no odometer history, version 4 no string table length,
+ * version 5 no compressed logs, version 6 no symbol table (the fields marked * were string ids),
+ * version 7 no record ids (those records are numbered by their position, see {@link Vehicle}).
+ */
+class GarageCodec {
+
+    static final byte VERSION = 8;
+    static final int EXPENSE_SIZE = 29;
+    static final int DREAM_SIZE = 30;
+    private static final int SESSION_SIZE = 48;
+    private static final int NO_DATE = ExpenseLog.NO_DATE;
+
+    // --- ENCODING ---
+
+    /**
+     * Encodes a user and its whole garage.
+     */
+    static byte[] encode(User user) {
+        // Pass 1: collect every distinct string and symbol (symbols by id, their text is not hashed)
+        Dictionary dict = new Dictionary();
+        Symbols symbols = new Symbols();
+        dict.add(user.getUsername()); dict.add(user.getPassword()); dict.add(user.getEmail());
+        for (Vehicle v : user.getGarage()) {
+            dict.add(v.getId()); dict.add(v.getYear());
+            symbols.add(v.brandId()); symbols.add(v.modelId()); symbols.add(v.generationId()); symbols.add(v.colorId());
+            ExpenseLog expenses = v.getExpenseLog();
+            for (int r = 0; r < expenses.size(); r++) { symbols.add(expenses.currencySymbol(r)); dict.add(expenses.description(r)); }
+            for (DreamItem d : v.getDreamList()) { dict.add(d.getDescription()); symbols.add(d.getCurrencyId()); }
+            for (TrackSession t : v.getTrackLog()) {
+                symbols.add(t.trackId()); dict.add(lapText(t)); symbols.add(t.conditionsId()); symbols.add(t.tiresId());
+                dict.add(t.getTelemetryFile());
+            }
+        }
+
+        // Pass 2: every log in its stored (compressed) form, then the size of the whole is known exactly
+        List<byte[][]> logs = new ArrayList<>(user.getGarage().size());
+        int size = 1 + 4 + dict.encodedSize() + 4 + symbols.encodedSize() + 12 + 4;
+        for (Vehicle v : user.getGarage()) {
+            byte[][] vehicleLogs = { expenseLog(v, dict, symbols), dreamLog(v, dict, symbols), sessionLog(v, dict, symbols) };
+            logs.add(vehicleLogs);
+            size += 24 + 12 + 12 + vehicleLogs[0].length + vehicleLogs[1].length + vehicleLogs[2].length
+                    + 8 + v.getOdometerLog().encodedSize();
+        }
+        ByteBuffer out = ByteBuffer.allocate(size);
+
+        out.put(VERSION);
+        out.putInt(dict.encodedSize());
+        dict.write(out);
+        out.putInt(symbols.encodedSize());
+        symbols.write(out);
+        out.putInt(dict.id(user.getUsername())).putInt(dict.id(user.getPassword())).putInt(dict.id(user.getEmail()));
+
+        out.putInt(user.getGarage().size());
+        for (int i = 0; i < user.getGarage().size(); i++) {
+            Vehicle v = user.getGarage().get(i);
+            out.putInt(dict.id(v.getId())).putInt(symbols.id(v.brandId())).putInt(symbols.id(v.modelId()))
+               .putInt(symbols.id(v.generationId())).putInt(dict.id(v.getYear())).putInt(symbols.id(v.colorId()));
+            out.putInt(v.getKilometer()).putInt(v.getPower()).putInt(v.getTorque());
+
+            out.putInt(v.getExpenseLog().size()).put(logs.get(i)[0]);
+            out.putInt(v.getDreamList().size()).put(logs.get(i)[1]);
+            out.putInt(v.getTrackLog().size()).put(logs.get(i)[2]);
+
+            OdometerLog odometer = v.getOdometerLog();
+            out.putInt(odometer.size()).putInt(odometer.encodedSize());
+            out.put(odometer.encoded());
+        }
+        return out.array();
+    }
+
+    private static byte[] expenseLog(Vehicle v, Dictionary dict, Symbols symbols) {
+        // Copied column by column, no Expense objects are created
+        ExpenseLog expenses = v.getExpenseLog();
+        ByteBuffer rows = ByteBuffer.allocate(expenses.size() * EXPENSE_SIZE);
+        for (int r = 0; r < expenses.size(); r++) {
+            rows.put((byte) expenses.categoryOrdinal(r));
+            rows.putDouble(expenses.amount(r));
+            rows.putInt(symbols.id(expenses.currencySymbol(r))).putInt(dict.id(expenses.description(r)));
+            rows.putInt(expenses.epochDay(r));
+            rows.putLong(expenses.id(r));
+        }
+        return BlockCodec.encode(rows.array(), expenses.size(), EXPENSE_SIZE, 17);
+    }
+
+    private static byte[] dreamLog(Vehicle v, Dictionary dict, Symbols symbols) {
+        ByteBuffer rows = ByteBuffer.allocate(v.getDreamList().size() * DREAM_SIZE);
+        for (DreamItem d : v.getDreamList()) {
+            rows.put((byte) (d.getCategory() == null ? -1 : d.getCategory().ordinal()));
+            rows.putInt(dict.id(d.getDescription()));
+            rows.putDouble(d.getEstimatedCost());
+            rows.putInt(symbols.id(d.getCurrencyId()));
+            rows.putInt(epochDay(d.getPlannedDate()));
+            rows.put((byte) (d.isDone() ? 1 : 0));
+            rows.putLong(d.getId());
+        }
+        return BlockCodec.encode(rows.array(), v.getDreamList().size(), DREAM_SIZE, 17);
+    }
+
+    private static byte[] sessionLog(Vehicle v, Dictionary dict, Symbols symbols) {
+        ByteBuffer rows = ByteBuffer.allocate(v.getTrackLog().size() * SESSION_SIZE);
+        for (TrackSession t : v.getTrackLog()) {
+            rows.putInt(symbols.id(t.trackId())).putInt(t.getLapTimeMillis()).putInt(dict.id(lapText(t)));
+            rows.putInt(epochDay(t.getDate()));
+            rows.putInt(symbols.id(t.conditionsId())).putInt(symbols.id(t.tiresId()));
+            for (int s = 0; s < TelemetryImporter.SECTORS; s++) rows.putInt(t.getSectorMillis(s));
+            rows.putInt(dict.id(t.getTelemetryFile()));
+            rows.putLong(t.getId());
+        }
+        return BlockCodec.encode(rows.array(), v.getTrackLog().size(), SESSION_SIZE, 12);
+    }
+
+    // --- DECODING ---
+
+    /**
+     * Decodes a user previously written with {@link #encode(User)}.
+     */
+    static User decode(ByteBuffer in) throws IOException {
+        byte version = in.get();
+        if (version < 1 || version > VERSION) throw new IOException("Unsupported data version: " + version);
+        if (version >= 5) in.getInt(); // String table length, only needed to skip it
+
+        String[] strings = readDictionary(in);
+        IntUnaryOperator symbol;
+        if (version >= 7) {
+            in.getInt(); // Symbol table length
+            int[] symbols = readSymbols(in);
+            symbol = id -> symbols[id];
+        } else {
+            symbol = id -> SymbolTable.id(strings[id]); // Symbols were plain strings
+        }
+        User user = new User(str(strings, in.getInt()), str(strings, in.getInt()), str(strings, in.getInt()));
+
+        int vehicleCount = in.getInt();
+        for (int i = 0; i < vehicleCount; i++) {
+            Vehicle v = new Vehicle(str(strings, in.getInt()), symbol.applyAsInt(in.getInt()), symbol.applyAsInt(in.getInt()),
+                    symbol.applyAsInt(in.getInt()), str(strings, in.getInt()), symbol.applyAsInt(in.getInt()),
+                    in.getInt(), in.getInt(), in.getInt());
+
+            ExpenseLog expenses = v.getExpenseLog();
+            int expenseCount = in.getInt();
+            expenses.ensureCapacity(expenseCount);
+            readRows(in, version, expenseCount, expenseSize(version),
+                    row -> expenses.add(row.get(), row.getDouble(), symbol.applyAsInt(row.getInt()), str(strings, row.getInt()), row.getInt(),
+                            version >= 8 ? row.getLong() : 0));
+
+            DreamItem.DreamCategory[] dreamCategories = DreamItem.DreamCategory.values();
+            readRows(in, version, in.getInt(), dreamSize(version), row -> {
+                byte category = row.get();
+                DreamItem d = new DreamItem(category < 0 ? null : dreamCategories[category], str(strings, row.getInt()), row.getDouble(),
+                        symbol.applyAsInt(row.getInt()), date(row.getInt()), 0);
+                d.setDone(row.get() != 0);
+                if (version >= 8) d.setId(row.getLong());
+                v.addDreamItem(d);
+            });
+
+            readRows(in, version, in.getInt(), sessionSize(version), row -> v.addTrackSession(readSession(row, version, id -> str(strings, id), symbol)));
+
+            if (version >= 4) {
+                int readings = in.getInt();
+                byte[] encoded = new byte[in.getInt()];
+                in.get(encoded);
+                v.setOdometerLog(OdometerLog.decode(encoded, readings));
+            }
+            user.addVehicleToGarage(v);
+        }
+        return user;
+    }
+
+    /**
+     * Passes a buffer positioned at each row of a log to the consumer, inflating compressed logs
+     * one block at a time (version 6).
+     */
+    private static void readRows(ByteBuffer in, byte version, int count, int rowSize, Consumer<ByteBuffer> row) throws IOException {
+        if (version >= 6) {
+            BlockCodec.read(in, count, rowSize, row);
+        } else {
+            for (int r = 0; r < count; r++) row.accept(in);
+        }
+    }
+
+    /**
+     * Reads one track session row.
+     * @param strings Resolves string ids.
+     * @param symbols Turns stored symbol ids into {@link SymbolTable} ids.
+     */
+    static TrackSession readSession(ByteBuffer in, byte version, IntFunction<String> strings, IntUnaryOperator symbols) {
+        int track = symbols.applyAsInt(in.getInt());
+        int lapMillis;
+        String lapText;
+        if (version == 1) {
+            lapText = strings.apply(in.getInt());
+            lapMillis = LapTime.tryParse(lapText);
+        } else {
+            lapMillis = in.getInt();
+            lapText = strings.apply(in.getInt());
+        }
+        LocalDate date = date(in.getInt());
+        TrackSession session = new TrackSession(track, lapMillis, lapText, date, symbols.applyAsInt(in.getInt()), symbols.applyAsInt(in.getInt()), 0);
+        if (version >= 3) {
+            int[] sectors = new int[TelemetryImporter.SECTORS];
+            boolean anySector = false;
+            for (int s = 0; s < sectors.length; s++) {
+                sectors[s] = in.getInt();
+                anySector |= sectors[s] != LapTime.INVALID;
+            }
+            String telemetry = strings.apply(in.getInt());
+            if (anySector || telemetry != null) session.setTelemetry(telemetry, LapTime.INVALID, anySector ? sectors : null);
+        }
+        if (version >= 8) session.setId(in.getLong());
+        return session;
+    }
+
+    /**
+     * @return Bytes per expense row in the given version.
+     */
+    static int expenseSize(byte version) {
+        return version >= 8 ? EXPENSE_SIZE : EXPENSE_SIZE - 8;
+    }
+
+    /**
+     * @return Bytes per Dream Spec row in the given version.
+     */
+    static int dreamSize(byte version) {
+        return version >= 8 ? DREAM_SIZE : DREAM_SIZE - 8;
+    }
+
+    /**
+     * @return Bytes per track session row in the given version.
+     */
+    static int sessionSize(byte version) {
+        return version == 1 ? 20 : version == 2 ? 24 : version < 8 ? SESSION_SIZE - 8 : SESSION_SIZE;
+    }
+
+    /**
+     * @return The lap time text that has to be stored, or null if the milliseconds are enough.
+     */
+    private static String lapText(TrackSession t) {
+        return t.hasValidLapTime() ? null : t.getLapTime();
+    }
+
+    private static String[] readDictionary(ByteBuffer in) {
+        int count = in.getInt();
+        String[] strings = new String[count + 1]; // Index 0 stays null
+        for (int i = 1; i <= count; i++) {
+            int length = in.getInt();
+            strings[i] = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+        }
+        return strings;
+    }
+
+    /**
+     * @return The {@link SymbolTable} id of every stored symbol (index 0 stays 0).
+     */
+    private static int[] readSymbols(ByteBuffer in) {
+        int[] symbols = new int[in.getInt() + 1];
+        for (int i = 1; i < symbols.length; i++) {
+            int length = in.getInt();
+            symbols[i] = SymbolTable.id(new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8));
+            in.position(in.position() + length);
+        }
+        return symbols;
+    }
+
+    private static String str(String[] strings, int id) {
+        return strings[id];
+    }
+
+    private static int epochDay(LocalDate date) {
+        return date == null ? NO_DATE : (int) date.toEpochDay();
+    }
+
+    static LocalDate date(int epochDay) {
+        return epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    // --- OLD JAVA SERIALIZATION FORMAT ---
+
+    /**
+     * Converts a user read by {@link MyGarage.legacy.LegacyReader} into the current classes.
+     */
+    static User fromLegacy(MyGarage.legacy.User old) {
+        User user = new User(old.getUsername(), old.getPassword(), old.getEmail());
+        if (old.getGarage() == null) return user;
+
+        for (MyGarage.legacy.Vehicle ov : old.getGarage()) {
+            Vehicle v = new Vehicle(ov.getId(), ov.getBrand(), ov.getModel(), ov.getGeneration(),
+                    ov.getYear(), ov.getColor(), ov.getKilometer(), ov.getPower(), ov.getTorque());
+            // The old classes allowed a record without a category
+            for (MyGarage.legacy.Expense e : ov.getExpenses()) {
+                v.addExpense(new Expense(e.getCategory() == null ? null : Expense.ExpenseCategory.valueOf(e.getCategory().name()),
+                        e.getAmount(), e.getCurrency(), e.getDescription(), e.getDate(), 0)); // Numbered by position
+            }
+            for (MyGarage.legacy.DreamItem d : ov.getDreamList()) {
+                DreamItem item = new DreamItem(d.getCategory() == null ? null : DreamItem.DreamCategory.valueOf(d.getCategory().name()),
+                        d.getDescription(), d.getEstimatedCost(), d.getCurrency(), d.getPlannedDate());
+                item.setDone(d.isDone());
+                item.setId(0);
+                v.addDreamItem(item);
+            }
+            for (MyGarage.legacy.TrackSession t : ov.getTrackLog()) {
+                TrackSession session = new TrackSession(t.getTrackName(), t.getLapTime(), t.getDate(), t.getConditions(), t.getTires());
+                session.setId(0);
+                v.addTrackSession(session);
+            }
+            user.addVehicleToGarage(v);
+        }
+        return user;
+    }
+
+    static ArrayList<User> fromLegacy(List<MyGarage.legacy.User> old) {
+        ArrayList<User> users = new ArrayList<>(old.size());
+        for (MyGarage.legacy.User u : old) users.add(fromLegacy(u));
+        return users;
+    }
+
+    // --- STRING DICTIONARY ---
+
+    /**
+     * Assigns an id to every distinct string (in first-seen order).
+     */
+    private static class Dictionary {
+        private final HashMap<String, Integer> ids = new HashMap<>();
+        private final ArrayList<byte[]> encoded = new ArrayList<>();
+        private int bytes;
+
+        void add(String s) {
+            if (s == null || ids.containsKey(s)) return;
+            byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+            encoded.add(utf8);
+            ids.put(s, encoded.size());
+            bytes += 4 + utf8.length;
+        }
+
+        int id(String s) {
+            return s == null ? 0 : ids.get(s);
+        }
+
+        int encodedSize() {
+            return 4 + bytes;
+        }
+
+        void write(ByteBuffer out) {
+            out.putInt(encoded.size());
+            for (byte[] utf8 : encoded) {
+                out.putInt(utf8.length);
+                out.put(utf8);
+            }
+        }
+    }
+
+    // --- SYMBOL TABLE ---
+
+    /**
+     * Assigns a local id to every distinct {@link SymbolTable} id (in first-seen order).
+     * Lookups are array reads: the text of a symbol is only encoded once, when it is first seen.
+     */
+    private static class Symbols {
+        private int[] ids = new int[SymbolTable.size()]; // SymbolTable id -> local id (0 = not seen yet)
+        private final ArrayList<byte[]> encoded = new ArrayList<>();
+        private int bytes;
+
+        void add(int symbol) {
+            if (symbol == SymbolTable.NONE) return;
+            if (symbol >= ids.length) ids = Arrays.copyOf(ids, Math.max(symbol + 1, ids.length * 2)); // Symbol added after the table was sized
+            if (ids[symbol] != 0) return;
+            byte[] utf8 = SymbolTable.name(symbol).getBytes(StandardCharsets.UTF_8);
+            encoded.add(utf8);
+            ids[symbol] = encoded.size();
+            bytes += 4 + utf8.length;
+        }
+
+        int id(int symbol) {
+            return symbol == SymbolTable.NONE ? 0 : ids[symbol];
+        }
+
+        int encodedSize() {
+            return 4 + bytes;
+        }
+
+        void write(ByteBuffer out) {
+            out.putInt(encoded.size());
+            for (byte[] utf8 : encoded) {
+                out.putInt(utf8.length);
+                out.put(utf8);
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package MyGarage;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Unique, time-ordered 64-bit ids for new vehicles and for the records of their logs
+ * (expenses, Dream Spec items and track sessions).
+ * An id is the current time in milliseconds shifted left by {@value #SEQUENCE_BITS} bits, so
+ * up to 4096 ids per millisecond follow each other in order; a burst beyond that borrows from
+ * the next milliseconds. Ids only ever grow, even if the clock is set back, and the ids found
+ * on load are observed so a new id never repeats one from an earlier run.
+ *
+ * Older vehicles keep their ids (plain millisecond timestamps, far below the ids made here), and
+ * records saved before they had ids are numbered by their position in the log (see {@link Vehicle}).
+ * No lock: concurrent callers retry a compare-and-set.
+ */
+class IdGenerator {
+
+    static final int SEQUENCE_BITS = 12;
+
+    private static final AtomicLong last = new AtomicLong();
+
+    private IdGenerator() {}
+
+    /**
+     * @return A new id, greater than every id handed out or observed before.
+     */
+    static long next() {
+        long now = System.currentTimeMillis() << SEQUENCE_BITS;
+        while (true) {
+            long previous = last.get();
+            long id = Math.max(now, previous + 1);
+            if (last.compareAndSet(previous, id)) return id;
+        }
+    }
+
+    /**
+     * @return {@link #next()} as the text stored in {@link Vehicle#getId()}.
+     */
+    static String nextText() {
+        return Long.toString(next());
+    }
+
+    /**
+     * Makes sure later ids are greater than an existing one (ids that are not numbers are ignored).
+     */
+    static void observe(String id) {
+        long value;
+        try {
+            value = Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            return;
+        }
+        observe(value);
+    }
+
+    /**
+     * Makes sure later ids are greater than an existing one.
+     * Only reads the counter when it is already ahead, which is the usual case while loading.
+     */
+    static void observe(long id) {
+        long previous;
+        while ((previous = last.get()) < id) {
+            if (last.compareAndSet(previous, id)) return;
+        }
+    }
+}
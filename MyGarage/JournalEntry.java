@@ -0,0 +1,333 @@
+package MyGarage;
+
+import java.io.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Map;
+
+/**
+ * A single mutation recorded in the append-only journal.
+ * Instead of rewriting the whole database after every click, the dashboard appends
+ * one of these small records. On startup the records are replayed on top of the
+ * last snapshot to rebuild the current state.
+ */
+public class JournalEntry {
+
+    // Every kind of change the UI can make to the stored data.
+    // ADD_USER only appears in journals of the old single-file database, and SET_DREAM_DONE
+    // (item addressed by its position) in journals from before records had ids.
+    // The ordinals are stored on disk, so new operations must be added at the end.
+    public enum Op {
+        ADD_USER, ADD_VEHICLE, REMOVE_VEHICLE, SET_KILOMETER,
+        ADD_EXPENSE, ADD_DREAM_ITEM, SET_DREAM_DONE, ADD_TRACK_SESSION,
+        SET_DREAM_ITEM_DONE
+    }
+
+    private final Op op;
+    private final String username;
+    private String vehicleId;
+
+    // Payload (only the fields relevant to the operation are set)
+    private Vehicle vehicle;
+    private Expense expense;
+    private DreamItem dreamItem;
+    private TrackSession session;
+    private int value;      // Kilometer (or dream item index in older journals)
+    private long recordId;  // Dream item id
+    private LocalDate date; // Day of an odometer reading
+    private boolean flag;   // Dream item "done" status
+
+    private JournalEntry(Op op, String username) {
+        this.op = op;
+        this.username = username;
+    }
+
+    // --- FACTORY METHODS (one per operation) ---
+
+    public static JournalEntry addVehicle(User user, Vehicle v) {
+        JournalEntry e = new JournalEntry(Op.ADD_VEHICLE, user.getUsername());
+        e.vehicleId = v.getId();
+        e.vehicle = v;
+        return e;
+    }
+
+    public static JournalEntry removeVehicle(User user, Vehicle v) {
+        JournalEntry e = new JournalEntry(Op.REMOVE_VEHICLE, user.getUsername());
+        e.vehicleId = v.getId();
+        return e;
+    }
+
+    public static JournalEntry setKilometer(User user, Vehicle v) {
+        JournalEntry e = new JournalEntry(Op.SET_KILOMETER, user.getUsername());
+        e.vehicleId = v.getId();
+        e.value = v.getKilometer();
+        e.date = v.getOdometerLog().lastDate();
+        return e;
+    }
+
+    public static JournalEntry addExpense(User user, Vehicle v, Expense expense) {
+        JournalEntry e = new JournalEntry(Op.ADD_EXPENSE, user.getUsername());
+        e.vehicleId = v.getId();
+        e.expense = expense;
+        return e;
+    }
+
+    public static JournalEntry addDreamItem(User user, Vehicle v, DreamItem item) {
+        JournalEntry e = new JournalEntry(Op.ADD_DREAM_ITEM, user.getUsername());
+        e.vehicleId = v.getId();
+        e.dreamItem = item;
+        return e;
+    }
+
+    /**
+     * Records a checkbox toggle in the Dream Spec table.
+     * @param item The item, addressed by its id.
+     */
+    public static JournalEntry setDreamDone(User user, Vehicle v, DreamItem item, boolean done) {
+        JournalEntry e = new JournalEntry(Op.SET_DREAM_ITEM_DONE, user.getUsername());
+        e.vehicleId = v.getId();
+        e.recordId = item.getId();
+        e.flag = done;
+        return e;
+    }
+
+    public static JournalEntry addTrackSession(User user, Vehicle v, TrackSession session) {
+        JournalEntry e = new JournalEntry(Op.ADD_TRACK_SESSION, user.getUsername());
+        e.vehicleId = v.getId();
+        e.session = session;
+        return e;
+    }
+
+    public Op getOp() { return op; }
+    public String getUsername() { return username; }
+    public String getVehicleId() { return vehicleId; }
+
+    // --- REPLAY ---
+
+    /**
+     * Applies this change to the user it belongs to.
+     * @param user The user being rebuilt from its snapshot.
+     */
+    void apply(User user) {
+        if (op == Op.ADD_USER) return; // The user already exists once its shard is opened
+        if (op == Op.ADD_VEHICLE) {
+            user.addVehicleToGarage(vehicle);
+            user.indexChange(this);
+            return;
+        }
+
+        Vehicle v = user.findVehicle(vehicleId);
+        if (v == null) {
+            System.out.println("⚠️ Journal entry skipped, unknown vehicle: " + vehicleId);
+            return;
+        }
+        switch (op) {
+            case REMOVE_VEHICLE: user.removeVehicle(v); break;
+            case SET_KILOMETER: v.recordKilometer(value, date); break;
+            case ADD_EXPENSE: v.addExpense(expense); break;
+            case ADD_DREAM_ITEM: v.addDreamItem(dreamItem); break;
+            case SET_DREAM_DONE:
+                if (value >= 0 && value < v.getDreamList().size()) v.getDreamList().get(value).setDone(flag);
+                break;
+            case ADD_TRACK_SESSION: v.addTrackSession(session); break;
+            case SET_DREAM_ITEM_DONE: {
+                DreamItem item = v.findDreamItem(recordId);
+                if (item == null) {
+                    System.out.println("⚠️ Journal entry skipped, unknown Dream Spec item: " + recordId);
+                    return;
+                }
+                item.setDone(flag);
+                break;
+            }
+            default: break;
+        }
+        user.indexChange(this);
+    }
+
+    /**
+     * Applies this change to a list holding every user.
+     * Only needed to migrate the old single-file journal into per-user shards.
+     * @param users    The list being rebuilt (new users are appended to it).
+     * @param byName   Username lookup for the same list, kept in sync.
+     */
+    void apply(ArrayList<User> users, Map<String, User> byName) {
+        User user = byName.get(username);
+        if (user == null && op == Op.ADD_USER) {
+            user = new User(username, "", "");
+            users.add(user);
+            byName.put(username, user);
+        }
+        if (user == null) {
+            System.out.println("⚠️ Journal entry skipped, unknown user: " + username);
+            return;
+        }
+        apply(user);
+    }
+
+    // --- BINARY FORMAT ---
+
+    /**
+     * Encodes this entry right away, capturing the values as they are at this moment.
+     * @return The payload to pass to {@link DataBaseManager#append(String, java.util.List)}.
+     */
+    public byte[] encode() {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(64);
+        try {
+            write(new DataOutputStream(buffer));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Not possible with an in-memory stream
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Writes the payload of this entry (without framing) to the stream.
+     */
+    void write(DataOutputStream out) throws IOException {
+        out.writeByte(op.ordinal());
+        out.writeUTF(username);
+        if (op == Op.ADD_USER) return;
+        out.writeUTF(vehicleId);
+
+        switch (op) {
+            case ADD_VEHICLE:
+                writeString(out, vehicle.getBrand());
+                writeString(out, vehicle.getModel());
+                writeString(out, vehicle.getGeneration());
+                writeString(out, vehicle.getYear());
+                writeString(out, vehicle.getColor());
+                out.writeInt(vehicle.getKilometer());
+                out.writeInt(vehicle.getPower());
+                out.writeInt(vehicle.getTorque());
+                break;
+            case SET_KILOMETER:
+                out.writeInt(value);
+                writeDate(out, date); // Added later, see read()
+                break;
+            case ADD_EXPENSE:
+                writeOrdinal(out, expense.getCategory());
+                out.writeDouble(expense.getAmount());
+                writeString(out, expense.getCurrency());
+                writeString(out, expense.getDescription());
+                writeDate(out, expense.getDate());
+                out.writeLong(expense.getId()); // Added later, see read()
+                break;
+            case ADD_DREAM_ITEM:
+                writeOrdinal(out, dreamItem.getCategory());
+                writeString(out, dreamItem.getDescription());
+                out.writeDouble(dreamItem.getEstimatedCost());
+                writeString(out, dreamItem.getCurrency());
+                writeDate(out, dreamItem.getPlannedDate());
+                out.writeBoolean(dreamItem.isDone());
+                out.writeLong(dreamItem.getId()); // Added later, see read()
+                break;
+            case SET_DREAM_DONE:
+                out.writeInt(value);
+                out.writeBoolean(flag);
+                break;
+            case ADD_TRACK_SESSION:
+                writeString(out, session.getTrackName());
+                writeString(out, session.getLapTime());
+                writeDate(out, session.getDate());
+                writeString(out, session.getConditions());
+                writeString(out, session.getTires());
+                // Added later: older entries end here, which read() detects
+                writeString(out, session.getTelemetryFile());
+                for (int s = 0; s < TelemetryImporter.SECTORS; s++) out.writeInt(session.getSectorMillis(s));
+                out.writeLong(session.getId()); // Added after the telemetry
+                break;
+            case SET_DREAM_ITEM_DONE:
+                out.writeLong(recordId);
+                out.writeBoolean(flag);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Reads an entry previously written with {@link #write(DataOutputStream)}.
+     */
+    static JournalEntry read(DataInputStream in) throws IOException {
+        Op op = Op.values()[in.readUnsignedByte()];
+        JournalEntry e = new JournalEntry(op, in.readUTF());
+        if (op == Op.ADD_USER) return e;
+        e.vehicleId = in.readUTF();
+
+        switch (op) {
+            case ADD_VEHICLE:
+                e.vehicle = new Vehicle(e.vehicleId, readString(in), readString(in), readString(in),
+                        readString(in), readString(in), in.readInt(), in.readInt(), in.readInt());
+                break;
+            case SET_KILOMETER:
+                e.value = in.readInt();
+                if (in.available() > 0) e.date = readDate(in); // Older entries have no date and stay out of the history
+                break;
+            case ADD_EXPENSE:
+                // Older entries have no id: the record is numbered by its position when it is added
+                e.expense = new Expense(readOrdinal(in, Expense.ExpenseCategory.values()),
+                        in.readDouble(), readString(in), readString(in), readDate(in), in.available() > 0 ? in.readLong() : 0);
+                break;
+            case ADD_DREAM_ITEM:
+                e.dreamItem = new DreamItem(readOrdinal(in, DreamItem.DreamCategory.values()),
+                        readString(in), in.readDouble(), readString(in), readDate(in));
+                e.dreamItem.setDone(in.readBoolean());
+                e.dreamItem.setId(in.available() > 0 ? in.readLong() : 0);
+                break;
+            case SET_DREAM_DONE:
+                e.value = in.readInt();
+                e.flag = in.readBoolean();
+                break;
+            case ADD_TRACK_SESSION:
+                e.session = new TrackSession(readString(in), readString(in), readDate(in), readString(in), readString(in));
+                long id = 0;
+                if (in.available() > 0) {
+                    String telemetry = readString(in);
+                    int[] sectors = new int[TelemetryImporter.SECTORS];
+                    for (int s = 0; s < sectors.length; s++) sectors[s] = in.readInt();
+                    if (telemetry != null || sectors[0] != LapTime.INVALID) e.session.setTelemetry(telemetry, LapTime.INVALID, sectors);
+                    if (in.available() > 0) id = in.readLong();
+                }
+                e.session.setId(id);
+                break;
+            case SET_DREAM_ITEM_DONE:
+                e.recordId = in.readLong();
+                e.flag = in.readBoolean();
+                break;
+            default:
+                break;
+        }
+        return e;
+    }
+
+    // Strings and dates coming from the UI may be null, so both carry a presence marker.
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) out.writeUTF(s);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    // Categories may be missing too (e.g. records converted from the old format): -1
+
+    private static void writeOrdinal(DataOutputStream out, Enum<?> value) throws IOException {
+        out.writeByte(value == null ? -1 : value.ordinal());
+    }
+
+    private static <E> E readOrdinal(DataInputStream in, E[] values) throws IOException {
+        byte ordinal = in.readByte();
+        return ordinal < 0 ? null : values[ordinal];
+    }
+
+    private static void writeDate(DataOutputStream out, LocalDate d) throws IOException {
+        out.writeLong(d == null ? Long.MIN_VALUE : d.toEpochDay());
+    }
+
+    private static LocalDate readDate(DataInputStream in) throws IOException {
+        long day = in.readLong();
+        return day == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(day);
+    }
+}
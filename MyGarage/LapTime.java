@@ -0,0 +1,101 @@
+package MyGarage;
+
+/**
+ * Parsing and formatting of lap times.
+ * Lap times are kept as whole milliseconds so they sort and subtract like numbers;
+ * text is only used for input and display.
+ *
+ * Accepted input: "2:15.450", "2:15.45", "2:15", "75.3", "1:02:15.450" and a comma
+ * instead of the dot ("2:15,450").
+ */
+public class LapTime {
+
+    // Marks a session whose stored text could not be read as a time.
+    public static final int INVALID = -1;
+
+    private static final int MAX_MILLIS = 24 * 60 * 60 * 1000;
+
+    private LapTime() {}
+
+    /**
+     * Parses a lap time.
+     * @param text The time as typed by the user (e.g. "2:15.450").
+     * @return The time in milliseconds.
+     * @throws IllegalArgumentException If the text is not a valid lap time.
+     */
+    public static int parse(String text) {
+        if (text == null || text.trim().isEmpty()) throw new IllegalArgumentException("Lap time is empty");
+        String s = text.trim().replace(",", ".");
+
+        // Fraction of a second, up to milliseconds
+        int millis = 0;
+        int dot = s.indexOf('.');
+        if (dot >= 0) {
+            String fraction = s.substring(dot + 1);
+            if (fraction.isEmpty() || fraction.length() > 3 || !isDigits(fraction)) {
+                throw new IllegalArgumentException("Invalid fraction in lap time: " + text);
+            }
+            millis = Integer.parseInt((fraction + "00").substring(0, 3));
+            s = s.substring(0, dot);
+        }
+
+        // [[hours:]minutes:]seconds
+        String[] parts = s.split(":", -1);
+        if (parts.length > 3) throw new IllegalArgumentException("Too many ':' in lap time: " + text);
+        long total = 0;
+        for (int i = 0; i < parts.length; i++) {
+            String part = parts[i];
+            if (part.isEmpty() || part.length() > 6 || !isDigits(part)) throw new IllegalArgumentException("Invalid lap time: " + text);
+            int value = Integer.parseInt(part);
+            // Every field after the first one must stay below 60
+            if (i > 0 && value >= 60) throw new IllegalArgumentException("Invalid lap time: " + text);
+            total = total * 60 + value;
+        }
+        total = total * 1000 + millis;
+
+        if (total <= 0 || total >= MAX_MILLIS) throw new IllegalArgumentException("Lap time out of range: " + text);
+        return (int) total;
+    }
+
+    /**
+     * Parses a lap time, returning {@link #INVALID} instead of throwing.
+     * Used for times stored by older versions, which did not validate the text.
+     */
+    public static int tryParse(String text) {
+        try {
+            return parse(text);
+        } catch (IllegalArgumentException e) {
+            return INVALID;
+        }
+    }
+
+    /**
+     * Formats milliseconds as "m:ss.SSS" (or "h:mm:ss.SSS" for an hour or more).
+     */
+    public static String format(int millis) {
+        if (millis < 0) return "-";
+        int hours = millis / 3_600_000;
+        int minutes = millis / 60_000 % 60;
+        int seconds = millis / 1000 % 60;
+        int ms = millis % 1000;
+        if (hours > 0) return String.format("%d:%02d:%02d.%03d", hours, minutes, seconds, ms);
+        return String.format("%d:%02d.%03d", minutes, seconds, ms);
+    }
+
+    /**
+     * Formats the difference to a reference time, e.g. "+0.532" or "+1:02.345".
+     */
+    public static String formatGap(int gapMillis) {
+        String sign = gapMillis < 0 ? "-" : "+";
+        int abs = Math.abs(gapMillis);
+        if (abs < 60_000) return String.format("%s%d.%03d", sign, abs / 1000, abs % 1000);
+        return sign + format(abs);
+    }
+
+    private static boolean isDigits(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) < '0' || s.charAt(i) > '9') return false;
+        }
+        return true;
+    }
+}
@@ -1,8 +1,12 @@
 package MyGarage;
 
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.scene.control.Alert;
+import javafx.scene.control.ButtonType;
 import javafx.scene.image.Image;
 import javafx.stage.Stage;
+import java.io.IOException;
 
 /**
  * The Main Entry Point of the "MyGarage" Application.
@@ -41,7 +45,13 @@ public class Main extends Application {
             System.out.println("⚠️ Icon could not be loaded: " + e.getMessage());
         }
 
-        // 3. Auto-Login Logic
+        // 3. Only one process may change the data folder at a time
+        if (!lockDataFolder()) {
+            Platform.exit();
+            return;
+        }
+
+        // 4. Auto-Login Logic
         // Check if a user session is already saved in the config file.
         User currentUser = SessionManager.getCurrentUser();
 
@@ -55,6 +65,37 @@ public class Main extends Application {
         }
     }
 
+    /**
+     * Takes the write lock of the data folder (see {@link DataBaseManager#lockForWriting()}).
+     * While another MyGarage window or a command line task holds it, asks to retry.
+     * @return False if the user gave up.
+     */
+    private boolean lockDataFolder() {
+        while (true) {
+            try {
+                if (DataBaseManager.lockForWriting()) return true;
+            } catch (IOException e) {
+                System.out.println("❌ Lock Error: " + e.getMessage());
+                new Alert(Alert.AlertType.ERROR, "The data folder could not be opened:\n" + e.getMessage(), ButtonType.OK).showAndWait();
+                return false;
+            }
+            ButtonType retry = new ButtonType("Retry");
+            Alert alert = new Alert(Alert.AlertType.WARNING, "MyGarage is already open, or the command line tool is changing the data.\n"
+                    + "Close it, then retry.", retry, ButtonType.CANCEL);
+            alert.setHeaderText("Data folder in use");
+            if (alert.showAndWait().orElse(ButtonType.CANCEL) != retry) return false;
+        }
+    }
+
+    /**
+     * Called by JavaFX when the application exits (e.g. the last window was closed).
+     * Makes sure changes still waiting in the background writer reach the disk.
+     */
+    @Override
+    public void stop() {
+        PersistenceService.flush();
+    }
+
     /**
      * Main method to launch the application.
      * @param args Command line arguments
@@ -0,0 +1,153 @@
+package MyGarage;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Mileage analytics of one vehicle, joining the odometer readings with the running costs.
+ * The kilometers between two readings are spread evenly over the days in between and added to
+ * monthly buckets, so a new reading only touches the months since the previous one.
+ * Costs come from the monthly expense rollup, so no query walks the whole history.
+ *
+ * Expenses only have an amount (no liters), so "consumption" is measured as fuel cost per 100 km.
+ */
+class MileageStats {
+
+    // Categories counted as running costs
+    static final Expense.ExpenseCategory[] RUNNING_COSTS = { Expense.ExpenseCategory.FUEL, Expense.ExpenseCategory.MAINTENANCE };
+
+    /**
+     * Kilometers and costs of one calendar month.
+     */
+    static class Month {
+        final YearMonth month;
+        final double kilometers;
+        final Map<String, Double> fuelPer100Km;   // Per currency
+        final Map<String, Double> runningCostPerKm;
+
+        Month(YearMonth month, double kilometers, Map<String, Double> fuelPer100Km, Map<String, Double> runningCostPerKm) {
+            this.month = month;
+            this.kilometers = kilometers;
+            this.fuelPer100Km = fuelPer100Km;
+            this.runningCostPerKm = runningCostPerKm;
+        }
+    }
+
+    private final TreeMap<Integer, Double> kmByMonth = new TreeMap<>(); // month number -> km (see ExpenseRollup.month)
+    private double totalKm;
+    private int firstDay, lastDay;
+    private int previousKm;
+    private int readings;
+
+    /**
+     * Adds the next odometer reading.
+     * A lower value than before (a corrected typo) or an older date counts as nothing driven.
+     */
+    void add(int epochDay, int kilometer) {
+        if (readings == 0) {
+            firstDay = epochDay;
+            lastDay = epochDay;
+        } else {
+            int driven = kilometer - previousKm;
+            if (driven > 0 && epochDay >= lastDay) {
+                spread(lastDay, epochDay, driven);
+                totalKm += driven;
+            }
+            lastDay = Math.max(lastDay, epochDay);
+        }
+        previousKm = kilometer;
+        readings++;
+    }
+
+    /**
+     * Adds km driven after {@code fromDay} up to {@code toDay} to the months they fall in.
+     */
+    private void spread(int fromDay, int toDay, int km) {
+        if (toDay == fromDay) {
+            kmByMonth.merge(ExpenseRollup.month(toDay), (double) km, Double::sum);
+            return;
+        }
+        double perDay = (double) km / (toDay - fromDay);
+        int day = fromDay + 1;
+        while (day <= toDay) {
+            int month = ExpenseRollup.month(day);
+            int monthEnd = Math.min(toDay, ExpenseRollup.firstDay(month + 1) - 1);
+            kmByMonth.merge(month, perDay * (monthEnd - day + 1), Double::sum);
+            day = monthEnd + 1;
+        }
+    }
+
+    // --- QUERIES ---
+
+    double totalKilometers() { return totalKm; }
+
+    /**
+     * @return Average km per month between the first and last reading (0 until two days apart).
+     */
+    double kilometersPerMonth() {
+        int days = lastDay - firstDay;
+        return days <= 0 ? 0 : totalKm * 365.25 / 12 / days;
+    }
+
+    /**
+     * @return Km driven in each month, oldest first.
+     */
+    Map<YearMonth, Double> monthlyKilometers() {
+        Map<YearMonth, Double> result = new LinkedHashMap<>();
+        for (Map.Entry<Integer, Double> m : kmByMonth.entrySet()) result.put(yearMonth(m.getKey()), m.getValue());
+        return result;
+    }
+
+    /**
+     * Cost per km over the whole reading history: expenses of the given categories dated
+     * between the first and last reading, divided by the km driven in that time.
+     * @return Cost per km for each currency (empty until some km were driven).
+     */
+    Map<String, Double> costPerKm(ExpenseLog log, Expense.ExpenseCategory... categories) {
+        if (totalKm <= 0) return new LinkedHashMap<>();
+        return perKm(log, log.totalsBetween(LocalDate.ofEpochDay(firstDay), LocalDate.ofEpochDay(lastDay)), categories, totalKm, 1);
+    }
+
+    /**
+     * Km, fuel cost per 100 km and running cost per km of the last months.
+     * @param log    The vehicle's expenses.
+     * @param months Number of months up to (and including) the month of the last reading.
+     */
+    List<Month> trend(ExpenseLog log, int months) {
+        List<Month> result = new ArrayList<>();
+        if (readings == 0) return result;
+        int last = ExpenseRollup.month(lastDay);
+        for (int month = last - months + 1; month <= last; month++) {
+            double km = kmByMonth.getOrDefault(month, 0.0);
+            Map<String, Double> fuel = new LinkedHashMap<>();
+            Map<String, Double> running = new LinkedHashMap<>();
+            if (km > 0) {
+                double[][] totals = log.totalsBetween(LocalDate.ofEpochDay(ExpenseRollup.firstDay(month)),
+                        LocalDate.ofEpochDay(ExpenseRollup.firstDay(month + 1) - 1));
+                fuel = perKm(log, totals, new Expense.ExpenseCategory[] { Expense.ExpenseCategory.FUEL }, km, 100);
+                running = perKm(log, totals, RUNNING_COSTS, km, 1);
+            }
+            result.add(new Month(yearMonth(month), km, fuel, running));
+        }
+        return result;
+    }
+
+    private static Map<String, Double> perKm(ExpenseLog log, double[][] totals, Expense.ExpenseCategory[] categories, double km, int per) {
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (int currency = 0; currency < totals.length; currency++) {
+            double sum = 0;
+            for (Expense.ExpenseCategory cat : categories) sum += totals[currency][cat.ordinal()];
+            if (sum != 0) result.put(log.currencyName(currency), sum * per / km);
+        }
+        return result;
+    }
+
+    private static YearMonth yearMonth(int month) {
+        return YearMonth.of(Math.floorDiv(month, 12), Math.floorMod(month, 12) + 1);
+    }
+}
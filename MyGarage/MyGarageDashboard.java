@@ -1,24 +1,45 @@
 package MyGarage;
 
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.scene.Node;
 import javafx.scene.Scene;
+import javafx.scene.chart.BarChart;
+import javafx.scene.chart.CategoryAxis;
+import javafx.scene.chart.NumberAxis;
 import javafx.scene.chart.PieChart;
+import javafx.scene.chart.XYChart;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
+import javafx.stage.FileChooser;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 import javafx.stage.StageStyle;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
 
 /**
  * The main dashboard of the application.
@@ -31,7 +52,28 @@ public class MyGarageDashboard {
     private User currentUser;
     private BorderPane mainLayout;
     private VBox vehicleListContainer;
-    private final String[] CURRENCIES = {"TL", "USD", "EUR"};
+    private TextField txtFilter;
+    private ScrollPane welcomeView;
+
+    // Sidebar vehicle list: only the visible rows have cells, the filter is answered by an index
+    private final ObservableList<Vehicle> sidebarVehicles = FXCollections.observableArrayList();
+    private final FilteredList<Vehicle> shownVehicles = new FilteredList<>(sidebarVehicles);
+    private final VehicleFilter vehicleFilter = new VehicleFilter();
+    private Label lblSaveStatus;
+    private final List<String> CURRENCIES = CurrencyRates.current().choices();
+    private String displayCurrency = CurrencyRates.BASE; // Converted totals and the pie chart are shown in it
+    private final String[] TREND_VIEWS = {"Monthly (last 12 months)", "Yearly", "Last 90 days by category"};
+    private final int SEARCH_LIMIT = 200; // Results shown in the sidebar
+    private final int VIEW_CACHE_SIZE = 5; // Vehicles whose built views are kept
+    private static final String REFRESH_KEY = "mygarage.refresh";
+
+    // Built vehicle views, least recently shown first; switching back to one of them is instant
+    private final Map<String, VehicleView> views = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, VehicleView> eldest) {
+            return size() > VIEW_CACHE_SIZE;
+        }
+    };
     
     // Window dragging coordinates
     private double xOffset = 0;
@@ -68,7 +110,56 @@ public class MyGarageDashboard {
         lblTitle.setFont(Font.font("Impact", 32));
         lblTitle.setTextFill(Color.WHITE);
 
-        vehicleListContainer = new VBox(15);
+        // Save indicator: changes are written in the background by PersistenceService
+        lblSaveStatus = new Label();
+        lblSaveStatus.setFont(Font.font(12));
+        showSaveStatus(PersistenceService.hasPendingChanges() ? PersistenceService.Status.PENDING : PersistenceService.Status.SAVED);
+        PersistenceService.setStatusListener(status -> Platform.runLater(() -> {
+            // A newer change may have been queued after this status was sent
+            boolean stillPending = status == PersistenceService.Status.SAVED && PersistenceService.hasPendingChanges();
+            showSaveStatus(stillPending ? PersistenceService.Status.PENDING : status);
+        }));
+
+        vehicleListContainer = createVehicleList();
+
+        // Currency of the converted totals; every expense is converted at its own date's rate
+        ComboBox<String> displayCurrencyBox = new ComboBox<>();
+        displayCurrencyBox.getItems().addAll(CurrencyRates.current().currencies());
+        displayCurrencyBox.setValue(displayCurrency);
+        displayCurrencyBox.setMaxWidth(Double.MAX_VALUE);
+        displayCurrencyBox.setOnAction(e -> {
+            displayCurrency = displayCurrencyBox.getValue();
+            refreshAllViews(); // Only reads other rows of the converted totals
+        });
+
+        // Search across the whole garage; results replace the vehicle list while there is a query
+        TextField txtSearch = new TextField();
+        txtSearch.setPromptText("🔍 Search expenses, mods, tracks...");
+        ListView<SearchIndex.Hit> searchResults = new ListView<>();
+        searchResults.setPrefHeight(400);
+        searchResults.setCellFactory(list -> new ListCell<>() {
+            @Override
+            protected void updateItem(SearchIndex.Hit hit, boolean empty) {
+                super.updateItem(hit, empty);
+                setText(empty || hit == null ? null : describeHit(hit));
+            }
+        });
+        searchResults.setOnMouseClicked(e -> {
+            SearchIndex.Hit hit = searchResults.getSelectionModel().getSelectedItem();
+            Vehicle v = hit == null ? null : findVehicle(hit.vehicleId);
+            if (v != null) loadVehicleDetails(v, hit.kind.ordinal()); // Tabs are in the same order as the kinds
+        });
+        searchResults.setVisible(false);
+        searchResults.setManaged(false);
+        VBox.setVgrow(searchResults, Priority.ALWAYS);
+        txtSearch.textProperty().addListener((obs, oldText, query) -> {
+            boolean searching = !query.trim().isEmpty();
+            searchResults.getItems().setAll(searching ? currentUser.getSearchIndex().search(query, SEARCH_LIMIT) : List.of());
+            searchResults.setVisible(searching);
+            searchResults.setManaged(searching);
+            vehicleListContainer.setVisible(!searching);
+            vehicleListContainer.setManaged(!searching);
+        });
         
         Button btnAddVehicle = new Button("+ Add New Machine");
         btnAddVehicle.setMaxWidth(Double.MAX_VALUE);
@@ -79,14 +170,12 @@ public class MyGarageDashboard {
         btnLogout.setMaxWidth(Double.MAX_VALUE);
         btnLogout.getStyleClass().add("outline-button");
         btnLogout.setOnAction(e -> {
+            if (!saveBeforeLeaving("Log out anyway")) return; // Unsaved changes stay queued and retried
             SessionManager.clearSession(); 
             new WelcomeScreen().show(stage); 
         });
 
-        Region spacer = new Region();
-        VBox.setVgrow(spacer, Priority.ALWAYS);
-
-        sidebar.getChildren().addAll(lblTitle, new Separator(), vehicleListContainer, spacer, btnAddVehicle, btnLogout);
+        sidebar.getChildren().addAll(lblTitle, lblSaveStatus, displayCurrencyBox, txtSearch, new Separator(), searchResults, vehicleListContainer, btnAddVehicle, btnLogout);
 
         // --- WINDOW CONTROLS (Top Bar) ---
         HBox windowControls = new HBox(10);
@@ -95,7 +184,10 @@ public class MyGarageDashboard {
 
         Button btnClose = new Button("X");
         btnClose.setStyle("-fx-background-color: #E63946; -fx-text-fill: white; -fx-font-weight: bold; -fx-background-radius: 50; -fx-min-width: 30; -fx-min-height: 30;");
-        btnClose.setOnAction(e -> System.exit(0));
+        btnClose.setOnAction(e -> {
+            if (!saveBeforeLeaving("Quit without them")) return; // Write queued changes before the window goes away
+            System.exit(0);
+        });
 
         Button btnMinimize = new Button("_");
         btnMinimize.setStyle("-fx-background-color: #333; -fx-text-fill: white; -fx-font-weight: bold; -fx-background-radius: 50; -fx-min-width: 30; -fx-min-height: 30;");
@@ -122,19 +214,20 @@ public class MyGarageDashboard {
         centerArea.getChildren().addAll(lblWelcome, lblHint);
         
         // Wrap center area in ScrollPane for responsiveness
-        ScrollPane welcomeScroll = new ScrollPane(centerArea);
-        welcomeScroll.setFitToWidth(true);
-        welcomeScroll.setFitToHeight(true);
-        welcomeScroll.setStyle("-fx-background-color: transparent; -fx-background: transparent; -fx-padding: 0;");
+        welcomeView = new ScrollPane(centerArea);
+        welcomeView.setFitToWidth(true);
+        welcomeView.setFitToHeight(true);
+        welcomeView.setStyle("-fx-background-color: transparent; -fx-background: transparent; -fx-padding: 0;");
         
         BorderPane contentPane = new BorderPane();
         contentPane.setTop(topContainer);
-        contentPane.setCenter(welcomeScroll);
+        contentPane.setCenter(welcomeView);
 
         mainLayout.setCenter(contentPane);
         mainLayout.setLeft(sidebar);
 
-        refreshSidebar();
+        for (Vehicle v : currentUser.getGarage()) vehicleFilter.add(v);
+        sidebarVehicles.setAll(currentUser.getGarage());
 
         Scene scene = new Scene(mainLayout, 1280, 850);
         scene.setFill(Color.TRANSPARENT); 
@@ -148,49 +241,209 @@ public class MyGarageDashboard {
         stage.show();
     }
 
+    // --- SIDEBAR VEHICLE LIST ---
+
     /**
-     * Refreshes the sidebar vehicle list based on the user's garage.
+     * The filter box and the vehicle list of the sidebar.
+     * The list is virtualized: however big the garage, only the rows on screen have cells.
      */
-    private void refreshSidebar() {
-        vehicleListContainer.getChildren().clear();
-        if (currentUser.getGarage().isEmpty()) {
-            Label emptyLbl = new Label("Garage is empty.");
-            emptyLbl.setTextFill(Color.GRAY);
-            vehicleListContainer.getChildren().add(emptyLbl);
-        } else {
-            for (Vehicle v : currentUser.getGarage()) {
-                Button btnVehicle = new Button(v.getYear() + " " + v.getModel());
-                btnVehicle.setMaxWidth(Double.MAX_VALUE);
-                btnVehicle.setAlignment(Pos.CENTER_LEFT);
-                btnVehicle.getStyleClass().add("button");
-                btnVehicle.setStyle("-fx-background-color: #252525; -fx-font-size: 15px; -fx-padding: 15 25;");
-                btnVehicle.setOnAction(e -> loadVehicleDetails(v));
-                vehicleListContainer.getChildren().add(btnVehicle);
+    private VBox createVehicleList() {
+        txtFilter = new TextField();
+        txtFilter.setPromptText("Filter by brand, model, year...");
+        txtFilter.textProperty().addListener((obs, oldText, text) -> applyVehicleFilter());
+
+        ListView<Vehicle> vehicleList = new ListView<>(shownVehicles);
+        vehicleList.getStyleClass().add("vehicle-list");
+        vehicleList.setFixedCellSize(58); // Lets the list skip measuring every row
+        vehicleList.setPlaceholder(new Label("Garage is empty."));
+        vehicleList.setCellFactory(list -> {
+            ListCell<Vehicle> cell = new ListCell<>() {
+                @Override
+                protected void updateItem(Vehicle v, boolean empty) {
+                    super.updateItem(v, empty);
+                    setText(empty || v == null ? null : v.getYear() + " " + v.getModel());
+                }
+            };
+            cell.setOnMouseClicked(e -> {
+                if (!cell.isEmpty()) loadVehicleDetails(cell.getItem());
+            });
+            MenuItem remove = new MenuItem("Remove from Garage");
+            remove.setOnAction(e -> confirmRemoveVehicle(cell.getItem()));
+            ContextMenu menu = new ContextMenu(remove);
+            cell.emptyProperty().addListener((obs, wasEmpty, isEmpty) -> cell.setContextMenu(isEmpty ? null : menu));
+            return cell;
+        });
+
+        VBox box = new VBox(15, txtFilter, vehicleList);
+        VBox.setVgrow(vehicleList, Priority.ALWAYS);
+        VBox.setVgrow(box, Priority.ALWAYS);
+        return box;
+    }
+
+    /**
+     * Shows only the vehicles matching the filter box (all of them when it is empty).
+     */
+    private void applyVehicleFilter() {
+        Set<Vehicle> matches = vehicleFilter.matching(txtFilter.getText());
+        shownVehicles.setPredicate(matches == null ? null : matches::contains);
+    }
+
+    private void addToSidebar(Vehicle v) {
+        vehicleFilter.add(v);
+        sidebarVehicles.add(v);
+        if (shownVehicles.getPredicate() != null) applyVehicleFilter(); // The new car may match the filter
+    }
+
+    private void removeFromSidebar(Vehicle v) {
+        vehicleFilter.remove(v);
+        sidebarVehicles.remove(v);
+    }
+
+    /**
+     * Deletes the telemetry files of a removed vehicle once its removal is on disk.
+     * If that write fails the files stay, so a vehicle that comes back on the next start keeps them.
+     */
+    private void deleteTelemetry(Vehicle v) {
+        List<File> files = new ArrayList<>();
+        for (TrackSession s : v.getTrackLog()) {
+            if (s.hasTelemetry()) files.add(DataBaseManager.telemetryFile(s.getTelemetryFile()));
+        }
+        if (files.isEmpty()) return;
+        Thread cleaner = new Thread(() -> {
+            if (PersistenceService.flush() > 0) return;
+            for (File f : files) f.delete();
+            System.out.println("🗑️ Deleted " + files.size() + " telemetry file(s).");
+        }, "mygarage-telemetry-cleanup");
+        cleaner.setDaemon(true);
+        cleaner.start();
+    }
+
+    /**
+     * Writes the queued changes before logout or exit. If some cannot be written, offers to retry.
+     * @param leaveText Label of the button that leaves anyway.
+     * @return False if the user chose to stay.
+     */
+    private boolean saveBeforeLeaving(String leaveText) {
+        int unsaved;
+        while ((unsaved = PersistenceService.flush()) > 0) {
+            ButtonType retry = new ButtonType("Retry");
+            ButtonType leave = new ButtonType(leaveText);
+            Alert alert = new Alert(Alert.AlertType.ERROR, unsaved + " change(s) could not be saved. Check the free disk space and the data folder, then retry.",
+                    retry, leave, ButtonType.CANCEL);
+            alert.setHeaderText("Save failed");
+            ButtonType choice = alert.showAndWait().orElse(ButtonType.CANCEL);
+            if (choice == leave) return true;
+            if (choice != retry) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Asks before removing a vehicle (and everything logged for it) from the garage.
+     */
+    private void confirmRemoveVehicle(Vehicle v) {
+        if (v == null) return;
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION, "Remove " + v.getDisplayName() + " and all of its records?", ButtonType.OK, ButtonType.CANCEL);
+        alert.setHeaderText(null);
+        if (alert.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) return;
+
+        VehicleView view = views.remove(v.getId());
+        BorderPane contentPane = (BorderPane) mainLayout.getCenter();
+        if (view != null && contentPane.getCenter() == view.root) contentPane.setCenter(welcomeView);
+
+        currentUser.removeVehicle(v);
+        saveChanges(JournalEntry.removeVehicle(currentUser, v));
+        removeFromSidebar(v);
+        deleteTelemetry(v);
+        System.out.println("🗑️ Removed " + v.getDisplayName() + " from the garage.");
+    }
+
+    /**
+     * One line describing a search result, e.g. "💸 Shell V-Power · 2019 M2 · 1,250.00 TL".
+     */
+    private String describeHit(SearchIndex.Hit hit) {
+        Vehicle v = findVehicle(hit.vehicleId);
+        if (v == null) return "";
+        String car = v.getYear() + " " + v.getModel();
+        switch (hit.kind) {
+            case EXPENSE: {
+                Expense e = v.getExpenses().get(hit.row);
+                return "💸 " + e.getDescription() + " · " + car + " · " + String.format("%,.2f %s", e.getAmount(), e.getCurrency());
+            }
+            case DREAM_ITEM: {
+                DreamItem d = v.getDreamList().get(hit.row);
+                return "✨ " + d.getDescription() + " · " + car;
+            }
+            case TRACK_SESSION: {
+                TrackSession t = v.getTrackLog().get(hit.row);
+                return "🏁 " + t.getTrackName() + " " + t.getLapTime() + " · " + car + " · " + t.getDate();
             }
+            default:
+                return "🚗 " + v.getDisplayName();
         }
     }
 
+    private Vehicle findVehicle(String id) {
+        return currentUser.findVehicle(id);
+    }
+
     /**
      * Loads the details of the selected vehicle into the center pane.
      * Sets up Tabs: Overview, Expenses, Dream Spec, Track Days.
      */
     private void loadVehicleDetails(Vehicle v) {
-        TabPane tabPane = new TabPane();
-        tabPane.setTabClosingPolicy(TabPane.TabClosingPolicy.UNAVAILABLE);
-        
-        Tab tabOverview = new Tab("Specs & Overview");
-        tabOverview.setContent(createOverviewContent(v));
+        loadVehicleDetails(v, -1);
+    }
+
+    /**
+     * Same as {@link #loadVehicleDetails(Vehicle)}, opening the tab at the given index
+     * (-1 keeps the tab that was open when the vehicle was last shown).
+     */
+    private void loadVehicleDetails(Vehicle v, int tabIndex) {
+        VehicleView view = views.get(v.getId());
+        if (view == null) {
+            view = createVehicleView(v);
+            views.put(v.getId(), view);
+        }
+        if (tabIndex >= 0) view.tabs.getSelectionModel().select(tabIndex);
+        showTab(view, view.tabs.getSelectionModel().getSelectedItem()); // Also when the tab was already selected
+
+        BorderPane contentPane = (BorderPane) mainLayout.getCenter();
+        contentPane.setCenter(view.root);
+    }
 
-        Tab tabExpenses = new Tab("Expenses");
-        tabExpenses.setContent(createExpensesContent(v)); 
+    // --- VEHICLE VIEW CACHE ---
 
-        Tab tabDream = new Tab("Dream Spec");
-        tabDream.setContent(createDreamSpecContent(v)); 
-        
-        Tab tabTrack = new Tab("Track Days");
-        tabTrack.setContent(createTrackContent(v));
+    /**
+     * The details view of one vehicle. Tab contents are built the first time the tab is selected.
+     */
+    private static class VehicleView {
+        final ScrollPane root;
+        final TabPane tabs;
+        final Map<Tab, Supplier<Node>> builders = new LinkedHashMap<>();
+        final Set<Tab> stale = new HashSet<>(); // Built tabs showing older data
+
+        VehicleView(ScrollPane root, TabPane tabs) {
+            this.root = root;
+            this.tabs = tabs;
+        }
+
+        /**
+         * @return The tab whose content contains the node, or null.
+         */
+        Tab tabOf(Node node) {
+            for (Node n = node; n != null; n = n.getParent()) {
+                for (Tab tab : tabs.getTabs()) {
+                    if (tab.getContent() == n) return tab;
+                }
+            }
+            return null;
+        }
+    }
 
-        tabPane.getTabs().addAll(tabOverview, tabExpenses, tabDream, tabTrack);
+    private VehicleView createVehicleView(Vehicle v) {
+        TabPane tabPane = new TabPane();
+        tabPane.setTabClosingPolicy(TabPane.TabClosingPolicy.UNAVAILABLE);
 
         // HEADER SECTION
         VBox mainContainer = new VBox(20);
@@ -219,8 +472,62 @@ public class MyGarageDashboard {
         scrollPane.setHbarPolicy(ScrollPane.ScrollBarPolicy.NEVER);
         scrollPane.setVbarPolicy(ScrollPane.ScrollBarPolicy.AS_NEEDED);
 
-        BorderPane contentPane = (BorderPane) mainLayout.getCenter();
-        contentPane.setCenter(scrollPane);
+        VehicleView view = new VehicleView(scrollPane, tabPane);
+        view.builders.put(new Tab("Specs & Overview"), () -> createOverviewContent(v));
+        view.builders.put(new Tab("Expenses"), () -> createExpensesContent(v));
+        view.builders.put(new Tab("Dream Spec"), () -> createDreamSpecContent(v));
+        view.builders.put(new Tab("Track Days"), () -> createTrackContent(v));
+        tabPane.getTabs().addAll(view.builders.keySet());
+        tabPane.getSelectionModel().selectedItemProperty().addListener((obs, oldTab, tab) -> showTab(view, tab));
+        return view;
+    }
+
+    /**
+     * Builds the tab's content on first use, or refreshes it if the vehicle changed since.
+     */
+    private void showTab(VehicleView view, Tab tab) {
+        if (tab == null) return;
+        if (tab.getContent() == null) {
+            tab.setContent(view.builders.get(tab).get());
+        } else if (view.stale.remove(tab)) {
+            Object refresh = tab.getContent().getProperties().get(REFRESH_KEY);
+            if (refresh != null) ((Runnable) refresh).run();
+        }
+    }
+
+    /**
+     * Marks every cached view as outdated, e.g. after the display currency changed.
+     */
+    private void refreshAllViews() {
+        for (VehicleView view : views.values()) {
+            for (Tab tab : view.tabs.getTabs()) {
+                if (tab.getContent() != null) view.stale.add(tab);
+            }
+            if (view.root.getScene() != null) showTab(view, view.tabs.getSelectionModel().getSelectedItem());
+        }
+    }
+
+    /**
+     * Registers how a tab content updates itself in place from the vehicle's data.
+     */
+    private static void onRefresh(Node content, Runnable refresh) {
+        content.getProperties().put(REFRESH_KEY, refresh);
+    }
+
+    /**
+     * Marks the cached tabs of a vehicle as outdated after a change.
+     * They are refreshed in place when next shown; the visible one right away.
+     * @param source A node inside the tab that already shows the change (null = the selected tab).
+     */
+    private void markStale(String vehicleId, Node source) {
+        VehicleView view = views.get(vehicleId);
+        if (view == null) return;
+        Tab selected = view.tabs.getSelectionModel().getSelectedItem();
+        Tab upToDate = source == null ? selected : view.tabOf(source);
+        for (Tab tab : view.tabs.getTabs()) {
+            if (tab != upToDate && tab.getContent() != null) view.stale.add(tab);
+        }
+        if (view.root.getScene() != null) showTab(view, selected);
     }
 
     // --- 1. OVERVIEW TAB CONTENT ---
@@ -240,6 +547,16 @@ public class MyGarageDashboard {
         Label lblKmTitle = new Label("Odometer");
         lblKmTitle.setTextFill(Color.GRAY);
         
+        // Mileage analytics, refreshed after every odometer update
+        FlowPane mileageCards = new FlowPane();
+        mileageCards.setHgap(20); mileageCards.setVgap(20);
+        BarChart<String, Number> mileageChart = new BarChart<>(new CategoryAxis(), new NumberAxis());
+        mileageChart.setTitle("Km per month");
+        mileageChart.setLegendVisible(false);
+        mileageChart.setAnimated(false);
+        mileageChart.setPrefHeight(250);
+        updateMileage(mileageCards, mileageChart, v);
+
         HBox kmInputBox = new HBox(10);
         TextField txtKm = new TextField(String.valueOf(v.getKilometer()));
         txtKm.setPrefWidth(120);
@@ -252,7 +569,8 @@ public class MyGarageDashboard {
             try {
                 int newKm = Integer.parseInt(txtKm.getText());
                 v.setKilometer(newKm);
-                saveChanges();
+                saveChanges(JournalEntry.setKilometer(currentUser, v));
+                updateMileage(mileageCards, mileageChart, v);
             } catch (NumberFormatException ex) { txtKm.setText(String.valueOf(v.getKilometer())); }
         });
         
@@ -260,23 +578,69 @@ public class MyGarageDashboard {
         kmCard.getChildren().addAll(lblKmTitle, kmInputBox);
         stats.getChildren().add(kmCard);
         
-        // Calculate Total Expenses per Currency
-        Map<String, Double> expenseTotals = new HashMap<>();
-        for(Expense e : v.getExpenses()) expenseTotals.put(e.getCurrency(), expenseTotals.getOrDefault(e.getCurrency(), 0.0) + e.getAmount());
-        stats.getChildren().add(createMultiCurrencyStatCard("Total Expenses", expenseTotals));
+        // Total Expenses per Currency (kept up to date by the vehicle)
+        int totalsAt = stats.getChildren().size();
+        stats.getChildren().add(createMultiCurrencyStatCard("Total Expenses", v.getExpenseTotalsByCurrency()));
 
-        // Calculate Dream Spec Cost
-        Map<String, Double> dreamTotals = new HashMap<>();
-        for(DreamItem d : v.getDreamList()) dreamTotals.put(d.getCurrency(), dreamTotals.getOrDefault(d.getCurrency(), 0.0) + d.getEstimatedCost());
-        
-        VBox dreamCard = createMultiCurrencyStatCard("Dream Spec Cost", dreamTotals);
-        ((Label)dreamCard.getChildren().get(0)).setTextFill(Color.web("#4CAF50")); 
-        stats.getChildren().add(dreamCard);
+        // All expenses in the display currency
+        stats.getChildren().add(createTotalCostCard(v));
+
+        // Dream Spec Cost
+        stats.getChildren().add(createDreamCostCard(v));
         
-        box.getChildren().add(stats);
+        box.getChildren().addAll(stats, mileageCards, mileageChart);
+        onRefresh(box, () -> {
+            txtKm.setText(String.valueOf(v.getKilometer()));
+            stats.getChildren().set(totalsAt, createMultiCurrencyStatCard("Total Expenses", v.getExpenseTotalsByCurrency()));
+            stats.getChildren().set(totalsAt + 1, createTotalCostCard(v));
+            stats.getChildren().set(totalsAt + 2, createDreamCostCard(v));
+            updateMileage(mileageCards, mileageChart, v);
+        });
         return box;
     }
 
+    private VBox createTotalCostCard(Vehicle v) {
+        VBox card = createStatCard("Total Cost of Ownership", String.format("%,.2f %s", v.getExpenseTotal(displayCurrency), displayCurrency));
+        int unconverted = v.getUnconvertedCount();
+        if (unconverted > 0) {
+            Label lblMissing = new Label(unconverted + " item(s) without exchange rates left out");
+            lblMissing.setTextFill(Color.GRAY);
+            card.getChildren().add(lblMissing);
+        }
+        return card;
+    }
+
+    private VBox createDreamCostCard(Vehicle v) {
+        VBox dreamCard = createMultiCurrencyStatCard("Dream Spec Cost", v.getDreamTotalsByCurrency());
+        ((Label)dreamCard.getChildren().get(0)).setTextFill(Color.web("#4CAF50")); 
+        if (v.getDreamTotalsByCurrency().size() > 1) {
+            Label lblConverted = new Label(String.format("≈ %,.2f %s in total", v.getDreamTotal(displayCurrency), displayCurrency));
+            lblConverted.setTextFill(Color.GRAY);
+            dreamCard.getChildren().add(lblConverted);
+        }
+        return dreamCard;
+    }
+
+    /**
+     * Fills the mileage cards and the km-per-month chart (last 12 months) from the odometer history.
+     */
+    private void updateMileage(FlowPane cards, BarChart<String, Number> chart, Vehicle v) {
+        cards.getChildren().setAll(
+                createStatCard("Km / Month", String.format("%,.0f km", v.getKilometersPerMonth())),
+                createMultiCurrencyStatCard("Running Cost / km", v.getRunningCostPerKm()),
+                createMultiCurrencyStatCard("Fuel / 100 km", v.getFuelCostPer100Km()));
+
+        XYChart.Series<String, Number> series = new XYChart.Series<>();
+        List<String> months = new ArrayList<>();
+        for (MileageStats.Month m : v.getMileageTrend(12)) {
+            String label = m.month.format(DateTimeFormatter.ofPattern("MMM yy"));
+            months.add(label);
+            series.getData().add(new XYChart.Data<>(label, m.kilometers));
+        }
+        ((CategoryAxis) chart.getXAxis()).setCategories(FXCollections.observableArrayList(months));
+        chart.getData().setAll(List.of(series));
+    }
+
     // --- 2. EXPENSES TAB CONTENT ---
     private VBox createExpensesContent(Vehicle v) {
         VBox root = new VBox(30);
@@ -290,33 +654,77 @@ public class MyGarageDashboard {
         table.setPlaceholder(new Label("No expenses recorded."));
         table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
         
-        TableColumn<Expense, String> colDate = new TableColumn<>("Date");
-        colDate.setCellValueFactory(new PropertyValueFactory<>("date"));
-        TableColumn<Expense, String> colCat = new TableColumn<>("Category");
-        colCat.setCellValueFactory(new PropertyValueFactory<>("category"));
+        // Typed cell values (no reflection); the values are also the sort keys
+        TableColumn<Expense, LocalDate> colDate = new TableColumn<>("Date");
+        colDate.setCellValueFactory(cellData -> new ReadOnlyObjectWrapper<>(cellData.getValue().getDate()));
+        TableColumn<Expense, Expense.ExpenseCategory> colCat = new TableColumn<>("Category");
+        colCat.setCellValueFactory(cellData -> new ReadOnlyObjectWrapper<>(cellData.getValue().getCategory()));
         
-        TableColumn<Expense, String> colAmount = new TableColumn<>("Amount");
+        TableColumn<Expense, Double> colAmount = new TableColumn<>("Amount");
         colAmount.setStyle("-fx-alignment: CENTER-RIGHT; -fx-text-fill: #E63946; -fx-font-weight: bold;");
-        colAmount.setCellValueFactory(cellData -> {
-            Expense exp = cellData.getValue();
-            return javafx.beans.binding.Bindings.createStringBinding(() -> String.format("%.2f %s", exp.getAmount(), exp.getCurrency()));
+        colAmount.setCellValueFactory(cellData -> new ReadOnlyObjectWrapper<>(cellData.getValue().getAmount()));
+        colAmount.setCellFactory(col -> new TableCell<Expense, Double>() {
+            @Override
+            protected void updateItem(Double item, boolean empty) {
+                super.updateItem(item, empty);
+                Expense exp = getTableRow() == null ? null : getTableRow().getItem();
+                setText(empty || exp == null ? null : String.format("%.2f %s", exp.getAmount(), exp.getCurrency()));
+            }
         });
 
         TableColumn<Expense, String> colDesc = new TableColumn<>("Description");
-        colDesc.setCellValueFactory(new PropertyValueFactory<>("description"));
+        colDesc.setCellValueFactory(cellData -> new ReadOnlyObjectWrapper<>(cellData.getValue().getDescription()));
 
         table.getColumns().addAll(colDate, colCat, colAmount, colDesc);
-        ObservableList<Expense> expenseData = FXCollections.observableArrayList(v.getExpenses());
-        table.setItems(expenseData);
+        // Reads straight from the vehicle's expense columns; sorting and filtering run in the background
+        // on a snapshot of the columns (the filter and the cell values above only read the row)
+        VirtualRowList<Expense> expenseData = new VirtualRowList<>(() -> v.getExpenses().size(), row -> v.getExpenses().get(row),
+                () -> v.getExpenseLog().snapshot());
+        expenseData.bind(table);
+
+        TextField txtFilter = new TextField();
+        txtFilter.setPromptText("Filter by description or category...");
+        txtFilter.textProperty().addListener((obs, oldText, text) -> {
+            String needle = UserIndex.fold(text.trim());
+            expenseData.setFilter(needle.isEmpty() ? null : exp ->
+                    (exp.getDescription() != null && UserIndex.fold(exp.getDescription()).contains(needle))
+                    || (exp.getCategory() != null && UserIndex.fold(exp.getCategory().name()).contains(needle)));
+        });
+        VBox tableBox = new VBox(10, txtFilter, table);
+        VBox.setVgrow(table, Priority.ALWAYS);
 
         PieChart pieChart = new PieChart();
-        pieChart.setTitle("Breakdown");
         pieChart.setLabelsVisible(false);
         pieChart.setPrefSize(250, 250);
         updatePieChart(pieChart, v);
 
-        topSection.getChildren().addAll(table, pieChart);
-        HBox.setHgrow(table, Priority.ALWAYS);
+        topSection.getChildren().addAll(tableBox, pieChart);
+        HBox.setHgrow(tableBox, Priority.ALWAYS);
+
+        // Spending trend (read from the vehicle's monthly rollup)
+        VBox trendBox = new VBox(10);
+        trendBox.getStyleClass().add("rounded-box");
+
+        Label lblTrendTitle = new Label("Spending Trend");
+        lblTrendTitle.setTextFill(Color.WHITE);
+        lblTrendTitle.setFont(Font.font("Segoe UI", FontWeight.BOLD, 20));
+
+        ComboBox<String> trendViewBox = new ComboBox<>();
+        trendViewBox.getItems().addAll(TREND_VIEWS);
+        trendViewBox.setValue(TREND_VIEWS[0]);
+
+        Region trendSpacer = new Region();
+        HBox.setHgrow(trendSpacer, Priority.ALWAYS);
+        HBox trendHeader = new HBox(15, lblTrendTitle, trendSpacer, trendViewBox);
+        trendHeader.setAlignment(Pos.CENTER_LEFT);
+
+        BarChart<String, Number> trendChart = new BarChart<>(new CategoryAxis(), new NumberAxis());
+        trendChart.setAnimated(false);
+        trendChart.setPrefHeight(260);
+        updateTrendChart(trendChart, v, trendViewBox.getValue());
+        trendViewBox.setOnAction(e -> updateTrendChart(trendChart, v, trendViewBox.getValue()));
+
+        trendBox.getChildren().addAll(trendHeader, trendChart);
 
         VBox formContainer = new VBox(20);
         formContainer.getStyleClass().add("rounded-box");
@@ -363,17 +771,27 @@ public class MyGarageDashboard {
                 if(txtAmount.getText().isEmpty()) return;
                 String amountStr = txtAmount.getText().replace(",", ".");
                 double amount = Double.parseDouble(amountStr);
+                if (!Double.isFinite(amount)) return; // "NaN" or "1e400" would break every total
                 Expense newExp = new Expense(catBox.getValue(), amount, currencyBox.getValue(), txtDesc.getText(), datePicker.getValue());
                 v.addExpense(newExp);
-                saveChanges();
-                expenseData.add(newExp);
+                saveChanges(JournalEntry.addExpense(currentUser, v, newExp));
+                expenseData.rowsAppended();
                 updatePieChart(pieChart, v);
+                updateTrendChart(trendChart, v, trendViewBox.getValue());
                 txtAmount.clear(); txtDesc.clear();
             } catch (NumberFormatException ex) {}
         });
 
-        formContainer.getChildren().addAll(lblFormTitle, grid, btnAdd);
-        root.getChildren().addAll(topSection, formContainer);
+        Runnable refresh = () -> {
+            expenseData.rowsAppended();
+            updatePieChart(pieChart, v);
+            updateTrendChart(trendChart, v, trendViewBox.getValue());
+        };
+        HBox csvButtons = createCsvButtons(v, CsvTransfer.Kind.EXPENSES, refresh);
+
+        formContainer.getChildren().addAll(lblFormTitle, grid, btnAdd, csvButtons);
+        root.getChildren().addAll(topSection, trendBox, formContainer);
+        onRefresh(root, refresh);
         return root;
     }
 
@@ -417,7 +835,7 @@ public class MyGarageDashboard {
                     DreamItem item = getTableRow().getItem();
                     if (item != null && item.isDone() != newVal) {
                         item.setDone(newVal);
-                        saveChanges();
+                        saveChanges(JournalEntry.setDreamDone(currentUser, v, item, newVal));
                         updateProgressAction.run();
                     }
                 });
@@ -496,18 +914,26 @@ public class MyGarageDashboard {
             try {
                 if(txtDesc.getText().isEmpty()) return;
                 double cost = txtCost.getText().isEmpty() ? 0 : Double.parseDouble(txtCost.getText());
+                if (!Double.isFinite(cost)) return;
                 DreamItem newItem = new DreamItem(catBox.getValue(), txtDesc.getText(), cost, currencyBox.getValue(), datePicker.getValue());
                 v.addDreamItem(newItem);
-                saveChanges();
+                saveChanges(JournalEntry.addDreamItem(currentUser, v, newItem));
                 dreamData.add(newItem);
                 updateProgressAction.run(); 
                 txtDesc.clear(); txtCost.clear();
             } catch (NumberFormatException ex) {}
         });
 
-        formContainer.getChildren().addAll(lblFormTitle, grid, btnAdd);
+        Runnable refresh = () -> {
+            dreamData.setAll(v.getDreamList());
+            updateProgressAction.run();
+        };
+        HBox csvButtons = createCsvButtons(v, CsvTransfer.Kind.DREAM_ITEMS, refresh);
+
+        formContainer.getChildren().addAll(lblFormTitle, grid, btnAdd, csvButtons);
         root.getChildren().addAll(progressBox, table, formContainer);
         VBox.setVgrow(table, Priority.ALWAYS);
+        onRefresh(root, refresh);
         return root;
     }
 
@@ -516,33 +942,88 @@ public class MyGarageDashboard {
         VBox root = new VBox(30);
         root.setPadding(new Insets(25, 0, 0, 0));
 
+        TrackRecords records = v.getTrackRecords();
+
         HBox statsBox = new HBox(20);
         VBox statCard = createStatCard("Total Track Days", v.getTrackLog().size() + " Sessions");
-        statsBox.getChildren().add(statCard);
+        VBox pbCard = createStatCard("Personal Bests", records.personalBests().size() + " Combos");
+        statsBox.getChildren().addAll(statCard, pbCard);
 
         TableView<TrackSession> table = new TableView<>();
         table.setPlaceholder(new Label("No track days recorded. Get out there! 🏎️"));
         table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
 
-        TableColumn<TrackSession, String> colDate = new TableColumn<>("Date");
-        colDate.setCellValueFactory(new PropertyValueFactory<>("date"));
+        TableColumn<TrackSession, LocalDate> colDate = new TableColumn<>("Date");
+        colDate.setCellValueFactory(cellData -> new ReadOnlyObjectWrapper<>(cellData.getValue().getDate()));
         
         TableColumn<TrackSession, String> colTrack = new TableColumn<>("Track Name");
-        colTrack.setCellValueFactory(new PropertyValueFactory<>("trackName"));
+        colTrack.setCellValueFactory(cellData -> new ReadOnlyObjectWrapper<>(cellData.getValue().getTrackName()));
         
-        TableColumn<TrackSession, String> colTime = new TableColumn<>("Best Lap");
-        colTime.setCellValueFactory(new PropertyValueFactory<>("lapTime"));
+        // Lap, PB, gap and rank are numbers underneath, so the columns sort by time, not text.
+        // PB and rank come from the vehicle's TrackRecords (no scan of the track log per row).
+        TableColumn<TrackSession, Integer> colTime = new TableColumn<>("Best Lap");
+        colTime.setCellValueFactory(cellData -> new ReadOnlyObjectWrapper<>(lapSortKey(cellData.getValue().getLapTimeMillis())));
+        colTime.setCellFactory(col -> new TableCell<TrackSession, Integer>() {
+            @Override
+            protected void updateItem(Integer item, boolean empty) {
+                super.updateItem(item, empty);
+                TrackSession session = getTableRow() == null ? null : getTableRow().getItem();
+                setText(empty || session == null ? null : session.getLapTime());
+            }
+        });
         colTime.setStyle("-fx-text-fill: #E63946; -fx-font-weight: bold; -fx-alignment: CENTER-RIGHT;");
+
+        TableColumn<TrackSession, Integer> colPb = new TableColumn<>("PB");
+        colPb.setCellValueFactory(cellData -> new ReadOnlyObjectWrapper<>(lapSortKey(records.personalBest(cellData.getValue()))));
+        colPb.setCellFactory(col -> lapCell(ms -> LapTime.format(ms)));
+        colPb.setStyle("-fx-alignment: CENTER-RIGHT;");
+
+        TableColumn<TrackSession, Integer> colGap = new TableColumn<>("Gap");
+        colGap.setCellValueFactory(cellData -> {
+            TrackSession session = cellData.getValue();
+            int pb = records.personalBest(session);
+            return new ReadOnlyObjectWrapper<>(session.hasValidLapTime() && pb != LapTime.INVALID ? session.getLapTimeMillis() - pb : Integer.MAX_VALUE);
+        });
+        colGap.setCellFactory(col -> lapCell(gap -> gap == 0 ? "PB 🏆" : LapTime.formatGap(gap)));
+        colGap.setStyle("-fx-alignment: CENTER-RIGHT;");
+
+        TableColumn<TrackSession, Integer> colRank = new TableColumn<>("Rank");
+        colRank.setCellValueFactory(cellData -> {
+            int rank = records.rank(cellData.getValue());
+            return new ReadOnlyObjectWrapper<>(rank == 0 ? Integer.MAX_VALUE : rank);
+        });
+        colRank.setCellFactory(col -> new TableCell<TrackSession, Integer>() {
+            @Override
+            protected void updateItem(Integer item, boolean empty) {
+                super.updateItem(item, empty);
+                TrackSession session = getTableRow() == null ? null : getTableRow().getItem();
+                if (empty || session == null || item == Integer.MAX_VALUE) setText(empty ? null : "-");
+                else setText(item + " / " + records.boardSize(session));
+            }
+        });
+        colRank.setStyle("-fx-alignment: CENTER;");
+
+        TableColumn<TrackSession, String> colSectors = new TableColumn<>("Best Sectors");
+        colSectors.setCellValueFactory(cellData -> {
+            TrackSession session = cellData.getValue();
+            if (session.getSectorMillis(0) == LapTime.INVALID) return new ReadOnlyObjectWrapper<>("-");
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < TelemetryImporter.SECTORS; i++) {
+                if (i > 0) text.append(" / ");
+                text.append(String.format("%.3f", session.getSectorMillis(i) / 1000.0));
+            }
+            return new ReadOnlyObjectWrapper<>(text.toString());
+        });
         
         TableColumn<TrackSession, String> colCond = new TableColumn<>("Conditions");
-        colCond.setCellValueFactory(new PropertyValueFactory<>("conditions"));
+        colCond.setCellValueFactory(cellData -> new ReadOnlyObjectWrapper<>(cellData.getValue().getConditions()));
 
         TableColumn<TrackSession, String> colTires = new TableColumn<>("Tires");
-        colTires.setCellValueFactory(new PropertyValueFactory<>("tires"));
+        colTires.setCellValueFactory(cellData -> new ReadOnlyObjectWrapper<>(cellData.getValue().getTires()));
 
-        table.getColumns().addAll(colDate, colTrack, colTime, colCond, colTires);
-        ObservableList<TrackSession> trackData = FXCollections.observableArrayList(v.getTrackLog());
-        table.setItems(trackData);
+        table.getColumns().addAll(colDate, colTrack, colTime, colPb, colGap, colRank, colSectors, colCond, colTires);
+        VirtualRowList<TrackSession> trackData = new VirtualRowList<>(() -> v.getTrackLog().size(), row -> v.getTrackLog().get(row));
+        trackData.bind(table);
 
         VBox formContainer = new VBox(20);
         formContainer.getStyleClass().add("rounded-box");
@@ -580,30 +1061,185 @@ public class MyGarageDashboard {
 
         btnAdd.setOnAction(e -> {
             if(txtTrack.getText().isEmpty() || txtTime.getText().isEmpty()) return;
+
+            // Lap times are validated once here and stored as milliseconds
+            int lapMillis;
+            try {
+                lapMillis = LapTime.parse(txtTime.getText());
+                txtTime.setStyle("");
+            } catch (IllegalArgumentException ex) {
+                txtTime.setStyle("-fx-border-color: #E63946;");
+                return;
+            }
             
             TrackSession newSession = new TrackSession(
                 txtTrack.getText(), 
-                txtTime.getText(), 
+                lapMillis, 
                 datePicker.getValue(), 
                 condBox.getValue(), 
                 txtTires.getText()
             );
             
             v.addTrackSession(newSession);
-            saveChanges();
-            trackData.add(newSession);
+            saveChanges(JournalEntry.addTrackSession(currentUser, v, newSession));
+            trackData.rowsAppended();
             
             ((Label)statCard.getChildren().get(1)).setText((v.getTrackLog().size()) + " Sessions");
+            ((Label)pbCard.getChildren().get(1)).setText(records.personalBests().size() + " Combos");
+            table.refresh(); // A new session can change the PB, gap and rank of older rows
 
             txtTrack.clear(); txtTime.clear(); txtTires.clear();
         });
 
-        formContainer.getChildren().addAll(lblFormTitle, grid, btnAdd);
+        // Data-logger import: one session per CSV, best lap and sectors taken from the file
+        Button btnImport = new Button("Import Logger CSV 📈");
+        btnImport.setMaxWidth(Double.MAX_VALUE);
+        btnImport.setOnAction(e -> {
+            if(txtTrack.getText().isEmpty()) { txtTrack.requestFocus(); return; }
+
+            FileChooser chooser = new FileChooser();
+            chooser.setTitle("Select data-logger exports");
+            chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV files", "*.csv", "*.txt"));
+            List<File> files = chooser.showOpenMultipleDialog(btnImport.getScene().getWindow());
+            if (files == null || files.isEmpty()) return;
+
+            String track = txtTrack.getText();
+            LocalDate date = datePicker.getValue();
+            String conditions = condBox.getValue();
+            String tires = txtTires.getText();
+            btnImport.setDisable(true);
+            btnImport.setText("Importing " + files.size() + " file(s)...");
+
+            // Parsing hundreds of MB must not block the UI
+            Thread importer = new Thread(() -> {
+                List<Path> inputs = new ArrayList<>();
+                List<File> outputs = new ArrayList<>();
+                long stamp = System.currentTimeMillis();
+                for (int i = 0; i < files.size(); i++) {
+                    inputs.add(files.get(i).toPath());
+                    outputs.add(DataBaseManager.telemetryFile(stamp + "_" + i + ".tlm"));
+                }
+                List<TelemetryImporter.Result> results;
+                try {
+                    results = TelemetryImporter.importFiles(inputs, outputs);
+                } catch (IOException ex) {
+                    System.out.println("❌ Telemetry Import Error: " + ex.getMessage());
+                    results = new ArrayList<>();
+                }
+                List<TelemetryImporter.Result> imported = results;
+                Platform.runLater(() -> {
+                    for (TelemetryImporter.Result r : imported) {
+                        if (r.bestLapMillis == LapTime.INVALID) {
+                            System.out.println("⚠️ No complete lap found in " + r.telemetryFile.getName());
+                            r.telemetryFile.delete(); // No session refers to it
+                            continue;
+                        }
+                        TrackSession session = new TrackSession(track, r.bestLapMillis, date, conditions, tires);
+                        session.setTelemetry(r.telemetryFile.getName(), r.bestLapMillis, r.bestSectorMillis);
+                        v.addTrackSession(session);
+                        saveChanges(JournalEntry.addTrackSession(currentUser, v, session));
+                        trackData.rowsAppended();
+                        System.out.println("✅ Imported " + r.laps + " laps (" + r.samples + " samples).");
+                    }
+                    ((Label)statCard.getChildren().get(1)).setText((v.getTrackLog().size()) + " Sessions");
+                    ((Label)pbCard.getChildren().get(1)).setText(records.personalBests().size() + " Combos");
+                    table.refresh();
+                    btnImport.setDisable(false);
+                    btnImport.setText("Import Logger CSV 📈");
+                });
+            }, "mygarage-telemetry");
+            importer.setDaemon(true);
+            importer.start();
+        });
+
+        Runnable refresh = () -> {
+            trackData.rowsAppended();
+            ((Label)statCard.getChildren().get(1)).setText((v.getTrackLog().size()) + " Sessions");
+            ((Label)pbCard.getChildren().get(1)).setText(records.personalBests().size() + " Combos");
+            table.refresh();
+        };
+        HBox csvButtons = createCsvButtons(v, CsvTransfer.Kind.TRACK_SESSIONS, refresh);
+
+        formContainer.getChildren().addAll(lblFormTitle, grid, btnAdd, btnImport, csvButtons);
         root.getChildren().addAll(statsBox, table, formContainer);
         VBox.setVgrow(table, Priority.ALWAYS);
+        onRefresh(root, refresh);
         return root;
     }
 
+    /**
+     * Import / Export CSV buttons for one tab.
+     * Imports run on a background thread; each batch is added on the UI thread and saved with one journal write.
+     * @param onImported Refreshes the tab once the import is done.
+     */
+    private HBox createCsvButtons(Vehicle v, CsvTransfer.Kind kind, Runnable onImported) {
+        Button btnImportCsv = new Button("Import CSV 📥");
+        Button btnExportCsv = new Button("Export CSV 📤");
+        btnImportCsv.setMaxWidth(Double.MAX_VALUE);
+        btnExportCsv.setMaxWidth(Double.MAX_VALUE);
+        HBox.setHgrow(btnImportCsv, Priority.ALWAYS);
+        HBox.setHgrow(btnExportCsv, Priority.ALWAYS);
+
+        btnImportCsv.setOnAction(e -> {
+            FileChooser chooser = new FileChooser();
+            chooser.setTitle("Select a CSV file");
+            chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV files", "*.csv", "*.txt"));
+            File file = chooser.showOpenDialog(btnImportCsv.getScene().getWindow());
+            if (file == null) return;
+            btnImportCsv.setDisable(true);
+
+            Thread importer = new Thread(() -> {
+                String result;
+                try {
+                    CsvTransfer.Report report = CsvTransfer.importFile(file.toPath(), kind, CsvTransfer.DEFAULT_BATCH_SIZE,
+                            batch -> {
+                                // Wait for each batch, so a huge file never piles up in the UI queue
+                                FutureTask<Void> add = new FutureTask<>(() -> CsvTransfer.addToVehicle(currentUser, v, batch), null);
+                                Platform.runLater(add);
+                                try {
+                                    add.get();
+                                } catch (InterruptedException | ExecutionException ex) {
+                                    throw new IllegalStateException(ex);
+                                }
+                            },
+                            (read, total, rows) -> Platform.runLater(() ->
+                                    btnImportCsv.setText(String.format("Importing... %d%% (%,d rows)", total == 0 ? 100 : read * 100 / total, rows))));
+                    System.out.println("✅ Imported " + report.imported + " rows from " + file.getName() + ", skipped " + report.rejected + ".");
+                    for (String error : report.errors) System.out.println("⚠️ " + error);
+                    result = String.format("Imported %,d (skipped %,d)", report.imported, report.rejected);
+                } catch (IOException | RuntimeException ex) {
+                    System.out.println("❌ CSV Import Error: " + ex.getMessage());
+                    result = "Import failed";
+                }
+                String text = result;
+                Platform.runLater(() -> {
+                    onImported.run();
+                    markStale(v.getId(), btnImportCsv); // Other tabs of the vehicle show totals too
+                    btnImportCsv.setText(text);
+                    btnImportCsv.setDisable(false);
+                });
+            }, "mygarage-csv-import");
+            importer.setDaemon(true);
+            importer.start();
+        });
+
+        btnExportCsv.setOnAction(e -> {
+            FileChooser chooser = new FileChooser();
+            chooser.setTitle("Export as CSV");
+            chooser.setInitialFileName(kind.name().toLowerCase() + ".csv");
+            File file = chooser.showSaveDialog(btnExportCsv.getScene().getWindow());
+            if (file == null) return;
+            try {
+                int rows = CsvTransfer.exportFile(v, kind, file.toPath());
+                System.out.println("✅ Exported " + rows + " rows to " + file.getName());
+            } catch (IOException ex) {
+                System.out.println("❌ CSV Export Error: " + ex.getMessage());
+            }
+        });
+
+        return new HBox(10, btnImportCsv, btnExportCsv);
+    }
+
     /**
      * Shows a popup dialog to add a new vehicle to the garage.
      */
@@ -658,8 +1294,8 @@ public class MyGarageDashboard {
                 );
                 
                 currentUser.addVehicleToGarage(newVehicle);
-                saveChanges(); 
-                refreshSidebar(); 
+                saveChanges(JournalEntry.addVehicle(currentUser, newVehicle)); 
+                addToSidebar(newVehicle); 
                 dialog.close();
             } catch (NumberFormatException ex) {}
         });
@@ -675,32 +1311,128 @@ public class MyGarageDashboard {
     }
 
     /**
-     * Saves changes to the local database.
+     * Saves a change to the local database.
+     * The change is queued and written by a background thread, so the UI never waits for the disk.
+     * @param entry The change that was just applied to the in-memory data.
+     */
+    private void saveChanges(JournalEntry entry) {
+        currentUser.indexChange(entry); // The model is already changed, keep search results in step
+        markStale(entry.getVehicleId(), null);
+        PersistenceService.submit(entry);
+    }
+
+    /**
+     * Updates the small save indicator under the sidebar title.
      */
-    private void saveChanges() {
-        ArrayList<User> allUsers = DataBaseManager.loadUsers();
-        boolean found = false;
-        for (int i = 0; i < allUsers.size(); i++) {
-            if (allUsers.get(i).getUsername().equals(currentUser.getUsername())) {
-                allUsers.set(i, currentUser);
-                found = true;
+    private void showSaveStatus(PersistenceService.Status status) {
+        switch (status) {
+            case PENDING:
+                lblSaveStatus.setText("● Unsaved changes");
+                lblSaveStatus.setTextFill(Color.web("#FFB300"));
+                break;
+            case SAVING:
+                lblSaveStatus.setText("● Saving...");
+                lblSaveStatus.setTextFill(Color.web("#FFB300"));
+                break;
+            case FAILED:
+                lblSaveStatus.setText("● Save failed");
+                lblSaveStatus.setTextFill(Color.web("#E63946"));
+                break;
+            default:
+                lblSaveStatus.setText("● All changes saved");
+                lblSaveStatus.setTextFill(Color.web("#4CAF50"));
                 break;
-            }
         }
-        if (!found) allUsers.add(currentUser);
-        DataBaseManager.saveUsers(allUsers);
     }
     
+    /**
+     * Spend per category in the display currency, every expense converted at its own date's rate.
+     */
     private void updatePieChart(PieChart chart, Vehicle v) {
         ObservableList<PieChart.Data> pieData = FXCollections.observableArrayList();
-        for (Expense.ExpenseCategory cat : Expense.ExpenseCategory.values()) {
-            double total = 0;
-            for (Expense e : v.getExpenses()) if (e.getCategory() == cat) total += e.getAmount();
-            if (total > 0) pieData.add(new PieChart.Data(cat.toString(), total));
+        for (Map.Entry<Expense.ExpenseCategory, Double> total : v.getExpenseTotalsByCategory(displayCurrency).entrySet()) {
+            if (total.getValue() > 0) pieData.add(new PieChart.Data(total.getKey().toString(), total.getValue()));
         }
+        chart.setTitle("Breakdown (" + displayCurrency + ")");
         chart.setData(pieData);
     }
     
+    /**
+     * Sort key for lap time columns: sessions without a valid time go last.
+     */
+    private static Integer lapSortKey(int millis) {
+        return millis == LapTime.INVALID ? Integer.MAX_VALUE : millis;
+    }
+
+    /**
+     * Table cell showing a lap time based number; {@code Integer.MAX_VALUE} is shown as "-".
+     */
+    private static TableCell<TrackSession, Integer> lapCell(IntFunction<String> format) {
+        return new TableCell<TrackSession, Integer>() {
+            @Override
+            protected void updateItem(Integer item, boolean empty) {
+                super.updateItem(item, empty);
+                if (empty || item == null) setText(null);
+                else setText(item == Integer.MAX_VALUE ? "-" : format.apply(item));
+            }
+        };
+    }
+
+    /**
+     * Fills the trend chart with one series per currency.
+     * Every bar is a date-range query on the vehicle's rollup, so no expense list is scanned.
+     */
+    private void updateTrendChart(BarChart<String, Number> chart, Vehicle v, String view) {
+        Map<String, XYChart.Series<String, Number>> seriesByCurrency = new LinkedHashMap<>();
+        ObservableList<String> labels = FXCollections.observableArrayList(); // Keeps the x axis in time order
+        LocalDate today = LocalDate.now();
+
+        if (TREND_VIEWS[2].equals(view)) {
+            // Last 90 days: one bar group per category
+            Map<String, Map<Expense.ExpenseCategory, Double>> totals = v.getExpenseTotalsByCategory(today.minusDays(89), today);
+            for (Expense.ExpenseCategory cat : Expense.ExpenseCategory.values()) labels.add(cat.toString());
+            for (Map.Entry<String, Map<Expense.ExpenseCategory, Double>> currency : totals.entrySet()) {
+                for (Map.Entry<Expense.ExpenseCategory, Double> cat : currency.getValue().entrySet()) {
+                    trendSeries(seriesByCurrency, currency.getKey()).getData().add(new XYChart.Data<>(cat.getKey().toString(), cat.getValue()));
+                }
+            }
+        } else if (TREND_VIEWS[1].equals(view)) {
+            // Yearly: from the year of the first expense to this year
+            LocalDate[] range = v.getExpenseDateRange();
+            int firstYear = range == null ? today.getYear() : Math.min(range[0].getYear(), today.getYear());
+            for (int year = firstYear; year <= today.getYear(); year++) {
+                labels.add(String.valueOf(year));
+                Map<String, Double> totals = v.getExpenseTotalsByCurrency(LocalDate.of(year, 1, 1), LocalDate.of(year, 12, 31));
+                for (Map.Entry<String, Double> entry : totals.entrySet()) {
+                    trendSeries(seriesByCurrency, entry.getKey()).getData().add(new XYChart.Data<>(String.valueOf(year), entry.getValue()));
+                }
+            }
+        } else {
+            // Monthly: the last 12 months including the current one
+            DateTimeFormatter format = DateTimeFormatter.ofPattern("MMM yy");
+            for (int i = 11; i >= 0; i--) {
+                YearMonth month = YearMonth.from(today).minusMonths(i);
+                labels.add(month.format(format));
+                Map<String, Double> totals = v.getExpenseTotalsByCurrency(month.atDay(1), month.atEndOfMonth());
+                for (Map.Entry<String, Double> entry : totals.entrySet()) {
+                    trendSeries(seriesByCurrency, entry.getKey()).getData().add(new XYChart.Data<>(month.format(format), entry.getValue()));
+                }
+            }
+        }
+        CategoryAxis xAxis = (CategoryAxis) chart.getXAxis();
+        xAxis.setAutoRanging(false);
+        xAxis.setCategories(labels);
+        chart.getData().setAll(seriesByCurrency.values());
+    }
+
+    private XYChart.Series<String, Number> trendSeries(Map<String, XYChart.Series<String, Number>> seriesByCurrency, String currency) {
+        return seriesByCurrency.computeIfAbsent(currency, k -> {
+            XYChart.Series<String, Number> series = new XYChart.Series<>();
+            series.setName(k == null ? "-" : k);
+            return series;
+        });
+    }
+    
     private VBox createMultiCurrencyStatCard(String title, Map<String, Double> totals) {
         VBox card = new VBox(10);
         card.getStyleClass().add("rounded-box"); 
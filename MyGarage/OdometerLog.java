@@ -0,0 +1,139 @@
+package MyGarage;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * History of a vehicle's odometer readings, stored as a compact time series.
+ * Readings are appended in the order they were entered. Each one is stored as the difference
+ * to the previous reading (days, kilometers), zig-zag and variable-length encoded, so a normal
+ * update (a few days and a few hundred km later) takes 2-3 bytes instead of 8.
+ *
+ * Reading the history back means decoding it from the start; the first and last reading are
+ * kept decoded because they are needed all the time.
+ */
+class OdometerLog {
+
+    /**
+     * Receives the readings while iterating with {@link #forEach(ReadingConsumer)}.
+     */
+    interface ReadingConsumer {
+        void accept(int epochDay, int kilometer);
+    }
+
+    private byte[] data = new byte[16];
+    private int length; // Bytes used in data
+    private int count;
+
+    private int firstDay, firstKm;
+    private int lastDay, lastKm;
+
+    /**
+     * Appends a reading.
+     * @param epochDay  Day of the reading ({@link LocalDate#toEpochDay()}).
+     * @param kilometer Odometer value on that day.
+     */
+    void add(int epochDay, int kilometer) {
+        ensureSpace(10);
+        writeVarInt(zigZag(epochDay - lastDay));
+        writeVarInt(zigZag(kilometer - lastKm));
+        if (count == 0) {
+            firstDay = epochDay;
+            firstKm = kilometer;
+        }
+        lastDay = epochDay;
+        lastKm = kilometer;
+        count++;
+    }
+
+    /**
+     * Decodes every reading, oldest first.
+     */
+    void forEach(ReadingConsumer consumer) {
+        int position = 0, day = 0, km = 0;
+        for (int i = 0; i < count; i++) {
+            int shift = 0, value = 0;
+            byte b;
+            do {
+                b = data[position++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            day += unZigZag(value);
+
+            shift = 0;
+            value = 0;
+            do {
+                b = data[position++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            km += unZigZag(value);
+
+            consumer.accept(day, km);
+        }
+    }
+
+    int size() { return count; }
+    boolean isEmpty() { return count == 0; }
+    int firstDay() { return firstDay; }
+    int firstKilometer() { return firstKm; }
+    int lastDay() { return lastDay; }
+    int lastKilometer() { return lastKm; }
+
+    /**
+     * @return Date of the newest reading, or null if there is none.
+     */
+    LocalDate lastDate() {
+        return count == 0 ? null : LocalDate.ofEpochDay(lastDay);
+    }
+
+    // --- STORAGE (see GarageCodec) ---
+
+    /**
+     * @return The encoded readings (exactly {@link #encodedSize()} bytes).
+     */
+    byte[] encoded() {
+        return Arrays.copyOf(data, length);
+    }
+
+    int encodedSize() { return length; }
+
+    /**
+     * Recreates a log from {@link #encoded()} bytes.
+     */
+    static OdometerLog decode(byte[] encoded, int count) {
+        OdometerLog log = new OdometerLog();
+        log.data = Arrays.copyOf(encoded, Math.max(16, encoded.length));
+        log.length = encoded.length;
+        log.count = count;
+        int[] index = { 0 };
+        log.forEach((day, km) -> {
+            if (index[0]++ == 0) {
+                log.firstDay = day;
+                log.firstKm = km;
+            }
+            log.lastDay = day;
+            log.lastKm = km;
+        });
+        return log;
+    }
+
+    // --- VARIABLE-LENGTH INTEGERS ---
+
+    private void ensureSpace(int bytes) {
+        if (length + bytes > data.length) data = Arrays.copyOf(data, Math.max(data.length * 2, length + bytes));
+    }
+
+    private void writeVarInt(int value) {
+        while ((value & ~0x7F) != 0) {
+            data[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[length++] = (byte) value;
+    }
+
+    // Small negative numbers (an odometer corrected downwards) stay small
+    private static int zigZag(int n) { return (n << 1) ^ (n >> 31); }
+    private static int unZigZag(int n) { return (n >>> 1) ^ -(n & 1); }
+}
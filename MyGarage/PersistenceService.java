@@ -0,0 +1,170 @@
+package MyGarage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Write-behind persistence for the dashboard.
+ * Button handlers only queue their change here and return immediately; a background writer
+ * thread picks up everything queued within a short window and appends it to the journal
+ * with one write per user. Rapid clicks therefore cost one disk write instead of many, and
+ * the JavaFX Application Thread never waits for the disk.
+ *
+ * Pending changes are flushed on logout, when the window is closed and when the JVM exits.
+ * A user's changes that fail to write go back to the front of the queue and are retried with
+ * a growing delay, so nothing the UI already shows is dropped because of one bad write.
+ */
+public class PersistenceService {
+
+    // Save state shown in the sidebar.
+    public enum Status { SAVED, PENDING, SAVING, FAILED }
+
+    // Changes arriving within this window are merged into one write.
+    private static final long COALESCE_DELAY_MS = 250;
+
+    // After a failed write the next attempt waits this long, doubling up to the maximum.
+    private static final long RETRY_DELAY_MS = 1_000;
+    private static final long MAX_RETRY_DELAY_MS = 60_000;
+
+    private static final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "mygarage-writer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static final Object QUEUE_LOCK = new Object();
+    private static final Object WRITE_LOCK = new Object();
+
+    // username -> encoded entries, in the order they were made
+    private static LinkedHashMap<String, List<byte[]>> pending = new LinkedHashMap<>();
+    private static boolean flushScheduled;
+    private static long retryDelay = RETRY_DELAY_MS; // Guarded by WRITE_LOCK
+    private static volatile Consumer<Status> statusListener = status -> {};
+
+    static {
+        // Last chance to write queued changes (System.exit, closing the console, ...)
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            int unsaved = flush();
+            if (unsaved > 0) System.out.println("❌ " + unsaved + " changes could not be saved before exit and are lost.");
+        }, "mygarage-flush"));
+    }
+
+    /**
+     * Queues a change for saving. Returns immediately.
+     * The entry is encoded now, so later edits to the same objects do not leak into it.
+     * @param entry The change that was just applied to the in-memory data.
+     */
+    public static void submit(JournalEntry entry) {
+        byte[] payload = entry.encode();
+        boolean schedule;
+        synchronized (QUEUE_LOCK) {
+            pending.computeIfAbsent(entry.getUsername(), k -> new ArrayList<>()).add(payload);
+            schedule = !flushScheduled;
+            flushScheduled = true;
+        }
+        statusListener.accept(Status.PENDING);
+        if (schedule) writer.schedule(PersistenceService::writePending, COALESCE_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues many changes at once (e.g. a bulk import batch). They are written together,
+     * with one journal write per user.
+     */
+    public static void submitAll(List<JournalEntry> entries) {
+        if (entries.isEmpty()) return;
+        List<byte[]> payloads = new ArrayList<>(entries.size());
+        for (JournalEntry entry : entries) payloads.add(entry.encode());
+        boolean schedule;
+        synchronized (QUEUE_LOCK) {
+            for (int i = 0; i < entries.size(); i++) {
+                pending.computeIfAbsent(entries.get(i).getUsername(), k -> new ArrayList<>()).add(payloads.get(i));
+            }
+            schedule = !flushScheduled;
+            flushScheduled = true;
+        }
+        statusListener.accept(Status.PENDING);
+        if (schedule) writer.schedule(PersistenceService::writePending, COALESCE_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes every queued change now and waits until it is on disk.
+     * Safe to call from any thread.
+     * @return Number of changes that could not be written. They stay queued and are retried.
+     */
+    public static int flush() {
+        writePending();
+        synchronized (QUEUE_LOCK) {
+            int unsaved = 0;
+            for (List<byte[]> payloads : pending.values()) unsaved += payloads.size();
+            return unsaved;
+        }
+    }
+
+    /**
+     * @return True if some changes have not been written yet.
+     */
+    public static boolean hasPendingChanges() {
+        synchronized (QUEUE_LOCK) {
+            return !pending.isEmpty();
+        }
+    }
+
+    /**
+     * Registers the single listener notified whenever the save state changes.
+     * It is called on the thread that caused the change, not necessarily the UI thread.
+     */
+    public static void setStatusListener(Consumer<Status> listener) {
+        statusListener = listener == null ? status -> {} : listener;
+    }
+
+    private static void writePending() {
+        // WRITE_LOCK keeps batches in order when flush() and the writer thread overlap
+        synchronized (WRITE_LOCK) {
+            LinkedHashMap<String, List<byte[]>> batch;
+            synchronized (QUEUE_LOCK) {
+                batch = pending;
+                pending = new LinkedHashMap<>();
+                flushScheduled = false;
+            }
+            if (batch.isEmpty()) return;
+
+            statusListener.accept(Status.SAVING);
+            LinkedHashMap<String, List<byte[]>> failed = new LinkedHashMap<>();
+            for (Map.Entry<String, List<byte[]>> userChanges : batch.entrySet()) {
+                try {
+                    DataBaseManager.append(userChanges.getKey(), userChanges.getValue());
+                } catch (IOException e) {
+                    failed.put(userChanges.getKey(), userChanges.getValue());
+                    System.out.println("❌ Save Error: " + e.getMessage());
+                }
+            }
+            if (failed.isEmpty()) {
+                retryDelay = RETRY_DELAY_MS;
+                if (!hasPendingChanges()) statusListener.accept(Status.SAVED);
+                return;
+            }
+
+            boolean schedule;
+            synchronized (QUEUE_LOCK) {
+                // Ahead of anything queued since, so each user's journal keeps the order of the changes
+                for (Map.Entry<String, List<byte[]>> newer : pending.entrySet()) {
+                    failed.merge(newer.getKey(), newer.getValue(), (older, later) -> { older.addAll(later); return older; });
+                }
+                pending = failed;
+                schedule = !flushScheduled;
+                flushScheduled = true;
+            }
+            statusListener.accept(Status.FAILED);
+            System.out.println("⚠️ Retrying the save in " + retryDelay / 1000 + " s.");
+            if (schedule) writer.schedule(PersistenceService::writePending, retryDelay, TimeUnit.MILLISECONDS);
+            retryDelay = Math.min(retryDelay * 2, MAX_RETRY_DELAY_MS);
+        }
+    }
+}
@@ -5,10 +5,17 @@ package MyGarage;
  * * This class serves as a workaround entry point to avoid 
  * "JavaFX runtime components are missing" errors when building and running 
  * the application as a JAR file. It simply delegates execution to the Main class.
+ * * When the first argument is a command (e.g. {@code report}, see {@link GarageCli}),
+ * it runs the command line tool instead, without starting JavaFX.
  */
 public class Run {
     
     public static void main(String[] args) {
+        // Headless mode: no JavaFX class is loaded on this path
+        if (args.length > 0 && GarageCli.isCommand(args[0])) {
+            GarageCli.main(args);
+            return;
+        }
         // Redirects the startup process to the actual JavaFX Main class.
         Main.main(args); 
     }
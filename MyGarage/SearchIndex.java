@@ -0,0 +1,458 @@
+package MyGarage;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Full-text search over one user's garage: vehicle names, expense descriptions,
+ * Dream Spec descriptions and track names / tires.
+ *
+ * Every searchable text is a document (kind, vehicle, row). Words are case-folded and
+ * mapped to the sorted list of documents containing them (an inverted index). The words
+ * are kept in a sorted map, so all words starting with a prefix are one contiguous range;
+ * the last word of a query is matched as a prefix, which gives type-ahead results.
+ *
+ * The index is updated for every change (see {@link User#indexChange(JournalEntry)}) and saved
+ * next to the user's snapshot, stamped with the same journal position, so it is only rebuilt
+ * when that file is missing or out of date.
+ */
+public class SearchIndex {
+
+    // What a search result points at.
+    public enum Kind { VEHICLE, EXPENSE, DREAM_ITEM, TRACK_SESSION }
+
+    /**
+     * One search result. {@code row} is the position in the vehicle's list of that kind.
+     */
+    public static class Hit {
+        public final Kind kind;
+        public final String vehicleId;
+        public final int row;
+
+        Hit(Kind kind, String vehicleId, int row) {
+            this.kind = kind;
+            this.vehicleId = vehicleId;
+            this.row = row;
+        }
+    }
+
+    private static final int MAGIC = 0x4D475358; // "MGSX"
+    private static final byte VERSION = 1;
+    private static final Kind[] KINDS = Kind.values();
+
+    // Word -> documents containing it
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+
+    // Documents, as parallel arrays indexed by document id
+    private byte[] docKinds = new byte[64];
+    private int[] docVehicles = new int[64];
+    private int[] docRows = new int[64];
+    private int docCount;
+
+    // Vehicle slot -> vehicle id (null once the vehicle is removed)
+    private final ArrayList<String> vehicles = new ArrayList<>();
+    private final HashMap<String, Integer> vehicleSlots = new HashMap<>();
+    private int removedDocs;
+
+    // --- BUILDING AND UPDATING ---
+
+    /**
+     * Indexes a whole garage.
+     */
+    static SearchIndex build(User user) {
+        SearchIndex index = new SearchIndex();
+        HashMap<String, String[]> tokenCache = new HashMap<>(); // Descriptions repeat a lot (e.g. fuel stations)
+        for (Vehicle v : user.getGarage()) {
+            int slot = index.addVehicle(v);
+            ExpenseLog expenses = v.getExpenseLog();
+            for (int row = 0; row < expenses.size(); row++) {
+                String text = expenses.description(row);
+                if (text == null) continue;
+                index.addDocument(Kind.EXPENSE, slot, row, tokenCache.computeIfAbsent(text, SearchIndex::tokenize));
+            }
+            List<DreamItem> dreams = v.getDreamList();
+            for (int row = 0; row < dreams.size(); row++) {
+                index.addDocument(Kind.DREAM_ITEM, slot, row, tokenize(dreams.get(row).getDescription()));
+            }
+            List<TrackSession> sessions = v.getTrackLog();
+            for (int row = 0; row < sessions.size(); row++) {
+                index.addDocument(Kind.TRACK_SESSION, slot, row, tokenize(sessionText(sessions.get(row))));
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Updates the index after a change was applied to the user.
+     */
+    void update(JournalEntry entry, User user) {
+        if (entry.getOp() == JournalEntry.Op.REMOVE_VEHICLE) {
+            removeVehicle(entry.getVehicleId());
+            return;
+        }
+        Vehicle v = user.findVehicle(entry.getVehicleId());
+        if (v == null) return;
+
+        switch (entry.getOp()) {
+            case ADD_VEHICLE:
+                addVehicle(v);
+                break;
+            case ADD_EXPENSE: {
+                int row = v.getExpenseLog().size() - 1;
+                addDocument(Kind.EXPENSE, slot(v), row, tokenize(v.getExpenseLog().description(row)));
+                break;
+            }
+            case ADD_DREAM_ITEM: {
+                int row = v.getDreamList().size() - 1;
+                addDocument(Kind.DREAM_ITEM, slot(v), row, tokenize(v.getDreamList().get(row).getDescription()));
+                break;
+            }
+            case ADD_TRACK_SESSION: {
+                int row = v.getTrackLog().size() - 1;
+                addDocument(Kind.TRACK_SESSION, slot(v), row, tokenize(sessionText(v.getTrackLog().get(row))));
+                break;
+            }
+            default:
+                break; // Kilometers and "done" flags are not searchable
+        }
+    }
+
+    private int addVehicle(Vehicle v) {
+        Integer existing = vehicleSlots.get(v.getId());
+        if (existing != null) return existing;
+        int slot = vehicles.size();
+        vehicles.add(v.getId());
+        vehicleSlots.put(v.getId(), slot);
+        addDocument(Kind.VEHICLE, slot, 0, tokenize(v.getDisplayName() + " " + v.getColor()));
+        return slot;
+    }
+
+    private void removeVehicle(String vehicleId) {
+        Integer slot = vehicleSlots.remove(vehicleId);
+        if (slot == null) return;
+        vehicles.set(slot, null); // Its documents are skipped from now on
+        for (int doc = 0; doc < docCount; doc++) if (docVehicles[doc] == slot) removedDocs++;
+    }
+
+    private int slot(Vehicle v) {
+        Integer slot = vehicleSlots.get(v.getId());
+        return slot != null ? slot : addVehicle(v);
+    }
+
+    private void addDocument(Kind kind, int vehicleSlot, int row, String[] tokens) {
+        if (tokens.length == 0) return;
+        if (docCount == docKinds.length) {
+            int capacity = docCount * 2;
+            docKinds = Arrays.copyOf(docKinds, capacity);
+            docVehicles = Arrays.copyOf(docVehicles, capacity);
+            docRows = Arrays.copyOf(docRows, capacity);
+        }
+        int doc = docCount++;
+        docKinds[doc] = (byte) kind.ordinal();
+        docVehicles[doc] = vehicleSlot;
+        docRows[doc] = row;
+        for (String token : tokens) terms.computeIfAbsent(token, k -> new Postings()).add(doc);
+    }
+
+    /**
+     * @return True if enough documents belong to removed vehicles that a rebuild is worth it.
+     */
+    boolean needsRebuild() {
+        return removedDocs > 1000 && removedDocs > docCount / 4;
+    }
+
+    // --- SEARCHING ---
+
+    /**
+     * Finds documents containing every word of the query; the last word may be incomplete.
+     * @param query The text typed by the user.
+     * @param limit Maximum number of results.
+     * @return Matches, most recently added first.
+     */
+    public List<Hit> search(String query, int limit) {
+        List<Hit> hits = new ArrayList<>();
+        String[] words = tokenize(query);
+        if (words.length == 0 || limit <= 0) return hits;
+        boolean lastIsPrefix = !Character.isWhitespace(query.charAt(query.length() - 1));
+
+        // One matcher per word; the rarest one drives the search, the others only filter
+        Matcher[] matchers = new Matcher[words.length];
+        int driver = 0;
+        for (int i = 0; i < words.length; i++) {
+            boolean prefix = lastIsPrefix && i == words.length - 1;
+            matchers[i] = new Matcher(words[i], prefix);
+            if (matchers[i].cost == 0) return hits;
+            if (matchers[i].cost < matchers[driver].cost) driver = i;
+        }
+
+        DescendingIterator docs = matchers[driver].descending();
+        for (int doc = docs.next(); doc >= 0 && hits.size() < limit; doc = docs.next()) {
+            String vehicleId = vehicles.get(docVehicles[doc]);
+            if (vehicleId == null) continue; // Vehicle was removed
+            boolean all = true;
+            for (int i = 0; i < matchers.length && all; i++) {
+                if (i != driver) all = matchers[i].contains(doc);
+            }
+            if (all) hits.add(new Hit(KINDS[docKinds[doc]], vehicleId, docRows[doc]));
+        }
+        return hits;
+    }
+
+    /**
+     * Suggests indexed words starting with a prefix (for auto-completion).
+     */
+    public List<String> suggest(String prefix, int limit) {
+        List<String> words = new ArrayList<>();
+        String[] folded = tokenize(prefix);
+        if (folded.length == 0) return words;
+        for (String word : prefixRange(folded[folded.length - 1]).keySet()) {
+            if (words.size() == limit) break;
+            words.add(word);
+        }
+        return words;
+    }
+
+    private SortedMap<String, Postings> prefixRange(String prefix) {
+        return terms.subMap(prefix, prefix + Character.MAX_VALUE);
+    }
+
+    /**
+     * The documents matching one query word (a single word, or every word in a prefix range).
+     */
+    private class Matcher {
+        final List<Postings> lists = new ArrayList<>();
+        long cost;
+        private BitSet union; // Built only if many words share the prefix
+
+        Matcher(String word, boolean prefix) {
+            if (prefix) {
+                lists.addAll(prefixRange(word).values());
+            } else {
+                Postings exact = terms.get(word);
+                if (exact != null) lists.add(exact);
+            }
+            for (Postings p : lists) cost += p.size;
+        }
+
+        boolean contains(int doc) {
+            if (lists.size() <= 16) {
+                for (Postings p : lists) if (p.contains(doc)) return true;
+                return false;
+            }
+            if (union == null) {
+                union = new BitSet(docCount);
+                for (Postings p : lists) for (int i = 0; i < p.size; i++) union.set(p.docs[i]);
+            }
+            return union.get(doc);
+        }
+
+        DescendingIterator descending() {
+            if (lists.size() == 1) {
+                Postings p = lists.get(0);
+                int[] position = { p.size };
+                return () -> position[0] > 0 ? p.docs[--position[0]] : -1;
+            }
+            // Merge the lists from their ends (newest documents first), skipping duplicates
+            PriorityQueue<int[]> heads = new PriorityQueue<>((a, b) -> Integer.compare(b[0], a[0])); // {doc, list, position}
+            for (int i = 0; i < lists.size(); i++) {
+                Postings p = lists.get(i);
+                heads.add(new int[] { p.docs[p.size - 1], i, p.size - 1 });
+            }
+            int[] last = { -1 };
+            return () -> {
+                while (!heads.isEmpty()) {
+                    int[] head = heads.poll();
+                    int doc = head[0];
+                    if (head[2] > 0) {
+                        head[2]--;
+                        head[0] = lists.get(head[1]).docs[head[2]];
+                        heads.add(head);
+                    }
+                    if (doc != last[0]) {
+                        last[0] = doc;
+                        return doc;
+                    }
+                }
+                return -1;
+            };
+        }
+    }
+
+    private interface DescendingIterator {
+        int next(); // -1 when done
+    }
+
+    /**
+     * Sorted document ids of one word.
+     */
+    private static class Postings {
+        int[] docs = new int[2];
+        int size;
+
+        void add(int doc) {
+            if (size > 0 && docs[size - 1] == doc) return; // Word repeated in the same text
+            if (size == docs.length) docs = Arrays.copyOf(docs, size * 2);
+            docs[size++] = doc;
+        }
+
+        boolean contains(int doc) {
+            return Arrays.binarySearch(docs, 0, size, doc) >= 0;
+        }
+    }
+
+    // --- TEXT ---
+
+    private static String sessionText(TrackSession s) {
+        return s.getTrackName() + " " + (s.getTires() == null ? "" : s.getTires());
+    }
+
+    /**
+     * Splits a text into case-folded words (letters and digits), without duplicates.
+     */
+    static String[] tokenize(String text) {
+        if (text == null || text.isEmpty()) return new String[0];
+        LinkedHashSet<String> words = new LinkedHashSet<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) start = i;
+            if (!wordChar && start >= 0) {
+                words.add(UserIndex.fold(text.substring(start, i)));
+                start = -1;
+            }
+        }
+        return words.toArray(new String[0]);
+    }
+
+    // --- PERSISTENCE ---
+
+    /**
+     * Saves the index, stamped with the journal position of the snapshot it belongs to.
+     */
+    void write(File file, long stamp) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(stamp);
+
+            out.writeInt(vehicles.size());
+            for (String id : vehicles) writeString(out, id);
+
+            out.writeInt(docCount);
+            out.write(docKinds, 0, docCount);
+            for (int doc = 0; doc < docCount; doc++) out.writeInt(docVehicles[doc]);
+            for (int doc = 0; doc < docCount; doc++) out.writeInt(docRows[doc]);
+
+            // Document ids are stored as gaps (variable length), most gaps fit in one byte
+            out.writeInt(terms.size());
+            for (Map.Entry<String, Postings> term : terms.entrySet()) {
+                writeString(out, term.getKey());
+                Postings p = term.getValue();
+                out.writeInt(p.size);
+                int previous = 0;
+                for (int i = 0; i < p.size; i++) {
+                    writeVarInt(out, p.docs[i] - previous);
+                    previous = p.docs[i];
+                }
+            }
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads a saved index.
+     * @return The index, or null if the file is missing, damaged or belongs to another snapshot.
+     */
+    static SearchIndex read(File file, long stamp) {
+        if (!file.exists()) return null;
+        try {
+            ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+            if (in.getInt() != MAGIC || in.get() != VERSION || in.getLong() != stamp) return null;
+
+            SearchIndex index = new SearchIndex();
+            int vehicleCount = in.getInt();
+            for (int slot = 0; slot < vehicleCount; slot++) {
+                String id = readString(in);
+                index.vehicles.add(id);
+                if (id != null) index.vehicleSlots.put(id, slot);
+            }
+
+            int docs = in.getInt();
+            index.docCount = docs;
+            index.docKinds = new byte[Math.max(64, docs)];
+            index.docVehicles = new int[index.docKinds.length];
+            index.docRows = new int[index.docKinds.length];
+            in.get(index.docKinds, 0, docs);
+            for (int doc = 0; doc < docs; doc++) index.docVehicles[doc] = in.getInt();
+            for (int doc = 0; doc < docs; doc++) index.docRows[doc] = in.getInt();
+            for (int doc = 0; doc < docs; doc++) if (index.vehicles.get(index.docVehicles[doc]) == null) index.removedDocs++;
+
+            int termCount = in.getInt();
+            for (int t = 0; t < termCount; t++) {
+                String word = readString(in);
+                Postings p = new Postings();
+                p.size = in.getInt();
+                p.docs = new int[Math.max(2, p.size)];
+                int previous = 0;
+                for (int i = 0; i < p.size; i++) {
+                    previous += readVarInt(in);
+                    p.docs[i] = previous;
+                }
+                index.terms.put(word, p);
+            }
+            return index;
+        } catch (IOException | RuntimeException e) {
+            System.out.println("⚠️ Search index unreadable, rebuilding: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) return null;
+        String s = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return s;
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+    }
+}
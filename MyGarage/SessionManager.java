@@ -1,7 +1,6 @@
 package MyGarage;
 
 import java.io.*;
-import java.util.ArrayList;
 
 /**
  * Manages user sessions for auto-login functionality.
@@ -46,16 +45,11 @@ public class SessionManager {
         try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
             String username = reader.readLine();
             if (username != null && !username.isEmpty()) {
-                // Username found in file, now fetch the full User object from DB
-                ArrayList<User> users = DataBaseManager.loadUsers();
-                for (User u : users) {
-                    if (u.getUsername().equals(username)) {
-                        return u;
-                    }
-                }
+                // Username found in file, now open only that user's data
+                return DataBaseManager.loadUser(username);
             }
         } catch (IOException e) {
-            System.out.println("Could not read session: " + e.getMessage());
+            System.out.println("Could not restore session: " + e.getMessage()); // The login screen shows the error again
         }
         return null;
     }
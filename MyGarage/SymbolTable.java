@@ -0,0 +1,83 @@
+package MyGarage;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared table of the short values that repeat across thousands of records: currencies,
+ * track names, conditions, tires, brands, models, generations and colors.
+ * Every distinct text gets an int id the first time it is seen, records keep only the id,
+ * and the text behind an id is one String instance for the whole process.
+ *
+ * Ids live as long as the process. Each snapshot stores the symbols it uses in a table of its own
+ * and its rows refer to that table (see {@link GarageCodec}); on load each stored symbol is
+ * interned once, so the same text always gets the same id within a run. The journal keeps the text.
+ *
+ * Id 0 is null. Entries are never removed: the table only holds these short domain values,
+ * never free text such as descriptions.
+ */
+class SymbolTable {
+
+    static final int NONE = 0;
+
+    private static final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private static volatile String[] names = new String[256];
+    private static volatile int[] folded = new int[256]; // Id of the trimmed, case-folded text
+    private static int size = 1;
+
+    private SymbolTable() {}
+
+    /**
+     * @return The id of the text, added to the table if it is new (0 for null).
+     */
+    static int id(String text) {
+        if (text == null) return NONE;
+        Integer id = ids.get(text);
+        return id != null ? id : add(text);
+    }
+
+    private static synchronized int add(String text) {
+        Integer known = ids.get(text);
+        if (known != null) return known;
+        int id = size++;
+        if (id == names.length) {
+            folded = Arrays.copyOf(folded, id * 2);
+            names = Arrays.copyOf(names, id * 2);
+        }
+        names[id] = text;
+        String key = UserIndex.fold(text.trim());
+        int keyId = key.isEmpty() ? NONE : key.equals(text) ? id : id(key); // May grow the arrays, so looked up first
+        folded[id] = keyId;
+        ids.put(text, id); // Published last: whoever finds the id also finds its name
+        return id;
+    }
+
+    /**
+     * @return The text of an id (null for 0).
+     */
+    static String name(int id) {
+        return names[id];
+    }
+
+    /**
+     * @return The shared instance of the text, for fields that stay Strings.
+     */
+    static String intern(String text) {
+        return names[id(text)];
+    }
+
+    /**
+     * @return Id of the trimmed, case-folded form of the symbol, so "Dry" and " dry" group together
+     *         (0 for null and blank text).
+     */
+    static int folded(int id) {
+        return folded[id];
+    }
+
+    /**
+     * @return Number of symbols, including the null slot.
+     */
+    static synchronized int size() {
+        return size;
+    }
+}
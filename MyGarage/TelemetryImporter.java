@@ -0,0 +1,579 @@
+package MyGarage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streaming importer for data-logger CSV exports (GPS, speed, RPM at 10-100 Hz).
+ * The file is read through a {@link FileChannel} in fixed-size chunks and parsed byte by byte,
+ * so memory use does not depend on the file size and no String is created per line.
+ * While reading, laps and sectors are split on the fly and every sample is written to a compact
+ * telemetry file (see below). The best lap and the best time of each sector are returned so
+ * they can be stored on the {@link TrackSession}.
+ *
+ * Recognised columns (header names are matched ignoring case, spaces and units):
+ * time (seconds, or ms if the name/unit says so), latitude, longitude, speed (km/h, mph or m/s),
+ * rpm, lap and sector. Only the time column is required; comma, semicolon and tab separated files
+ * are accepted, and lines before the header (logger metadata) are skipped.
+ *
+ * Laps: if there is a lap column, a lap ends whenever its value changes. Otherwise the start/finish
+ * line is the first GPS position of the file and a lap ends each time the car passes closest to it.
+ * Only complete laps are timed (the out lap and in lap are not). Sectors come from the sector column,
+ * or else split each lap into three parts of equal distance.
+ *
+ * Telemetry file layout (big-endian):
+ * <pre>
+ *   int magic "MGTL", byte version, int sample count, int lap count
+ *   per sample (16 bytes): int time ms since the first sample, int latitude * 1e7, int longitude * 1e7,
+ *                          short speed * 10 (km/h, -1 = none), char rpm
+ *   per lap (20 bytes):    int first sample, int lap ms, int sector 1 ms, int sector 2 ms, int sector 3 ms
+ * </pre>
+ */
+class TelemetryImporter {
+
+    static final int MAGIC = 0x4D47544C; // "MGTL"
+    static final byte VERSION = 1;
+    static final int HEADER_SIZE = 13;
+    static final int SAMPLE_SIZE = 16;
+    static final int LAP_SIZE = 20;
+    static final int SECTORS = 3;
+    static final int NO_POSITION = Integer.MIN_VALUE;
+
+    private static final int CHUNK_SIZE = 4 * 1024 * 1024;
+    private static final int MAX_PREAMBLE_LINES = 100;
+
+    // Start/finish detection without a lap column
+    private static final double GATE_RADIUS_M = 30;
+    private static final double MIN_LAP_DISTANCE_M = 500;
+    private static final double EARTH_RADIUS_M = 6_371_000;
+
+    /**
+     * Outcome of one imported file.
+     */
+    static class Result {
+        File telemetryFile;
+        long bytesRead;
+        int samples;
+        int laps;
+        int bestLapMillis = LapTime.INVALID;
+        int[] bestSectorMillis = { LapTime.INVALID, LapTime.INVALID, LapTime.INVALID };
+    }
+
+    // --- PUBLIC ENTRY POINTS ---
+
+    /**
+     * Imports one CSV file.
+     * @param csv    The data-logger export.
+     * @param output The telemetry file to create (replaced if it exists).
+     */
+    static Result importFile(Path csv, File output) throws IOException {
+        return new TelemetryImporter().run(csv, output);
+    }
+
+    /**
+     * Imports several files in parallel, one file per thread.
+     * If one file fails, the others are stopped and none of the outputs is left behind.
+     * @param outputs Telemetry file for each CSV, in the same order.
+     * @return One result per file, in the same order.
+     */
+    static List<Result> importFiles(List<Path> csvs, List<File> outputs) throws IOException {
+        int threads = Math.max(1, Math.min(csvs.size(), Runtime.getRuntime().availableProcessors()));
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "mygarage-telemetry");
+            t.setDaemon(true);
+            return t;
+        });
+        boolean done = false;
+        try {
+            List<Future<Result>> futures = new ArrayList<>();
+            for (int i = 0; i < csvs.size(); i++) {
+                Path csv = csvs.get(i);
+                File output = outputs.get(i);
+                futures.add(pool.submit(() -> importFile(csv, output)));
+            }
+            List<Result> results = new ArrayList<>();
+            for (Future<Result> f : futures) results.add(f.get());
+            done = true;
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            throw new IOException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+            if (!done) deleteOutputs(pool, outputs);
+        }
+    }
+
+    private static void deleteOutputs(ExecutorService pool, List<File> outputs) {
+        try {
+            pool.awaitTermination(10, TimeUnit.SECONDS); // The other files stop at their next read
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (File output : outputs) output.delete();
+    }
+
+    // --- COLUMNS ---
+
+    private static final int TIME = 0, LAT = 1, LON = 2, SPEED = 3, RPM = 4, LAP = 5, SECTOR = 6, COLUMN_TYPES = 7;
+    private static final int IGNORED = -1;
+
+    private byte delimiter = ',';
+    private int[] columnTypes;       // Column index -> one of the constants above
+    private int lastUsedColumn;
+    private double timeScale = 1000; // To milliseconds
+    private double speedScale = 1;   // To km/h
+    private boolean hasLapColumn, hasSectorColumn;
+    private final double[] values = new double[COLUMN_TYPES];
+
+    /**
+     * Reads the column names. Returns false for lines that are not the header (e.g. logger metadata).
+     */
+    private boolean readHeader(byte[] b, int start, int end) {
+        String line = new String(b, start, end - start, StandardCharsets.UTF_8);
+        int commas = count(line, ','), semicolons = count(line, ';'), tabs = count(line, '\t');
+        delimiter = (byte) (tabs > commas && tabs > semicolons ? '\t' : semicolons > commas ? ';' : ',');
+
+        String[] names = line.split(delimiter == '\t' ? "\t" : String.valueOf((char) delimiter), -1);
+        int[] types = new int[names.length];
+        boolean hasTime = false, hasLap = false, hasSector = false;
+        int lastUsed = 0;
+        for (int i = 0; i < names.length; i++) {
+            String raw = names[i].trim().replace("\"", "").toLowerCase(Locale.ROOT);
+            String unit = raw.contains("(") ? raw.substring(raw.indexOf('(')) : raw.contains("[") ? raw.substring(raw.indexOf('[')) : "";
+            String name = raw.replaceAll("[(\\[].*", "").replaceAll("[^a-z]", "");
+            types[i] = columnType(name);
+            if (types[i] == TIME && !hasTime) {
+                hasTime = true;
+                timeScale = name.endsWith("ms") || unit.contains("ms") ? 1 : 1000;
+            } else if (types[i] == TIME) {
+                types[i] = IGNORED; // Keep the first time column only
+            }
+            if (types[i] == SPEED) speedScale = unit.contains("mph") || name.endsWith("mph") ? 1.609344 : unit.contains("m/s") ? 3.6 : 1;
+            if (types[i] == LAP) hasLap = true;
+            if (types[i] == SECTOR) hasSector = true;
+            if (types[i] != IGNORED) lastUsed = i;
+        }
+        if (!hasTime) return false;
+        columnTypes = types;
+        hasLapColumn = hasLap;
+        hasSectorColumn = hasSector;
+        lastUsedColumn = lastUsed;
+        return true;
+    }
+
+    private static int columnType(String name) {
+        switch (name) {
+            case "time": case "t": case "timestamp": case "elapsed": case "elapsedtime": case "times": case "timems":
+            case "timestampms": case "ms": case "sessiontime": case "laptimestamp":
+                return TIME;
+            case "lat": case "latitude": case "gpslat": case "gpslatitude":
+                return LAT;
+            case "lon": case "lng": case "long": case "longitude": case "gpslon": case "gpslng": case "gpslongitude":
+                return LON;
+            case "speed": case "gpsspeed": case "speedkmh": case "speedmph": case "velocity": case "vehiclespeed":
+                return SPEED;
+            case "rpm": case "enginerpm": case "engspeed": case "enginespeed":
+                return RPM;
+            case "lap": case "lapnumber": case "lapno": case "laps":
+                return LAP;
+            case "sector": case "sectornumber": case "split":
+                return SECTOR;
+            default:
+                return IGNORED;
+        }
+    }
+
+    private static int count(String s, char c) {
+        int n = 0;
+        for (int i = 0; i < s.length(); i++) if (s.charAt(i) == c) n++;
+        return n;
+    }
+
+    // --- READING ---
+
+    private Result run(Path csv, File output) throws IOException {
+        Result result = new Result();
+        File temp = new File(output.getPath() + ".tmp");
+        output.getParentFile().mkdirs();
+
+        try (FileChannel in = FileChannel.open(csv, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            this.out = out;
+            outBuffer.position(HEADER_SIZE); // Header is written last, once the counts are known
+
+            ByteBuffer chunk = ByteBuffer.allocate(CHUNK_SIZE);
+            byte[] b = chunk.array();
+            int preambleLines = 0;
+            while (true) {
+                int read = in.read(chunk);
+                if (read > 0) result.bytesRead += read;
+                int limit = chunk.position();
+                int lineStart = 0;
+
+                // Every complete line in the chunk
+                for (int i = 0; i < limit; i++) {
+                    if (b[i] != '\n') continue;
+                    int lineEnd = i > lineStart && b[i - 1] == '\r' ? i - 1 : i;
+                    if (columnTypes != null) {
+                        readSample(b, lineStart, lineEnd);
+                    } else if (!readHeader(b, lineStart, lineEnd) && ++preambleLines > MAX_PREAMBLE_LINES) {
+                        throw new IOException("No time column found in " + csv.getFileName());
+                    }
+                    lineStart = i + 1;
+                }
+
+                if (read < 0) {
+                    // Last line without a line break
+                    if (lineStart < limit && columnTypes != null) readSample(b, lineStart, limit);
+                    break;
+                }
+                // Keep the unfinished line for the next chunk
+                System.arraycopy(b, lineStart, b, 0, limit - lineStart);
+                chunk.position(limit - lineStart);
+                if (!chunk.hasRemaining()) throw new IOException("Line longer than " + CHUNK_SIZE + " bytes in " + csv.getFileName());
+            }
+            if (columnTypes == null) throw new IOException("No time column found in " + csv.getFileName());
+
+            writeLapsAndHeader();
+        } catch (IOException | RuntimeException e) {
+            temp.delete(); // Half-written, no session will ever refer to it
+            throw e;
+        }
+        Files.move(temp.toPath(), output.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        result.telemetryFile = output;
+        result.samples = sampleCount;
+        result.laps = laps.size() / 5;
+        for (int lap = 0; lap < result.laps; lap++) {
+            result.bestLapMillis = best(result.bestLapMillis, laps.get(lap * 5 + 1));
+            for (int s = 0; s < SECTORS; s++) result.bestSectorMillis[s] = best(result.bestSectorMillis[s], laps.get(lap * 5 + 2 + s));
+        }
+        return result;
+    }
+
+    private static int best(int current, int candidate) {
+        if (candidate == LapTime.INVALID || candidate <= 0) return current;
+        return current == LapTime.INVALID ? candidate : Math.min(current, candidate);
+    }
+
+    /**
+     * Parses the needed fields of one data line (other fields are only skipped over).
+     */
+    private void readSample(byte[] b, int start, int end) throws IOException {
+        Arrays.fill(values, Double.NaN);
+        int column = 0;
+        int p = start;
+        while (p <= end && column <= lastUsedColumn) {
+            int q = p;
+            while (q < end && b[q] != delimiter) q++;
+            if (column < columnTypes.length && columnTypes[column] != IGNORED) {
+                values[columnTypes[column]] = parseNumber(b, p, q);
+            }
+            column++;
+            p = q + 1;
+        }
+        if (Double.isNaN(values[TIME])) return; // Blank or broken line
+        onSample();
+    }
+
+    /**
+     * Parses a decimal number without creating objects. Returns NaN for an empty or invalid field.
+     */
+    private double parseNumber(byte[] b, int start, int end) {
+        while (start < end && (b[start] == ' ' || b[start] == '"')) start++;
+        while (end > start && (b[end - 1] == ' ' || b[end - 1] == '"')) end--;
+        if (start == end) return Double.NaN;
+
+        int i = start;
+        boolean negative = b[i] == '-';
+        if (negative || b[i] == '+') i++;
+        long mantissa = 0;
+        int digits = 0, fractionDigits = 0;
+        boolean fraction = false;
+        for (; i < end; i++) {
+            byte c = b[i];
+            if (c >= '0' && c <= '9') {
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    digits++;
+                    if (fraction) fractionDigits++;
+                } else if (!fraction) {
+                    return slowParse(b, start, end); // Too many digits for the fast path
+                }
+            } else if ((c == '.' || (c == ',' && delimiter != ',')) && !fraction) {
+                fraction = true;
+            } else if (c == 'e' || c == 'E') {
+                return slowParse(b, start, end);
+            } else {
+                return Double.NaN;
+            }
+        }
+        if (digits == 0) return Double.NaN;
+        double value = fractionDigits == 0 ? mantissa : mantissa / POWERS_OF_TEN[fractionDigits];
+        return negative ? -value : value;
+    }
+
+    private static final double[] POWERS_OF_TEN = new double[19];
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+
+    private static double slowParse(byte[] b, int start, int end) {
+        try {
+            return Double.parseDouble(new String(b, start, end - start, StandardCharsets.US_ASCII).replace(',', '.'));
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    // --- LAP AND SECTOR SPLITTING ---
+
+    private double firstTime = Double.NaN;
+    private double prevLat = Double.NaN, prevLon = Double.NaN, prevTime;
+    private double cosLat;                 // Longitude scale for the flat-earth distance
+    private double odometer;               // Metres driven since the first sample
+    private double gateLat = Double.NaN, gateLon;
+    private double currentLap = Double.NaN, currentSector = Double.NaN;
+
+    // Samples of the lap in progress: time (ms) and odometer, for sector splits
+    private double[] lapTimes = new double[4096];
+    private double[] lapOdometer = new double[4096];
+    private int lapSamples;
+    private int lapFirstSample;
+    private boolean lapStarted;            // False until the first boundary (out lap)
+    private final double[] sectorSplits = new double[SECTORS - 1];
+    private int sectorSplitCount;
+
+    // Start/finish gate state (GPS mode)
+    private boolean inGate;
+    private double gateBestDistance;
+    private int gateBestIndex;             // Index into the lap buffers
+    private double lastCrossingOdometer;
+
+    private final IntList laps = new IntList(); // 5 ints per lap, see the file layout
+
+    private void onSample() throws IOException {
+        double time = values[TIME] * timeScale;
+        if (Double.isNaN(firstTime)) firstTime = time;
+        double lat = values[LAT], lon = values[LON];
+        boolean hasPosition = !Double.isNaN(lat) && !Double.isNaN(lon) && !(lat == 0 && lon == 0);
+        double speed = values[SPEED] * speedScale;
+
+        // Distance since the previous sample: GPS if available, otherwise integrated speed
+        if (hasPosition && !Double.isNaN(prevLat)) {
+            double dy = Math.toRadians(lat - prevLat) * EARTH_RADIUS_M;
+            double dx = Math.toRadians(lon - prevLon) * EARTH_RADIUS_M * cosLat;
+            odometer += Math.sqrt(dx * dx + dy * dy);
+        } else if (!hasPosition && !Double.isNaN(speed) && sampleCount > 0) {
+            odometer += speed / 3.6 * Math.max(0, time - prevTime) / 1000;
+        }
+        if (hasPosition) {
+            if (Double.isNaN(prevLat)) cosLat = Math.cos(Math.toRadians(lat));
+            prevLat = lat;
+            prevLon = lon;
+        }
+        prevTime = time;
+
+        writeSample(time, lat, lon, hasPosition, speed);
+        addLapSample(time);
+
+        if (hasLapColumn) {
+            double lap = values[LAP];
+            if (!Double.isNaN(lap) && lap != currentLap) {
+                if (!Double.isNaN(currentLap)) lapBoundary(lapSamples - 1);
+                currentLap = lap;
+            }
+        } else if (hasPosition) {
+            checkGate(lat, lon);
+        }
+
+        if (hasSectorColumn) {
+            double sector = values[SECTOR];
+            if (!Double.isNaN(sector) && sector != currentSector) {
+                // A change on the first sample of a lap is the lap boundary itself
+                if (!Double.isNaN(currentSector) && lapSamples > 1 && sectorSplitCount < sectorSplits.length) {
+                    sectorSplits[sectorSplitCount++] = time;
+                }
+                currentSector = sector;
+            }
+        }
+    }
+
+    /**
+     * Start/finish detection: the crossing is the sample closest to the line while passing it.
+     */
+    private void checkGate(double lat, double lon) {
+        if (Double.isNaN(gateLat)) {
+            gateLat = lat;
+            gateLon = lon;
+            return;
+        }
+        double dy = Math.toRadians(lat - gateLat) * EARTH_RADIUS_M;
+        double dx = Math.toRadians(lon - gateLon) * EARTH_RADIUS_M * cosLat;
+        double distance = Math.sqrt(dx * dx + dy * dy);
+
+        if (distance < GATE_RADIUS_M && odometer - lastCrossingOdometer > MIN_LAP_DISTANCE_M) {
+            if (!inGate || distance < gateBestDistance) {
+                inGate = true;
+                gateBestDistance = distance;
+                gateBestIndex = lapSamples - 1;
+            }
+        } else if (inGate && distance >= GATE_RADIUS_M) {
+            inGate = false;
+            lastCrossingOdometer = lapOdometer[gateBestIndex];
+            lapBoundary(gateBestIndex);
+        }
+    }
+
+    private void addLapSample(double time) {
+        if (lapSamples == lapTimes.length) {
+            lapTimes = Arrays.copyOf(lapTimes, lapSamples * 2);
+            lapOdometer = Arrays.copyOf(lapOdometer, lapSamples * 2);
+        }
+        lapTimes[lapSamples] = time;
+        lapOdometer[lapSamples] = odometer;
+        lapSamples++;
+    }
+
+    /**
+     * Ends the current lap at the given buffered sample, which becomes the first sample of the next lap.
+     */
+    private void lapBoundary(int index) {
+        int boundarySample = sampleCount - (lapSamples - index);
+        if (lapStarted) {
+            int lapMillis = (int) Math.round(lapTimes[index] - lapTimes[0]);
+            int[] sectors = sectorTimes(index);
+            laps.add(lapFirstSample);
+            laps.add(lapMillis);
+            for (int s : sectors) laps.add(s);
+        }
+        lapStarted = true;
+        lapFirstSample = boundarySample;
+
+        // Sector splits after the boundary belong to the next lap
+        double boundaryTime = lapTimes[index];
+        int kept = 0;
+        for (int i = 0; i < sectorSplitCount; i++) if (sectorSplits[i] > boundaryTime) sectorSplits[kept++] = sectorSplits[i];
+        sectorSplitCount = kept;
+
+        // Keep the samples from the boundary on as the start of the next lap
+        int remaining = lapSamples - index;
+        System.arraycopy(lapTimes, index, lapTimes, 0, remaining);
+        System.arraycopy(lapOdometer, index, lapOdometer, 0, remaining);
+        lapSamples = remaining;
+        if (gateBestIndex >= index) gateBestIndex -= index;
+    }
+
+    /**
+     * Sector times of the lap ending at {@code end}: from the sector column if it gave two splits,
+     * otherwise at one and two thirds of the lap distance.
+     */
+    private int[] sectorTimes(int end) {
+        int[] sectors = { LapTime.INVALID, LapTime.INVALID, LapTime.INVALID };
+        double start = lapTimes[0], finish = lapTimes[end];
+        double split1, split2;
+
+        int splits = 0;
+        for (int i = 0; i < sectorSplitCount; i++) if (sectorSplits[i] <= finish) splits++;
+        if (hasSectorColumn && splits >= 2) {
+            split1 = sectorSplits[0];
+            split2 = sectorSplits[1];
+        } else {
+            double distance = lapOdometer[end] - lapOdometer[0];
+            if (distance <= 0) return sectors;
+            split1 = timeAtDistance(lapOdometer[0] + distance / 3, end);
+            split2 = timeAtDistance(lapOdometer[0] + distance * 2 / 3, end);
+        }
+        sectors[0] = (int) Math.round(split1 - start);
+        sectors[1] = (int) Math.round(split2 - split1);
+        sectors[2] = (int) Math.round(finish - split2);
+        return sectors;
+    }
+
+    private double timeAtDistance(double target, int end) {
+        int low = 0, high = end;
+        while (low < high) { // First sample at or past the target
+            int mid = (low + high) >>> 1;
+            if (lapOdometer[mid] < target) low = mid + 1;
+            else high = mid;
+        }
+        if (low == 0) return lapTimes[0];
+        double d0 = lapOdometer[low - 1], d1 = lapOdometer[low];
+        double f = d1 > d0 ? (target - d0) / (d1 - d0) : 0;
+        return lapTimes[low - 1] + f * (lapTimes[low] - lapTimes[low - 1]);
+    }
+
+    // --- TELEMETRY FILE ---
+
+    private FileChannel out;
+    private final ByteBuffer outBuffer = ByteBuffer.allocate(1024 * 1024);
+    private int sampleCount;
+
+    private void writeSample(double time, double lat, double lon, boolean hasPosition, double speed) throws IOException {
+        if (outBuffer.remaining() < SAMPLE_SIZE) flushOutput();
+        outBuffer.putInt((int) Math.round(time - firstTime));
+        outBuffer.putInt(hasPosition ? (int) Math.round(lat * 1e7) : NO_POSITION);
+        outBuffer.putInt(hasPosition ? (int) Math.round(lon * 1e7) : NO_POSITION);
+        outBuffer.putShort(Double.isNaN(speed) ? -1 : (short) Math.min(Short.MAX_VALUE, Math.round(speed * 10)));
+        double rpm = values[RPM];
+        outBuffer.putChar(Double.isNaN(rpm) ? 0 : (char) Math.max(0, Math.min(Character.MAX_VALUE, Math.round(rpm))));
+        sampleCount++;
+    }
+
+    private void writeLapsAndHeader() throws IOException {
+        int lapCount = laps.size() / 5;
+        for (int i = 0; i < laps.size(); i++) {
+            if (outBuffer.remaining() < 4) flushOutput();
+            outBuffer.putInt(laps.get(i));
+        }
+        flushOutput();
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).put(VERSION).putInt(sampleCount).putInt(lapCount).flip();
+        out.write(header, 0);
+    }
+
+    private void flushOutput() throws IOException {
+        outBuffer.flip();
+        while (outBuffer.hasRemaining()) out.write(outBuffer);
+        outBuffer.clear();
+    }
+
+    /**
+     * Growable int array (avoids boxing for the lap table).
+     */
+    private static class IntList {
+        private int[] data = new int[64];
+        private int size;
+
+        void add(int v) {
+            if (size == data.length) data = Arrays.copyOf(data, size * 2);
+            data[size++] = v;
+        }
+
+        int get(int i) { return data[i]; }
+
+        int size() { return size; }
+    }
+}
@@ -0,0 +1,124 @@
+package MyGarage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Personal bests and leaderboards of one vehicle.
+ * Sessions are grouped by (track, conditions, tires), because a wet lap on road tires should
+ * not be compared to a dry lap on semi-slicks. Each group keeps its sessions sorted by lap time,
+ * so the PB is the first entry and the rank of a session is a binary search.
+ *
+ * Track and tire names are compared ignoring case and surrounding spaces, through the folded
+ * {@link SymbolTable} ids of the session, so no key text is built per lookup.
+ * Sessions without a valid lap time are not ranked.
+ *
+ * The methods are synchronized because the track table sorts by PB, gap and rank on a background thread.
+ */
+class TrackRecords {
+
+    private final Map<Key, List<TrackSession>> boards = new HashMap<>();
+
+    /**
+     * Adds a session to its leaderboard (sorted insert).
+     */
+    synchronized void add(TrackSession session) {
+        if (!session.hasValidLapTime()) return;
+        List<TrackSession> board = boards.computeIfAbsent(key(session), k -> new ArrayList<>());
+        // Equal times keep their insertion order
+        board.add(lowerBound(board, session.getLapTimeMillis() + 1), session);
+    }
+
+    /**
+     * @return The personal best (ms) for the session's track, conditions and tires, or {@link LapTime#INVALID}.
+     */
+    synchronized int personalBest(TrackSession session) {
+        List<TrackSession> board = boards.get(key(session));
+        return board == null || board.isEmpty() ? LapTime.INVALID : board.get(0).getLapTimeMillis();
+    }
+
+    /**
+     * @return 1-based rank of the session in its leaderboard (ties share a rank), or 0 if it is not ranked.
+     */
+    synchronized int rank(TrackSession session) {
+        if (!session.hasValidLapTime()) return 0;
+        List<TrackSession> board = boards.get(key(session));
+        return board == null ? 0 : lowerBound(board, session.getLapTimeMillis()) + 1;
+    }
+
+    /**
+     * @return Number of ranked sessions with the same track, conditions and tires.
+     */
+    synchronized int boardSize(TrackSession session) {
+        List<TrackSession> board = boards.get(key(session));
+        return board == null ? 0 : board.size();
+    }
+
+    /**
+     * @return The sessions of a leaderboard, fastest first (read-only).
+     */
+    synchronized List<TrackSession> leaderboard(String trackName, String conditions, String tires) {
+        List<TrackSession> board = boards.get(key(trackName, conditions, tires));
+        return board == null ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(board));
+    }
+
+    /**
+     * @return The fastest session of every leaderboard.
+     */
+    synchronized List<TrackSession> personalBests() {
+        List<TrackSession> bests = new ArrayList<>(boards.size());
+        for (List<TrackSession> board : boards.values()) bests.add(board.get(0));
+        return bests;
+    }
+
+    // --- HELPERS ---
+
+    /**
+     * @return Index of the first session with a lap time of at least {@code millis}.
+     */
+    private static int lowerBound(List<TrackSession> board, int millis) {
+        int low = 0, high = board.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (board.get(mid).getLapTimeMillis() < millis) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    private static Key key(TrackSession s) {
+        return new Key(s.trackId(), s.conditionsId(), s.tiresId());
+    }
+
+    private static Key key(String trackName, String conditions, String tires) {
+        return new Key(SymbolTable.id(trackName), SymbolTable.id(conditions), SymbolTable.id(tires));
+    }
+
+    /**
+     * Leaderboard of a (track, conditions, tires) combination, as folded symbol ids.
+     */
+    private static final class Key {
+        private final int track, conditions, tires;
+
+        Key(int track, int conditions, int tires) {
+            this.track = SymbolTable.folded(track);
+            this.conditions = SymbolTable.folded(conditions);
+            this.tires = SymbolTable.folded(tires);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return track == k.track && conditions == k.conditions && tires == k.tires;
+        }
+
+        @Override
+        public int hashCode() {
+            return (track * 31 + conditions) * 31 + tires;
+        }
+    }
+}
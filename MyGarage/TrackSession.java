@@ -1,28 +1,96 @@
 package MyGarage;
 
-import java.io.Serializable;
 import java.time.LocalDate;
 
-public class TrackSession implements Serializable {
-    
-    private String trackName;
-    private String lapTime;     // ex: 2:15.450
+public class TrackSession {
+
+    // Track, conditions and tires are SymbolTable ids: a garage has thousands of sessions but only a few of each
+    private int trackName;
+    private int lapTimeMillis;  // ex: 135450 for 2:15.450 (LapTime.INVALID if the text could not be read)
+    private String rawLapTime;  // Original text, only kept when it is not a valid time
     private LocalDate date;
-    private String conditions;  // ex: Dry, Wet
-    private String tires;       // ex: Cup 2
+    private int conditions;     // ex: Dry, Wet
+    private int tires;          // ex: Cup 2
 
-    public TrackSession(String trackName, String lapTime, LocalDate date, String conditions, String tires) {
+    // Filled in when a data-logger file was imported (see TelemetryImporter)
+    private int[] sectorMillis;   // Best time of each sector
+    private String telemetryFile; // File name inside the telemetry folder
+
+    private long id; // Stable id of the session (see IdGenerator), 0 until it is added to a vehicle if unknown
+
+    /**
+     * Creates a session from a lap time in milliseconds (already validated, see {@link LapTime#parse(String)}).
+     */
+    public TrackSession(String trackName, int lapTimeMillis, LocalDate date, String conditions, String tires) {
+        this(SymbolTable.id(trackName), lapTimeMillis, null, date, SymbolTable.id(conditions), SymbolTable.id(tires), IdGenerator.next());
+    }
+
+    /**
+     * Recreates a stored session from SymbolTable ids (used by {@link GarageCodec}).
+     * @param rawLapTime Lap time text, only kept if the milliseconds are {@link LapTime#INVALID}.
+     * @param id         Stable id of the session, 0 if it was saved before sessions had ids.
+     */
+    TrackSession(int trackName, int lapTimeMillis, String rawLapTime, LocalDate date, int conditions, int tires, long id) {
+        this.id = id;
         this.trackName = trackName;
-        this.lapTime = lapTime;
+        this.lapTimeMillis = lapTimeMillis;
+        this.rawLapTime = lapTimeMillis == LapTime.INVALID ? rawLapTime : null;
         this.date = date;
         this.conditions = conditions;
         this.tires = tires;
     }
 
+    /**
+     * Creates a session from lap time text (e.g. from older save files).
+     * Text that is not a valid time is kept as it is and left out of personal bests.
+     */
+    public TrackSession(String trackName, String lapTime, LocalDate date, String conditions, String tires) {
+        this(trackName, LapTime.tryParse(lapTime), date, conditions, tires);
+        if (lapTimeMillis == LapTime.INVALID) rawLapTime = lapTime;
+    }
+
     // Getter Methods
-    public String getTrackName() { return trackName; }
-    public String getLapTime() { return lapTime; }
+    public String getTrackName() { return SymbolTable.name(trackName); }
+    public String getLapTime() { return lapTimeMillis == LapTime.INVALID ? rawLapTime : LapTime.format(lapTimeMillis); }
+    public int getLapTimeMillis() { return lapTimeMillis; }
+    public boolean hasValidLapTime() { return lapTimeMillis != LapTime.INVALID; }
     public LocalDate getDate() { return date; }
-    public String getConditions() { return conditions; }
-    public String getTires() { return tires; }
+    public String getConditions() { return SymbolTable.name(conditions); }
+    public String getTires() { return SymbolTable.name(tires); }
+    public String getTelemetryFile() { return telemetryFile; }
+    public boolean hasTelemetry() { return telemetryFile != null; }
+
+    int trackId() { return trackName; }
+    int conditionsId() { return conditions; }
+    int tiresId() { return tires; }
+
+    public long getId() { return id; }
+
+    /**
+     * Replaces the id of a session that is not stored yet (used when reading the journal and older files).
+     */
+    void setId(long id) { this.id = id; }
+
+    /**
+     * @return Best time of a sector (0-based) in ms, or {@link LapTime#INVALID} if unknown.
+     */
+    public int getSectorMillis(int sector) {
+        return sectorMillis == null || sector >= sectorMillis.length ? LapTime.INVALID : sectorMillis[sector];
+    }
+
+    /**
+     * Stores the results of an imported data-logger file.
+     * Must be called before the session is added to a vehicle, because the lap time is part of its records.
+     * @param file          Telemetry file name.
+     * @param bestLapMillis Best complete lap in the file (ignored if {@link LapTime#INVALID}).
+     * @param bestSectors   Best time of each sector.
+     */
+    void setTelemetry(String file, int bestLapMillis, int[] bestSectors) {
+        this.telemetryFile = file;
+        this.sectorMillis = bestSectors == null ? null : bestSectors.clone();
+        if (bestLapMillis != LapTime.INVALID) {
+            this.lapTimeMillis = bestLapMillis;
+            this.rawLapTime = null;
+        }
+    }
 }
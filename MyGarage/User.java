@@ -1,21 +1,25 @@
 package MyGarage;
 
-import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.HashMap;
 
 /**
  * Represents a registered user of the application.
  * This class serves as the root of the data hierarchy, holding personal details
  * and a list of vehicles (the garage).
  */
-public class User implements Serializable {
+public class User {
     
     private String username;
     private String password; // Stored as plain text for this MVP; encryption can be added later.
     private String email;    // Optional contact information.
+    private int id;          // Number of the user's shard, set when it is registered or loaded (see DataBaseManager)
     
     // THE CORE RELATIONSHIP: A user can own multiple vehicles.
     private ArrayList<Vehicle> myGarage; 
+    private HashMap<String, Vehicle> vehiclesById = new HashMap<>(); // Lookup for journal entries, search hits and the CLI
+
+    private SearchIndex searchIndex; // Built on first use, then kept up to date by indexChange()
 
     /**
      * Constructor to create a new User.
@@ -37,6 +41,7 @@ public class User implements Serializable {
      */
     public void addVehicleToGarage(Vehicle v) {
         myGarage.add(v);
+        vehiclesById.putIfAbsent(v.getId(), v); // Older data may repeat an id: the first vehicle keeps it, like before
     }
     
     /**
@@ -44,7 +49,18 @@ public class User implements Serializable {
      * @param v The Vehicle object to remove.
      */
     public void removeVehicle(Vehicle v) {
-        myGarage.remove(v);
+        if (!myGarage.remove(v) || vehiclesById.get(v.getId()) != v) return;
+        vehiclesById.remove(v.getId());
+        for (Vehicle other : myGarage) {
+            if (other.getId().equals(v.getId())) { vehiclesById.put(other.getId(), other); break; }
+        }
+    }
+
+    /**
+     * @return The vehicle with this id, or null.
+     */
+    public Vehicle findVehicle(String id) {
+        return vehiclesById.get(id);
     }
 
     /**
@@ -58,4 +74,32 @@ public class User implements Serializable {
     // --- GETTERS ---
     public String getUsername() { return username; }
     public String getPassword() { return password; }
+    public String getEmail() { return email; }
+
+    /**
+     * @return The id of the user (0 until it is registered), see {@link DataBaseManager#loadUser(int)}.
+     */
+    public int getId() { return id; }
+
+    void setId(int id) { this.id = id; }
+
+    // --- SEARCH ---
+
+    /**
+     * @return The full-text index of this user's garage (built on first use).
+     */
+    public SearchIndex getSearchIndex() {
+        if (searchIndex == null) searchIndex = SearchIndex.build(this);
+        return searchIndex;
+    }
+
+    void setSearchIndex(SearchIndex index) { this.searchIndex = index; }
+
+    /**
+     * Updates the search index after a change was applied to this user.
+     * Nothing to do while the index is not built yet: building it later includes the change.
+     */
+    void indexChange(JournalEntry entry) {
+        if (searchIndex != null) searchIndex.update(entry, this);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,321 @@
+package MyGarage;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.function.BiConsumer;
+
+/**
+ * Persistent username index used for login and auto-login.
+ * It maps every registered username (case-folded, so lookups ignore case like the login screen)
+ * to the number of the shard holding that user's garage.
+ *
+ * Two files live next to the data:
+ * - {@code users.names}: append-only list of (shard, username) records. This is the source of truth.
+ * - {@code users.idx}: open-addressing hash table on disk. Each slot holds the hash of the folded
+ *   name and the position of its record in {@code users.names}.
+ *
+ * A lookup reads a handful of slots and one name record, so its cost does not grow with the
+ * number of registered users. The table is rebuilt from the names file if it is missing,
+ * out of date or full.
+ */
+class UserIndex {
+
+    private static final int MAGIC = 0x4D475549; // "MGUI"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;   // magic, version, capacity, count, nextShard, namesLength
+    private static final int SLOT_SIZE = 12;     // hash (int) + record position + 1 (long), 0 = empty slot
+    private static final double MAX_LOAD = 0.6;
+    private static final int MIN_CAPACITY = 64;
+
+    private final File indexFile;
+    private final File namesFile;
+    private RandomAccessFile idx;
+    private RandomAccessFile names;
+
+    private int capacity;
+    private int count;
+    private int nextShard = 1;
+    private long namesLength; // Part of the names file already present in the table
+
+    // Reused for slot reads and writes
+    private final byte[] slotBuffer = new byte[SLOT_SIZE];
+
+    UserIndex(File folder) {
+        this.indexFile = new File(folder, "users.idx");
+        this.namesFile = new File(folder, "users.names");
+    }
+
+    /**
+     * Opens the index, creating it or bringing it up to date with the names file if needed.
+     */
+    void open() throws IOException {
+        namesFile.getParentFile().mkdirs();
+        names = new RandomAccessFile(namesFile, "rw");
+        idx = new RandomAccessFile(indexFile, "rw");
+
+        if (!readHeader()) {
+            rebuild(MIN_CAPACITY);
+        } else if (namesLength != names.length()) {
+            // Registrations that reached the names file but not the table (e.g. app closed mid-write)
+            catchUp();
+        }
+    }
+
+    /**
+     * Finds the shard of a user. An exact match wins over a match that only differs in case.
+     * @return The shard number, or null if the username is not registered.
+     */
+    Integer find(String username) throws IOException {
+        String folded = fold(username);
+        int hash = hash(folded);
+        Integer caseInsensitiveMatch = null;
+
+        for (int slot = hash & (capacity - 1); ; slot = (slot + 1) & (capacity - 1)) {
+            ByteBuffer entry = readSlot(slot);
+            int slotHash = entry.getInt();
+            long position = entry.getLong() - 1;
+            if (position < 0) return caseInsensitiveMatch; // Empty slot ends the probe chain
+            if (slotHash != hash) continue;
+
+            DataInputStream record = readRecord(position);
+            int shard = record.readInt();
+            String stored = record.readUTF();
+            if (stored.equals(username)) return shard;
+            if (caseInsensitiveMatch == null && fold(stored).equals(folded)) caseInsensitiveMatch = shard;
+        }
+    }
+
+    /**
+     * Registers a username under the next free shard number.
+     * @return The shard assigned to the user.
+     */
+    int add(String username) throws IOException {
+        int shard = nextShard;
+        add(username, shard);
+        return shard;
+    }
+
+    /**
+     * Registers a username under a given shard number.
+     */
+    void add(String username, int shard) throws IOException {
+        // 1. Source of truth first (one write call per record)
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(32);
+        DataOutputStream record = new DataOutputStream(buffer);
+        record.writeInt(shard);
+        record.writeUTF(username);
+        long position = names.length();
+        names.seek(position);
+        names.write(buffer.toByteArray());
+
+        // 2. Then the hash table
+        if (count + 1 > capacity * MAX_LOAD) {
+            rebuild(capacity * 2);
+        } else {
+            insert(hash(fold(username)), position);
+            count++;
+            nextShard = Math.max(nextShard, shard + 1);
+            namesLength = names.length();
+            writeHeader();
+        }
+    }
+
+    /**
+     * Visits every registered user in registration order.
+     */
+    void forEach(BiConsumer<String, Integer> action) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(namesFile)))) {
+            long position = 0;
+            while (position < namesLength) {
+                int shard = in.readInt();
+                String username = in.readUTF();
+                position += 4 + 2 + modifiedUtf8Length(username);
+                action.accept(username, shard);
+            }
+        }
+    }
+
+    /**
+     * @return All shard numbers in registration order.
+     */
+    ArrayList<Integer> shards() throws IOException {
+        ArrayList<Integer> shards = new ArrayList<>(count);
+        forEach((username, shard) -> shards.add(shard));
+        return shards;
+    }
+
+    int size() { return count; }
+
+    void close() throws IOException {
+        if (idx != null) idx.close();
+        if (names != null) names.close();
+    }
+
+    // --- HASH TABLE ---
+
+    /**
+     * Case folding consistent with {@link String#equalsIgnoreCase(String)}.
+     */
+    static String fold(String s) {
+        char[] chars = s.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+        }
+        return new String(chars);
+    }
+
+    private static int hash(String folded) {
+        int h = folded.hashCode() * 0x9E3779B9; // Spread similar names across the table
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * @return False if the record was already in the table.
+     */
+    private boolean insert(int hash, long position) throws IOException {
+        for (int slot = hash & (capacity - 1); ; slot = (slot + 1) & (capacity - 1)) {
+            ByteBuffer entry = readSlot(slot);
+            entry.getInt();
+            long existing = entry.getLong() - 1;
+            if (existing == position) return false;
+            if (existing < 0) {
+                ByteBuffer.wrap(slotBuffer).putInt(hash).putLong(position + 1);
+                idx.seek(HEADER_SIZE + (long) slot * SLOT_SIZE);
+                idx.write(slotBuffer);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Reads one (shard, username) record of the names file with two read calls.
+     */
+    private DataInputStream readRecord(long position) throws IOException {
+        byte[] head = new byte[6];
+        names.seek(position);
+        names.readFully(head);
+        int nameLength = ((head[4] & 0xFF) << 8) | (head[5] & 0xFF);
+        byte[] record = new byte[6 + nameLength];
+        System.arraycopy(head, 0, record, 0, 6);
+        names.readFully(record, 6, nameLength);
+        return new DataInputStream(new ByteArrayInputStream(record));
+    }
+
+    private ByteBuffer readSlot(int slot) throws IOException {
+        idx.seek(HEADER_SIZE + (long) slot * SLOT_SIZE);
+        idx.readFully(slotBuffer);
+        return ByteBuffer.wrap(slotBuffer);
+    }
+
+    /**
+     * Recreates the table from the names file with room for at least {@code minCapacity} slots.
+     */
+    private void rebuild(int minCapacity) throws IOException {
+        ArrayList<long[]> records = new ArrayList<>(); // {hash, position}
+        long position = 0;
+        int maxShard = 0;
+        long length = names.length();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(namesFile)))) {
+            while (position < length) {
+                int shard;
+                String username;
+                try {
+                    shard = in.readInt();
+                    username = in.readUTF();
+                } catch (EOFException torn) {
+                    break; // Half-written last record; it is overwritten by the next registration
+                }
+                records.add(new long[] { hash(fold(username)), position });
+                maxShard = Math.max(maxShard, shard);
+                position += 4 + 2 + modifiedUtf8Length(username);
+            }
+        }
+        if (position < length) names.setLength(position);
+
+        capacity = MIN_CAPACITY;
+        while (capacity < minCapacity || records.size() > capacity * MAX_LOAD) capacity *= 2;
+
+        // Build the whole table in memory and write it in one go
+        ByteBuffer table = ByteBuffer.allocate(capacity * SLOT_SIZE);
+        for (long[] record : records) {
+            int hash = (int) record[0];
+            int slot = hash & (capacity - 1);
+            while (table.getLong(slot * SLOT_SIZE + 4) != 0) slot = (slot + 1) & (capacity - 1);
+            table.putInt(slot * SLOT_SIZE, hash);
+            table.putLong(slot * SLOT_SIZE + 4, record[1] + 1);
+        }
+        idx.setLength(0);
+        idx.seek(HEADER_SIZE);
+        idx.write(table.array());
+
+        count = records.size();
+        nextShard = Math.max(nextShard, maxShard + 1);
+        namesLength = position;
+        writeHeader();
+    }
+
+    /**
+     * Adds the records at the end of the names file that are missing from the table.
+     */
+    private void catchUp() throws IOException {
+        if (namesLength > names.length()) {
+            rebuild(capacity); // The table points past the end of the names file
+            return;
+        }
+        long position = namesLength;
+        names.seek(position);
+        while (position < names.length()) {
+            int shard;
+            String username;
+            try {
+                shard = names.readInt();
+                username = names.readUTF();
+            } catch (EOFException torn) {
+                names.setLength(position);
+                break;
+            }
+            if (count + 1 > capacity * MAX_LOAD) {
+                rebuild(capacity * 2);
+                return;
+            }
+            if (insert(hash(fold(username)), position)) count++;
+            nextShard = Math.max(nextShard, shard + 1);
+            position = names.getFilePointer();
+        }
+        namesLength = position;
+        writeHeader();
+    }
+
+    private boolean readHeader() throws IOException {
+        if (idx.length() < HEADER_SIZE) return false;
+        idx.seek(0);
+        if (idx.readInt() != MAGIC || idx.readInt() != VERSION) return false;
+        capacity = idx.readInt();
+        count = idx.readInt();
+        nextShard = idx.readInt();
+        namesLength = idx.readLong();
+        return Integer.bitCount(capacity) == 1 && idx.length() >= HEADER_SIZE + (long) capacity * SLOT_SIZE;
+    }
+
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(capacity).putInt(count).putInt(nextShard).putLong(namesLength);
+        idx.seek(0);
+        idx.write(header.array());
+    }
+
+    /**
+     * Number of bytes {@link DataOutput#writeUTF(String)} uses for the characters of a string.
+     */
+    private static int modifiedUtf8Length(String s) {
+        int length = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= 0x0001 && c <= 0x007F) length += 1;
+            else if (c > 0x07FF) length += 3;
+            else length += 2;
+        }
+        return length;
+    }
+}
@@ -0,0 +1,585 @@
+package MyGarage;
+
+import MyGarage.legacy.LegacyReader;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Storage for a single user's garage.
+ * Each shard is a snapshot file ({@code user_N.dat}, encoded with {@link GarageCodec}) plus an append-only journal split into
+ * numbered segments ({@code user_N.journal.K}). Edits append small {@link JournalEntry}
+ * records; the journal is periodically folded into a new snapshot on a background thread.
+ *
+ * The snapshot remembers the last segment it already contains, so a crash between writing
+ * the snapshot and deleting old segments never applies an entry twice.
+ *
+ * Snapshots carry a CRC32 of their body and are written to a temporary file, forced to disk and
+ * renamed over the old one. The previous snapshots are kept as {@code user_N.dat.1} (newest) to
+ * {@code user_N.dat.}{@value #GENERATIONS}; a damaged snapshot is replaced by the newest intact one on load.
+ */
+class UserShard {
+
+    static final int SNAPSHOT_MAGIC = 0x4D47534E;         // "MGSN": no checksum (older versions)
+    static final int HEADER_SIZE = 12;                    // magic, lastSegment
+    static final int CHECKED_SNAPSHOT_MAGIC = 0x4D475332; // "MGS2": body length and CRC32 in the header
+    static final int CHECKED_HEADER_SIZE = 20;            // magic, lastSegment, length, crc
+
+    // Previous snapshots kept for rollback
+    static final int GENERATIONS = 3;
+
+    // Snapshot bodies are handed to the channel in slices of this size. The JDK copies heap buffers
+    // through a cached direct buffer of the same size, so this also bounds that buffer.
+    private static final int WRITE_CHUNK = 1024 * 1024;
+
+    // Largest journal entry written or read. Entries are a few strings each, so a bigger length
+    // in a frame header means the header itself is damaged.
+    static final int MAX_ENTRY_SIZE = 1024 * 1024;
+
+    // Compact once the active journal segment grows past this size.
+    private static final long COMPACTION_THRESHOLD = 512 * 1024;
+
+    private final File folder;
+    private final String snapshotName;
+    private final String journalPrefix;
+    private final String searchName;
+
+    // Guards the active segment and the snapshot/segment swap during compaction.
+    private final Object lock = new Object();
+
+    private DataOutputStream journalOut;
+    private long activeSegment = -1;
+    private long activeSegmentSize;
+    private Thread compactor;
+    private long snapshotSegment = -1; // Journal position of the snapshot on disk (-1 = not read yet), guarded by lock
+    private volatile boolean readOnly; // Another process holds the data folder (see DataBaseManager#lockForWriting)
+
+    /**
+     * @param folder The data folder containing all shards.
+     * @param name   Base file name of this shard (e.g. "user_3").
+     */
+    UserShard(File folder, String name) {
+        this.folder = folder;
+        this.snapshotName = name + ".dat";
+        this.journalPrefix = name + ".journal.";
+        this.searchName = name + ".search";
+    }
+
+    /**
+     * Read-only shards never write: no saves, appends or rollbacks (they throw), no compaction
+     * after a load and no repair of a damaged snapshot from its generations.
+     */
+    void setReadOnly(boolean readOnly) {
+        this.readOnly = readOnly;
+    }
+
+    private void checkWritable() throws IOException {
+        if (readOnly) throw new IOException("The data folder is in use by another MyGarage process");
+    }
+
+    /**
+     * Loads the user: the last snapshot plus every journal entry written after it.
+     * @return The User, or null if the shard has no data yet.
+     */
+    User load() throws IOException {
+        synchronized (lock) {
+            Snapshot snapshot = readSnapshot();
+            if (snapshot.corrupted) {
+                // Replaying the journal alone would give a partial garage that the next save writes over the real one
+                throw new IOException("The saved garage in " + folder.getName() + File.separator + snapshotName
+                        + " and all of its backups are unreadable");
+            }
+            int replayed = replaySegments(snapshot, Long.MAX_VALUE);
+            if (replayed > 0) {
+                System.out.println("ℹ️ Replayed " + replayed + " journal entries.");
+                compactAsync(); // Fold the tail into the snapshot so the next start is faster
+            }
+            if (snapshot.user != null) {
+                for (Vehicle v : snapshot.user.getGarage()) v.rebuildIndexes();
+            }
+            return snapshot.user;
+        }
+    }
+
+    /**
+     * Saves the user as a new snapshot.
+     * All journal entries written so far are considered part of it and are discarded.
+     */
+    void save(User user) throws IOException {
+        checkWritable();
+        synchronized (lock) {
+            long lastSegment = sealActiveSegment();
+            writeSnapshot(user, lastSegment);
+            deleteSegmentsUpTo(lastSegment);
+        }
+    }
+
+    /**
+     * Appends a batch of encoded changes to this shard's journal with a single write.
+     * @param payloads Entries encoded with {@link JournalEntry#encode()}, in order.
+     */
+    void append(List<byte[]> payloads) throws IOException {
+        checkWritable();
+        ByteArrayOutputStream batch = new ByteArrayOutputStream();
+        DataOutputStream frames = new DataOutputStream(batch);
+        CRC32 crc = new CRC32();
+        for (byte[] payload : payloads) {
+            if (payload.length > MAX_ENTRY_SIZE) throw new IOException("Journal entry too large: " + payload.length + " bytes");
+            crc.reset();
+            crc.update(payload);
+
+            // Frame: [length][payload][crc] so a torn write at the tail is detected on replay
+            frames.writeInt(payload.length);
+            frames.write(payload);
+            frames.writeInt((int) crc.getValue());
+        }
+
+        boolean compact;
+        synchronized (lock) {
+            if (journalOut == null) openNewSegment();
+            try {
+                batch.writeTo(journalOut);
+                journalOut.flush();
+            } catch (IOException e) {
+                dropFailedWrite();
+                throw e;
+            }
+            activeSegmentSize += batch.size();
+            compact = activeSegmentSize > COMPACTION_THRESHOLD;
+        }
+        if (compact) compactAsync();
+    }
+
+    /**
+     * Folds all sealed journal segments into a new snapshot on a background thread.
+     * The UI keeps appending to a fresh segment while this runs.
+     */
+    void compactAsync() {
+        if (readOnly) return;
+        synchronized (lock) {
+            if (compactor != null && compactor.isAlive()) return;
+            compactor = new Thread(this::compact, "mygarage-compactor");
+            compactor.setDaemon(true);
+            compactor.start();
+        }
+    }
+
+    private void compact() {
+        long lastSegment;
+        synchronized (lock) {
+            try {
+                lastSegment = sealActiveSegment();
+            } catch (IOException e) {
+                System.out.println("❌ Compaction Error: " + e.getMessage());
+                return;
+            }
+        }
+
+        // The heavy part runs without the lock. It only reads: the snapshot file is not repaired
+        // and no field is written, and the sealed segments are never modified again.
+        Snapshot snapshot = readSnapshot(false);
+        if (snapshot.corrupted || snapshot.restoredFrom != null) return; // Damaged: left to the next load, which repairs it under the lock
+        int replayed = replaySegments(snapshot, lastSegment);
+        if (replayed == 0 || snapshot.user == null) return;
+
+        synchronized (lock) {
+            // Someone called save() meanwhile (before or while we read); their snapshot is newer than ours
+            if (readSnapshotSegment() != snapshot.lastSegment) return;
+            try {
+                writeSnapshot(snapshot.user, lastSegment);
+                deleteSegmentsUpTo(lastSegment);
+                System.out.println("✅ Journal compacted (" + replayed + " entries).");
+            } catch (IOException e) {
+                System.out.println("❌ Compaction Error: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Makes an earlier snapshot the current one again. The current state (journal included) is
+     * kept as generation 1, so a rollback can itself be undone with {@code rollback(1)}.
+     * @param generation 1 = the snapshot before the current one, up to {@link #GENERATIONS}.
+     * @return The restored user, or null if there is no such generation.
+     */
+    User rollback(int generation) throws IOException {
+        checkWritable();
+        synchronized (lock) {
+            File file = generationFile(generation);
+            if (!file.exists()) return null;
+            Snapshot old = new Snapshot();
+            try {
+                readSnapshotFile(file, old);
+            } catch (ClassNotFoundException | RuntimeException e) {
+                throw new IOException(file.getName() + " cannot be read: " + e.getMessage(), e);
+            }
+            for (Vehicle v : old.user.getGarage()) v.rebuildIndexes();
+
+            User current = load();
+            if (current != null) save(current); // Journal folded in; the next save keeps this as generation 1
+            save(old.user);
+            return old.user;
+        }
+    }
+
+    // --- INTEGRITY CHECK ---
+
+    /**
+     * Reads the snapshot, the search index and every journal segment without changing any file.
+     * @param problems Receives a description of each problem found.
+     * @return The user as the app would load it (null if the shard has no data).
+     */
+    User check(List<String> problems) {
+        synchronized (lock) {
+            Snapshot snapshot = readSnapshot(false);
+            if (snapshot.corrupted) problems.add(snapshotName + ": snapshot cannot be read");
+            else if (snapshot.restoredFrom != null) problems.add(snapshotName + ": damaged, " + snapshot.restoredFrom + " is restored on the next load");
+            else if (snapshot.user != null && SearchIndex.read(new File(folder, searchName), snapshot.lastSegment) == null) {
+                problems.add(searchName + ": missing or out of date (rebuilt when needed)");
+            }
+            for (Map.Entry<Long, File> segment : listSegments().entrySet()) {
+                if (segment.getKey() <= snapshot.lastSegment) continue; // Already in the snapshot, deleted by the next save
+                readSegment(segment.getValue(), entry -> {
+                    if (snapshot.user == null) snapshot.user = new User(entry.getUsername(), "", "");
+                    entry.apply(snapshot.user);
+                }, problems);
+            }
+            if (snapshot.user != null) {
+                for (Vehicle v : snapshot.user.getGarage()) v.rebuildIndexes();
+            }
+            return snapshot.user;
+        }
+    }
+
+    // --- SNAPSHOT ---
+
+    private static class Snapshot {
+        User user;
+        long lastSegment; // Highest journal segment already folded into this snapshot
+        boolean corrupted;
+        String restoredFrom; // Generation read instead of a damaged snapshot
+    }
+
+    /**
+     * Reads the snapshot, repairing it if needed, and remembers its journal position.
+     * Only with {@code lock} held.
+     */
+    private Snapshot readSnapshot() {
+        Snapshot snapshot = readSnapshot(!readOnly);
+        if (!snapshot.corrupted) snapshotSegment = snapshot.lastSegment;
+        return snapshot;
+    }
+
+    /**
+     * Reads the snapshot without changing any field of the shard.
+     * @param repair Whether a damaged snapshot may be replaced by the newest intact generation on disk
+     *               (only with {@code lock} held). Without it, the generation is only read.
+     */
+    private Snapshot readSnapshot(boolean repair) {
+        Snapshot snapshot = new Snapshot();
+        File file = new File(folder, snapshotName);
+
+        if (file.exists()) {
+            try {
+                readSnapshotFile(file, snapshot);
+            } catch (IOException | ClassNotFoundException | RuntimeException e) {
+                System.out.println("❌ Load Error or Corrupted File: " + e.getMessage());
+                snapshot = readGeneration(repair);
+            }
+        }
+        return snapshot; // No file yet: position 0
+    }
+
+    private void readSnapshotFile(File file, Snapshot snapshot) throws IOException, ClassNotFoundException {
+        byte[] data = Files.readAllBytes(file.toPath());
+        if (LegacyReader.isLegacy(data)) {
+            // Shard written with Java serialization; the next snapshot converts it
+            try (LegacyReader reader = new LegacyReader(new ByteArrayInputStream(data))) {
+                snapshot.user = GarageCodec.fromLegacy(reader.readUser());
+                snapshot.lastSegment = reader.readJournalPosition();
+            }
+            return;
+        }
+
+        ByteBuffer in = ByteBuffer.wrap(data);
+        int magic = in.getInt();
+        if (magic == CHECKED_SNAPSHOT_MAGIC) {
+            snapshot.lastSegment = in.getLong();
+            int length = in.getInt();
+            int storedCrc = in.getInt();
+            if (length != in.remaining()) throw new IOException("Incomplete snapshot: " + file.getName());
+            CRC32 crc = new CRC32();
+            crc.update(in.duplicate());
+            if ((int) crc.getValue() != storedCrc) throw new IOException("Checksum mismatch in " + file.getName());
+        } else if (magic == SNAPSHOT_MAGIC) {
+            snapshot.lastSegment = in.getLong();
+        } else {
+            throw new IOException("Not a MyGarage snapshot: " + file.getName());
+        }
+        snapshot.user = GarageCodec.decode(in);
+        // Saved with the same journal position as the snapshot; otherwise it is rebuilt when first searched
+        snapshot.user.setSearchIndex(SearchIndex.read(new File(folder, searchName), snapshot.lastSegment));
+    }
+
+    /**
+     * Falls back to the newest readable generation after the snapshot turned out to be damaged.
+     * Edits that were only in the damaged snapshot are lost; newer journal entries are still replayed.
+     * @param repair Put the generation back in place of the damaged snapshot (kept as {@code .damaged}).
+     * @return The generation, or a corrupted snapshot if none can be read.
+     */
+    private Snapshot readGeneration(boolean repair) {
+        for (int generation = 1; generation <= GENERATIONS; generation++) {
+            File file = generationFile(generation);
+            if (!file.exists()) continue;
+            Snapshot snapshot = new Snapshot();
+            try {
+                readSnapshotFile(file, snapshot);
+            } catch (IOException | ClassNotFoundException | RuntimeException e) {
+                continue;
+            }
+            snapshot.restoredFrom = file.getName();
+            if (repair) {
+                try {
+                    Path target = new File(folder, snapshotName).toPath();
+                    Path temp = new File(folder, snapshotName + ".tmp").toPath();
+                    Files.move(target, new File(folder, snapshotName + ".damaged").toPath(), StandardCopyOption.REPLACE_EXISTING);
+                    Files.copy(file.toPath(), temp, StandardCopyOption.REPLACE_EXISTING);
+                    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    System.out.println("⚠️ Damaged snapshot replaced by " + file.getName() + ".");
+                } catch (IOException e) {
+                    System.out.println("❌ Restore Error: " + e.getMessage());
+                }
+            }
+            return snapshot;
+        }
+        Snapshot corrupted = new Snapshot();
+        corrupted.corrupted = true;
+        return corrupted;
+    }
+
+    private void writeSnapshot(User user, long lastSegment) throws IOException {
+        // Write next to the real file first so a crash mid-save never leaves a half-written snapshot
+        folder.mkdirs();
+        Path target = new File(folder, snapshotName).toPath();
+        Path temp = new File(folder, snapshotName + ".tmp").toPath();
+        byte[] body = GarageCodec.encode(user);
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        ByteBuffer header = ByteBuffer.allocate(CHECKED_HEADER_SIZE);
+        header.putInt(CHECKED_SNAPSHOT_MAGIC).putLong(lastSegment).putInt(body.length).putInt((int) crc.getValue()).flip();
+
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(out, header);
+            for (int pos = 0; pos < body.length; pos += WRITE_CHUNK) {
+                writeFully(out, ByteBuffer.wrap(body, pos, Math.min(WRITE_CHUNK, body.length - pos)));
+            }
+            out.force(true); // On disk before it replaces the old snapshot
+        }
+        keepGeneration(target);
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncFolder();
+        snapshotSegment = lastSegment;
+
+        // Search index, stamped with the same position (a stale one is simply ignored on load)
+        SearchIndex search = user.getSearchIndex();
+        if (search.needsRebuild()) {
+            search = SearchIndex.build(user); // Drop the documents of removed vehicles
+            user.setSearchIndex(search);
+        }
+        search.write(new File(folder, searchName), lastSegment);
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) out.write(buffer);
+    }
+
+    /**
+     * Shifts the generations by one and keeps the current snapshot as generation 1.
+     * A hard link is used where the file system allows it, so nothing is copied.
+     */
+    private void keepGeneration(Path snapshot) throws IOException {
+        if (!Files.exists(snapshot)) return;
+        Files.deleteIfExists(generationFile(GENERATIONS).toPath());
+        for (int generation = GENERATIONS - 1; generation >= 1; generation--) {
+            File older = generationFile(generation);
+            if (older.exists()) Files.move(older.toPath(), generationFile(generation + 1).toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        Path first = generationFile(1).toPath();
+        try {
+            Files.createLink(first, snapshot);
+        } catch (IOException | UnsupportedOperationException e) {
+            Files.copy(snapshot, first, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private File generationFile(int generation) {
+        return new File(folder, snapshotName + "." + generation);
+    }
+
+    /**
+     * Forces the folder entry of the renamed snapshot to disk.
+     * Not every platform can open a folder for this (e.g. Windows); there the rename is left to the OS.
+     */
+    private void syncFolder() {
+        try (FileChannel dir = FileChannel.open(folder.toPath(), StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException ignored) {}
+    }
+
+    // --- JOURNAL SEGMENTS ---
+
+    /**
+     * Replays journal segments newer than the snapshot, up to and including {@code upTo}.
+     * @return Number of entries applied.
+     */
+    private int replaySegments(Snapshot snapshot, long upTo) {
+        int count = 0;
+        for (Map.Entry<Long, File> segment : listSegments().entrySet()) {
+            long seq = segment.getKey();
+            if (seq <= snapshot.lastSegment || seq > upTo) continue;
+            count += replaySegment(segment.getValue(), snapshot);
+        }
+        return count;
+    }
+
+    private int replaySegment(File file, Snapshot snapshot) {
+        return readSegment(file, entry -> {
+            if (snapshot.user == null) snapshot.user = new User(entry.getUsername(), "", "");
+            entry.apply(snapshot.user);
+        });
+    }
+
+    /**
+     * Reads every intact entry of a journal segment, in order.
+     * Stops quietly at a torn or corrupted record at the end of the file.
+     * @return Number of entries passed to the consumer.
+     */
+    static int readSegment(File file, Consumer<JournalEntry> consumer) {
+        return readSegment(file, consumer, null);
+    }
+
+    /**
+     * Same as {@link #readSegment(File, Consumer)}, also describing where reading stopped early.
+     * @param problems Receives the problem, may be null.
+     */
+    private static int readSegment(File file, Consumer<JournalEntry> consumer, List<String> problems) {
+        int count = 0;
+        long remaining = file.length();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                int first = in.read();
+                if (first < 0) break; // Clean end of the segment
+                int length = (first << 24) | (in.readUnsignedByte() << 16) | in.readUnsignedShort();
+                remaining -= 8; // Length and CRC
+                if (length < 0 || length > MAX_ENTRY_SIZE || length > remaining) {
+                    // A damaged length would otherwise allocate up to 2 GB before the CRC is checked
+                    throw new EOFException("Bad entry length " + length);
+                }
+                remaining -= length;
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                int storedCrc = in.readInt();
+
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if ((int) crc.getValue() != storedCrc) {
+                    System.out.println("⚠️ Corrupted journal entry in " + file.getName() + ", ignoring the rest.");
+                    if (problems != null) problems.add(file.getName() + ": corrupted entry after " + count + " entries, the rest is ignored");
+                    break;
+                }
+                consumer.accept(JournalEntry.read(new DataInputStream(new ByteArrayInputStream(payload))));
+                count++;
+            }
+        } catch (EOFException torn) {
+            // The app was closed in the middle of a write; everything before it is still valid
+            System.out.println("⚠️ Incomplete journal entry at the end of " + file.getName() + ".");
+            if (problems != null) problems.add(file.getName() + ": incomplete entry at the end (after " + count + " entries)");
+        } catch (IOException e) {
+            System.out.println("❌ Journal Read Error: " + e.getMessage());
+            if (problems != null) problems.add(file.getName() + ": " + e.getMessage());
+        }
+        return count;
+    }
+
+    /**
+     * Lists the journal segment files in sequence order.
+     */
+    private TreeMap<Long, File> listSegments() {
+        TreeMap<Long, File> segments = new TreeMap<>();
+        File[] files = folder.listFiles((dir, name) -> name.startsWith(journalPrefix));
+        if (files == null) return segments;
+        for (File f : files) {
+            try {
+                segments.put(Long.parseLong(f.getName().substring(journalPrefix.length())), f);
+            } catch (NumberFormatException ignored) {}
+        }
+        return segments;
+    }
+
+    /**
+     * Starts a new segment after the highest existing one.
+     * A fresh file is used on every start so a torn tail of an old segment never hides new entries.
+     */
+    private void openNewSegment() throws IOException {
+        TreeMap<Long, File> segments = listSegments();
+        long next = Math.max(segments.isEmpty() ? 0 : segments.lastKey(), readSnapshotSegment()) + 1;
+        activeSegment = Math.max(activeSegment + 1, next);
+        activeSegmentSize = 0;
+        folder.mkdirs();
+        File file = new File(folder, journalPrefix + activeSegment);
+        journalOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+    }
+
+    /**
+     * Cuts whatever part of a failed batch reached the active segment and closes it, so a retry of
+     * the batch neither duplicates its first entries nor lands behind a torn frame (which replay
+     * would stop at). The retry goes into a new segment.
+     */
+    private void dropFailedWrite() {
+        try {
+            journalOut.close();
+        } catch (IOException ignored) {
+            // The buffered rest of the batch could not be written either
+        }
+        journalOut = null;
+        try (RandomAccessFile file = new RandomAccessFile(new File(folder, journalPrefix + activeSegment), "rw")) {
+            file.setLength(activeSegmentSize);
+        } catch (IOException e) {
+            System.out.println("⚠️ Could not cut a failed journal write: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Closes the active segment so no more entries go into it.
+     * @return The number of the last sealed segment.
+     */
+    private long sealActiveSegment() throws IOException {
+        if (journalOut != null) {
+            journalOut.close();
+            journalOut = null;
+            return activeSegment;
+        }
+        TreeMap<Long, File> segments = listSegments();
+        return Math.max(segments.isEmpty() ? 0 : segments.lastKey(), readSnapshotSegment());
+    }
+
+    private void deleteSegmentsUpTo(long lastSegment) {
+        for (Map.Entry<Long, File> segment : listSegments().entrySet()) {
+            if (segment.getKey() <= lastSegment) segment.getValue().delete();
+        }
+    }
+
+    /**
+     * Journal position stored in the snapshot (read from disk only if it is not known yet).
+     */
+    private long readSnapshotSegment() {
+        if (snapshotSegment < 0) readSnapshot();
+        return snapshotSegment;
+    }
+}
@@ -1,7 +1,13 @@
 package MyGarage;
 
-import java.io.Serializable;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Represents a vehicle owned by the user.
@@ -9,25 +15,41 @@ import java.util.ArrayList;
  * including its specifications, expense history, modification plans (Dream Spec),
  * and track day records.
  */
-public class Vehicle implements Serializable {
+public class Vehicle {
     
     // REMOVED: VehicleType enum is no longer needed as the app focuses on Cars.
 
     private String id; // Unique identifier for the vehicle
-    private String brand;
-    private String model;
-    private String generation; // e.g., "F30", "MK4"
+    private int brand;      // Brand, model, generation and color are SymbolTable ids
+    private int model;
+    private int generation; // e.g., "F30", "MK4"
     private String year;
-    private String color;
+    private int color;
     private int kilometer;
     private int power;  // Horsepower (HP)
     private int torque; // Newton-meter (Nm)
 
     // --- DATA LOGS (The history of the vehicle) ---
-    private ArrayList<Expense> expenseLog;
+    private ExpenseLog expenseLog; // Column storage, see ExpenseLog
     private ArrayList<DreamItem> dreamSpecLog;
     private ArrayList<TrackSession> trackLog; 
 
+    // Record id -> record, built on the first lookup by id and then kept up to date (expenses: see ExpenseLog).
+    // Records saved before they had ids are numbered by their position in the log (append-only, so it never changes).
+    private HashMap<Long, DreamItem> dreamsById;
+    private HashMap<Long, TrackSession> sessionsById;
+
+    // Running Dream Spec cost per currency (expense totals are kept by the ExpenseLog)
+    private Map<String, Double> dreamTotals = new LinkedHashMap<>();
+    private ConvertedTotals dreamConverted; // The same in every currency with rates (built on first use)
+
+    // Personal bests and leaderboards of the track log
+    private TrackRecords trackRecords = new TrackRecords();
+
+    // Every odometer update, and the mileage analytics built from it
+    private OdometerLog odometerLog = new OdometerLog();
+    private MileageStats mileageStats = new MileageStats();
+
     /**
      * Constructor to initialize a new Vehicle.
      * Note: VehicleType parameter has been removed for simplicity.
@@ -41,6 +63,24 @@ public class Vehicle implements Serializable {
      * @param torque     Engine torque in Nm
      */
     public Vehicle(String brand, String model, String generation, String year, String color, int kilometer, int power, int torque) {
+        // Unique even for vehicles created in the same millisecond (e.g. by an import)
+        this(IdGenerator.nextText(), brand, model, generation, year, color, kilometer, power, torque);
+    }
+
+    /**
+     * Recreates a vehicle with a known ID (used when replaying the journal).
+     */
+    Vehicle(String id, String brand, String model, String generation, String year, String color, int kilometer, int power, int torque) {
+        this(id, SymbolTable.id(brand), SymbolTable.id(model), SymbolTable.id(generation), year, SymbolTable.id(color),
+                kilometer, power, torque);
+    }
+
+    /**
+     * Recreates a stored vehicle with brand, model, generation and color as SymbolTable ids (used by {@link GarageCodec}).
+     */
+    Vehicle(String id, int brand, int model, int generation, String year, int color, int kilometer, int power, int torque) {
+        this.id = id;
+        IdGenerator.observe(id);
         this.brand = brand;
         this.model = model;
         this.generation = generation;
@@ -51,12 +91,9 @@ public class Vehicle implements Serializable {
         this.torque = torque;
         
         // Initialize empty lists for logs to avoid NullPointerException
-        this.expenseLog = new ArrayList<>();
+        this.expenseLog = new ExpenseLog();
         this.dreamSpecLog = new ArrayList<>();
         this.trackLog = new ArrayList<>(); 
-        
-        // Generate a simple unique ID based on the current timestamp
-        this.id = System.currentTimeMillis() + "";
     }
 
     // --- UTILITY METHODS ---
@@ -66,42 +103,160 @@ public class Vehicle implements Serializable {
      * @return A string like "2016 BMW 320i (F30)"
      */
     public String getDisplayName() { 
-        return year + " " + brand + " " + model + " (" + generation + ")"; 
+        return year + " " + getBrand() + " " + getModel() + " (" + getGeneration() + ")"; 
     }
 
     // --- GETTERS & SETTERS ---
 
-    public String getBrand() { return brand; }
-    public String getModel() { return model; }
-    public String getGeneration() { return generation; }
+    public String getId() { return id; }
+    public String getBrand() { return SymbolTable.name(brand); }
+    public String getModel() { return SymbolTable.name(model); }
+    public String getGeneration() { return SymbolTable.name(generation); }
     public String getYear() { return year; }
-    public String getColor() { return color; }
+    public String getColor() { return SymbolTable.name(color); }
+    int brandId() { return brand; }
+    int modelId() { return model; }
+    int generationId() { return generation; }
+    int colorId() { return color; }
     public int getKilometer() { return kilometer; }
     public int getPower() { return power; }
     public int getTorque() { return torque; }
 
-    // Allows updating the mileage from the Dashboard
+    // Allows updating the mileage from the Dashboard (recorded as today's reading)
     public void setKilometer(int kilometer) { 
-        this.kilometer = kilometer; 
+        recordKilometer(kilometer, LocalDate.now());
+    }
+
+    /**
+     * Updates the mileage and adds it to the odometer history.
+     * @param kilometer The odometer value.
+     * @param date      Day of the reading, or null if unknown (only the current mileage changes).
+     */
+    public void recordKilometer(int kilometer, LocalDate date) {
+        this.kilometer = kilometer;
+        if (date == null) return;
+        odometerLog.add((int) date.toEpochDay(), kilometer);
+        mileageStats.add((int) date.toEpochDay(), kilometer);
+    }
+
+    OdometerLog getOdometerLog() {
+        return odometerLog;
+    }
+
+    void setOdometerLog(OdometerLog log) {
+        this.odometerLog = log;
+        this.mileageStats = new MileageStats();
+        log.forEach(mileageStats::add);
     }
 
     // --- EXPENSE MANAGEMENT ---
     
     public void addExpense(Expense e) { 
-        if(expenseLog == null) expenseLog = new ArrayList<>(); // Safety check
-        expenseLog.add(e); 
+        getExpenseLog().add(e); // The values are copied into the columns
     }
     
-    public ArrayList<Expense> getExpenses() { 
-        if(expenseLog == null) expenseLog = new ArrayList<>();
-        return expenseLog; 
+    /**
+     * @return The expense with this id (a view of its row), or null.
+     */
+    public Expense findExpense(long id) {
+        int row = getExpenseLog().row(id);
+        return row < 0 ? null : getExpenses().get(row);
+    }
+
+    /**
+     * @return A read-only view of the expenses, in the order they were added.
+     */
+    public List<Expense> getExpenses() { 
+        return getExpenseLog().view(); 
+    }
+
+    ExpenseLog getExpenseLog() {
+        if(expenseLog == null) expenseLog = new ExpenseLog(); // Safety check
+        return expenseLog;
+    }
+
+    /**
+     * @return Total spent in a category, all currencies added together. O(1).
+     */
+    public double getExpenseTotal(Expense.ExpenseCategory category) {
+        return getExpenseLog().categoryTotal(category);
+    }
+
+    /**
+     * @return Total spent per currency. Costs one entry per currency, not per expense.
+     */
+    public Map<String, Double> getExpenseTotalsByCurrency() {
+        return getExpenseLog().currencyTotals();
+    }
+
+    /**
+     * Total spent per currency between two dates (both inclusive).
+     * Answered from the monthly rollup, so the cost depends on the number of months, not expenses.
+     */
+    public Map<String, Double> getExpenseTotalsByCurrency(LocalDate from, LocalDate to) {
+        ExpenseLog log = getExpenseLog();
+        double[][] totals = log.totalsBetween(from, to);
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (int currency = 0; currency < totals.length; currency++) {
+            double sum = 0;
+            for (double amount : totals[currency]) sum += amount;
+            if (sum != 0) result.put(log.currencyName(currency), sum);
+        }
+        return result;
+    }
+
+    /**
+     * Total spent per currency and category between two dates (both inclusive).
+     * Expenses without a category are left out.
+     */
+    public Map<String, Map<Expense.ExpenseCategory, Double>> getExpenseTotalsByCategory(LocalDate from, LocalDate to) {
+        ExpenseLog log = getExpenseLog();
+        double[][] totals = log.totalsBetween(from, to);
+        Map<String, Map<Expense.ExpenseCategory, Double>> result = new LinkedHashMap<>();
+        for (int currency = 0; currency < totals.length; currency++) {
+            for (Expense.ExpenseCategory cat : Expense.ExpenseCategory.values()) {
+                double sum = totals[currency][cat.ordinal()];
+                if (sum != 0) result.computeIfAbsent(log.currencyName(currency), k -> new EnumMap<>(Expense.ExpenseCategory.class)).put(cat, sum);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return The first and last expense date, or null if there are no dated expenses.
+     */
+    public LocalDate[] getExpenseDateRange() {
+        return getExpenseLog().dateRange();
     }
     
     // --- DREAM SPEC (WISHLIST) MANAGEMENT ---
     
     public void addDreamItem(DreamItem item) { 
         if(dreamSpecLog == null) dreamSpecLog = new ArrayList<>();
+        if (item.getId() == 0) item.setId(dreamSpecLog.size() + 1);
+        IdGenerator.observe(item.getId());
         dreamSpecLog.add(item); 
+        if (dreamsById != null) dreamsById.putIfAbsent(item.getId(), item);
+        dreamTotals.merge(item.getCurrency(), item.getEstimatedCost(), Double::sum);
+        if (dreamConverted != null) convert(dreamConverted, item);
+    }
+
+    /**
+     * @return The Dream Spec item with this id, or null.
+     */
+    public DreamItem findDreamItem(long id) {
+        if (dreamsById == null) {
+            dreamsById = new HashMap<>();
+            for (DreamItem d : getDreamList()) dreamsById.putIfAbsent(d.getId(), d);
+        }
+        return dreamsById.get(id);
+    }
+
+    /**
+     * @return Estimated cost of all Dream Spec items per currency (read-only).
+     */
+    public Map<String, Double> getDreamTotalsByCurrency() {
+        return Collections.unmodifiableMap(dreamTotals);
     }
     
     public ArrayList<DreamItem> getDreamList() { 
@@ -109,15 +264,150 @@ public class Vehicle implements Serializable {
         return dreamSpecLog; 
     }
 
+    // --- CURRENCY CONVERSION (see CurrencyRates) ---
+
+    /**
+     * @return Total cost of ownership: every expense converted into the currency at the rate of
+     *         its own date (NaN if there are no rates for the currency).
+     */
+    public double getExpenseTotal(String currency) {
+        return getExpenseLog().converted(CurrencyRates.current()).total(currency);
+    }
+
+    /**
+     * @return Spend per category, converted into the currency (categories without spend are left out).
+     */
+    public Map<Expense.ExpenseCategory, Double> getExpenseTotalsByCategory(String currency) {
+        ConvertedTotals totals = getExpenseLog().converted(CurrencyRates.current());
+        Map<Expense.ExpenseCategory, Double> result = new EnumMap<>(Expense.ExpenseCategory.class);
+        for (Expense.ExpenseCategory cat : Expense.ExpenseCategory.values()) {
+            double total = totals.total(currency, cat.ordinal());
+            if (total != 0) result.put(cat, total);
+        }
+        return result;
+    }
+
+    /**
+     * @return Estimated cost of all Dream Spec items converted into the currency, each at the rate
+     *         of its planned date (the latest rate if it has none).
+     */
+    public double getDreamTotal(String currency) {
+        CurrencyRates rates = CurrencyRates.current();
+        if (dreamConverted == null || dreamConverted.rates != rates) {
+            dreamConverted = new ConvertedTotals(rates, 1);
+            for (DreamItem d : getDreamList()) convert(dreamConverted, d);
+        }
+        return dreamConverted.total(currency);
+    }
+
+    /**
+     * @return Expenses and Dream Spec items left out of the converted totals (no rates for their currency).
+     */
+    public int getUnconvertedCount() {
+        CurrencyRates rates = CurrencyRates.current();
+        getDreamTotal(rates.currencies()[0]); // Makes sure both are built
+        return getExpenseLog().converted(rates).unconverted() + dreamConverted.unconverted();
+    }
+
+    private static void convert(ConvertedTotals totals, DreamItem d) {
+        int day = d.getPlannedDate() == null ? Integer.MAX_VALUE : (int) d.getPlannedDate().toEpochDay();
+        totals.add(d.getCurrency(), day, 0, d.getEstimatedCost());
+    }
+
     // --- TRACK DAY MANAGEMENT ---
     
     public void addTrackSession(TrackSession session) {
         if(trackLog == null) trackLog = new ArrayList<>();
+        if (session.getId() == 0) session.setId(trackLog.size() + 1);
+        IdGenerator.observe(session.getId());
         trackLog.add(session);
+        if (sessionsById != null) sessionsById.putIfAbsent(session.getId(), session);
+        trackRecords.add(session);
+    }
+
+    /**
+     * @return The track session with this id, or null.
+     */
+    public TrackSession findTrackSession(long id) {
+        if (sessionsById == null) {
+            sessionsById = new HashMap<>();
+            for (TrackSession s : getTrackLog()) sessionsById.putIfAbsent(s.getId(), s);
+        }
+        return sessionsById.get(id);
     }
     
     public ArrayList<TrackSession> getTrackLog() {
         if(trackLog == null) trackLog = new ArrayList<>();
         return trackLog;
     }
+
+    /**
+     * @return Personal bests and leaderboards grouped by track, conditions and tires.
+     */
+    TrackRecords getTrackRecords() {
+        return trackRecords;
+    }
+
+    // --- MILEAGE ANALYTICS ---
+
+    /**
+     * @return Km driven since the first recorded odometer reading.
+     */
+    public double getKilometersDriven() {
+        return mileageStats.totalKilometers();
+    }
+
+    /**
+     * @return Average km per month between the first and last odometer reading.
+     */
+    public double getKilometersPerMonth() {
+        return mileageStats.kilometersPerMonth();
+    }
+
+    /**
+     * @return Fuel and maintenance cost per km for each currency, over the odometer history.
+     */
+    public Map<String, Double> getRunningCostPerKm() {
+        return mileageStats.costPerKm(getExpenseLog(), MileageStats.RUNNING_COSTS);
+    }
+
+    /**
+     * @return Fuel cost per 100 km for each currency, over the odometer history.
+     */
+    public Map<String, Double> getFuelCostPer100Km() {
+        Map<String, Double> perKm = mileageStats.costPerKm(getExpenseLog(), Expense.ExpenseCategory.FUEL);
+        perKm.replaceAll((currency, cost) -> cost * 100);
+        return perKm;
+    }
+
+    /**
+     * @return Km and costs of the last {@code months} months, oldest first.
+     */
+    List<MileageStats.Month> getMileageTrend(int months) {
+        return mileageStats.trend(getExpenseLog(), months);
+    }
+
+    // --- CONSISTENCY ---
+
+    /**
+     * Rebuilds the running totals, track records and mileage stats from the raw entries (called after loading).
+     * @return True if the running totals already matched.
+     */
+    boolean rebuildIndexes() {
+        boolean expensesOk = getExpenseLog().rebuildTotals();
+
+        Map<String, Double> rebuilt = new LinkedHashMap<>();
+        for (DreamItem d : getDreamList()) rebuilt.merge(d.getCurrency(), d.getEstimatedCost(), Double::sum);
+        boolean dreamsOk = rebuilt.equals(dreamTotals);
+        dreamTotals = rebuilt;
+        dreamConverted = null;
+
+        trackRecords = new TrackRecords();
+        for (TrackSession t : getTrackLog()) trackRecords.add(t);
+
+        setOdometerLog(odometerLog);
+
+        if (!expensesOk || !dreamsOk) System.out.println("⚠️ Totals of " + getDisplayName() + " were out of date and have been rebuilt.");
+        return expensesOk && dreamsOk;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,61 @@
+package MyGarage;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Type-to-filter index for the sidebar vehicle list: brand, model, generation and year.
+ * Every word of those fields maps to the vehicles containing it. Words are kept sorted, so the
+ * words starting with what was typed are one range and a keystroke never tests every vehicle.
+ * Vehicles are added and removed one at a time as the garage changes.
+ */
+class VehicleFilter {
+
+    private final TreeMap<String, Set<Vehicle>> words = new TreeMap<>();
+
+    void add(Vehicle v) {
+        for (String word : wordsOf(v)) words.computeIfAbsent(word, k -> newSet()).add(v);
+    }
+
+    void remove(Vehicle v) {
+        for (String word : wordsOf(v)) {
+            Set<Vehicle> vehicles = words.get(word);
+            if (vehicles == null) continue;
+            vehicles.remove(v);
+            if (vehicles.isEmpty()) words.remove(word);
+        }
+    }
+
+    /**
+     * Every query word must be the start of a word of the vehicle ("bmw f3" finds an F30 and an F31).
+     * @return The matching vehicles, or null if the query has no words (everything matches).
+     */
+    Set<Vehicle> matching(String query) {
+        String[] terms = SearchIndex.tokenize(query);
+        if (terms.length == 0) return null;
+        Set<Vehicle> result = null;
+        for (String term : terms) {
+            Set<Vehicle> found = newSet();
+            for (Set<Vehicle> vehicles : prefixRange(term).values()) found.addAll(vehicles);
+            if (result == null) result = found;
+            else result.retainAll(found);
+            if (result.isEmpty()) break;
+        }
+        return result;
+    }
+
+    private SortedMap<String, Set<Vehicle>> prefixRange(String prefix) {
+        return words.subMap(prefix, prefix + Character.MAX_VALUE);
+    }
+
+    private static String[] wordsOf(Vehicle v) {
+        return SearchIndex.tokenize(v.getBrand() + " " + v.getModel() + " " + v.getGeneration() + " " + v.getYear());
+    }
+
+    private static Set<Vehicle> newSet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+}
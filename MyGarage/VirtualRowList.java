@@ -0,0 +1,327 @@
+package MyGarage;
+
+import javafx.application.Platform;
+import javafx.beans.value.ObservableValue;
+import javafx.collections.ObservableListBase;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.util.Callback;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.IntSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Read-only list for TableViews over a log kept elsewhere (the expense columns, the track log),
+ * so a table with a million rows does not copy them into an observableArrayList first.
+ * {@code get(i)} creates row i on demand, and a TableView only asks for the rows it shows.
+ *
+ * The logs behind the rows are appended to on the JavaFX thread and are only safe to read there.
+ * Given a snapshot (see {@link #VirtualRowList(IntSupplier, IntFunction, Supplier)}), the filter
+ * and the sort keys are read from it on a background thread. Without one they are read on the
+ * JavaFX thread, in slices of {@value #SLICE_ROWS} rows per pulse so the table stays responsive,
+ * and only the sorting runs in the background. Either way each key is read once per row (through
+ * the columns' cell value factories), not once per comparison, and the list switches to the
+ * result once done.
+ *
+ * Rows may only be appended to the underlying log (on the JavaFX thread); call
+ * {@link #rowsAppended()} afterwards.
+ */
+class VirtualRowList<T> extends ObservableListBase<T> {
+
+    // One worker for every table: sorting one table at a time is plenty
+    private static final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "mygarage-table");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Rows read per JavaFX pulse while collecting filter matches and sort keys
+    static final int SLICE_ROWS = 16_384;
+
+    private final IntSupplier rowCount;
+    private final IntFunction<T> rowAt;
+    private final Supplier<IntFunction<T>> snapshot; // null = read rows on the JavaFX thread only
+
+    private int[] order;  // Row numbers in display order (null = all rows, in log order)
+    private int size;
+    private List<TableColumn<T, ?>> sortOrder = new ArrayList<>();
+    private Predicate<T> filter;
+    private volatile long generation; // Results of older background runs are thrown away
+
+    /**
+     * @param rowCount Current number of rows in the log.
+     * @param rowAt    Creates the object for a row number.
+     */
+    VirtualRowList(IntSupplier rowCount, IntFunction<T> rowAt) {
+        this(rowCount, rowAt, null);
+    }
+
+    /**
+     * Filters and sorts on the background thread. The filter and the cell value factories of the
+     * sort columns must then only read the row object itself, nothing else that changes.
+     * @param snapshot Called on the JavaFX thread; returns row objects as of that moment, safe to
+     *                 create on any thread for row numbers below the row count at the time.
+     */
+    VirtualRowList(IntSupplier rowCount, IntFunction<T> rowAt, Supplier<IntFunction<T>> snapshot) {
+        this.rowCount = rowCount;
+        this.rowAt = rowAt;
+        this.snapshot = snapshot;
+        this.size = rowCount.getAsInt();
+    }
+
+    @Override
+    public T get(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        return rowAt.apply(order == null ? index : order[index]);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Shows this list in the table and moves its sorting to the background thread.
+     */
+    void bind(TableView<T> table) {
+        table.setItems(this);
+        table.setSortPolicy(t -> {
+            sort(new ArrayList<>(t.getSortOrder()));
+            return true;
+        });
+    }
+
+    /**
+     * Shows rows added to the log since the last call.
+     */
+    void rowsAppended() {
+        if (order == null) {
+            int oldSize = size;
+            size = rowCount.getAsInt();
+            if (size == oldSize) return;
+            beginChange();
+            nextAdd(oldSize, size);
+            endChange();
+        } else {
+            refresh(); // New rows must be sorted / filtered in
+        }
+    }
+
+    /**
+     * Sorts by the given columns (first one first) using their cell values, comparators and sort types.
+     */
+    void sort(List<TableColumn<T, ?>> columns) {
+        this.sortOrder = columns;
+        refresh();
+    }
+
+    /**
+     * Only shows rows matching the filter (null shows every row).
+     * The filter runs on the background thread if this list has a snapshot, else on the JavaFX thread.
+     */
+    void setFilter(Predicate<T> filter) {
+        this.filter = filter;
+        refresh();
+    }
+
+    // --- BACKGROUND WORK ---
+
+    private void refresh() {
+        long run = ++generation;
+        int rows = rowCount.getAsInt(); // Rows added later are picked up by the next rowsAppended()
+        List<TableColumn<T, ?>> columns = new ArrayList<>(sortOrder);
+        Predicate<T> rowFilter = filter;
+        if (columns.isEmpty() && rowFilter == null) {
+            show(run, null, rows);
+            return;
+        }
+        if (snapshot != null) {
+            // Everything the worker reads is captured here; the executor hands it over safely
+            Collect collect = new Collect(run, rows, columns, rowFilter, snapshot.get());
+            worker.execute(collect::runInBackground);
+        } else {
+            new Collect(run, rows, columns, rowFilter, rowAt).step();
+        }
+    }
+
+    /**
+     * Reads the filter matches and sort keys of the first {@code rows} rows, then sorts them:
+     * either all of it on the worker ({@link #runInBackground()}), or the reading on the JavaFX
+     * thread a slice per pulse ({@link #step()}) and only the sorting on the worker.
+     */
+    private class Collect {
+        private final long run;
+        private final int rows;
+        private final IntFunction<T> source;
+        private final Predicate<T> rowFilter;
+        private final List<Function<T, Object>> cells = new ArrayList<>();
+        private final List<Comparator<Object>> comparators = new ArrayList<>();
+        private final int[] selected;
+        private final Object[][] keys;
+        private int next, count;
+
+        /** Call on the JavaFX thread (reads the columns). */
+        Collect(long run, int rows, List<TableColumn<T, ?>> columns, Predicate<T> rowFilter, IntFunction<T> source) {
+            this.run = run;
+            this.rows = rows;
+            this.source = source;
+            this.rowFilter = rowFilter;
+            for (TableColumn<T, ?> column : columns) {
+                cells.add(cellValue(column));
+                comparators.add(comparator(column));
+            }
+            this.selected = new int[rows];
+            this.keys = new Object[columns.size()][columns.isEmpty() ? 0 : rows];
+        }
+
+        void step() {
+            if (run != generation) return; // Already outdated
+            collect(Math.min(rows, next + SLICE_ROWS));
+            if (next < rows) {
+                Platform.runLater(this::step);
+            } else if (cells.isEmpty()) {
+                show(run, matches(), count);
+            } else {
+                // The arrays are complete and no longer touched here; the executor hands them over safely
+                worker.execute(() -> {
+                    if (run != generation) return;
+                    int[] result = sort(selected, count, keys, comparators);
+                    Platform.runLater(() -> show(run, result, result.length));
+                });
+            }
+        }
+
+        void runInBackground() {
+            while (next < rows) {
+                if (run != generation) return; // Already outdated
+                collect(Math.min(rows, next + SLICE_ROWS));
+            }
+            int[] result = cells.isEmpty() ? matches() : sort(selected, count, keys, comparators);
+            Platform.runLater(() -> show(run, result, result.length));
+        }
+
+        private void collect(int end) {
+            for (int row = next; row < end; row++) {
+                T item = source.apply(row);
+                if (rowFilter != null && !rowFilter.test(item)) continue;
+                for (int c = 0; c < cells.size(); c++) keys[c][count] = cells.get(c).apply(item);
+                selected[count++] = row;
+            }
+            next = end;
+        }
+
+        private int[] matches() {
+            return count == rows ? selected : Arrays.copyOf(selected, count);
+        }
+    }
+
+    /**
+     * Reads a column's cell value for a row through its cell value factory
+     * (what {@link TableColumn#getCellData(Object)} does, minus the TableView lookups).
+     */
+    private static <T, S> Function<T, Object> cellValue(TableColumn<T, S> column) {
+        Callback<TableColumn.CellDataFeatures<T, S>, ObservableValue<S>> factory = column.getCellValueFactory();
+        return item -> {
+            if (factory == null) return null;
+            ObservableValue<S> value = factory.call(new TableColumn.CellDataFeatures<>(null, column, item));
+            return value == null ? null : value.getValue();
+        };
+    }
+
+    /**
+     * Sorts the selected rows by their keys (stable).
+     * @param keys Key of column c for the i-th selected row at [c][i].
+     */
+    private static int[] sort(int[] selected, int count, Object[][] keys, List<Comparator<Object>> comparators) {
+        int[] positions = new int[count];
+        for (int i = 0; i < count; i++) positions[i] = i;
+        mergeSort(positions, new int[count], 0, count, (a, b) -> {
+            for (int c = 0; c < keys.length; c++) {
+                int result = comparators.get(c).compare(keys[c][a], keys[c][b]);
+                if (result != 0) return result;
+            }
+            return 0;
+        });
+
+        int[] sorted = new int[count];
+        for (int i = 0; i < count; i++) sorted[i] = selected[positions[i]];
+        return sorted;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Comparator<Object> comparator(TableColumn<T, ?> column) {
+        Comparator<Object> comparator = (Comparator<Object>) column.getComparator();
+        return column.getSortType() == TableColumn.SortType.DESCENDING ? comparator.reversed() : comparator;
+    }
+
+    private void show(long run, int[] newOrder, int newSize) {
+        if (run != generation) return;
+        List<T> removed = new Rows(order, size); // Only read if a listener asks for the removed items
+        order = newOrder;
+        size = newSize;
+        beginChange();
+        nextRemove(0, removed);
+        nextAdd(0, size);
+        endChange();
+    }
+
+    /**
+     * The rows as they were before a change (for the change event).
+     */
+    private class Rows extends AbstractList<T> {
+        private final int[] rows;
+        private final int count;
+
+        Rows(int[] rows, int count) {
+            this.rows = rows;
+            this.count = count;
+        }
+
+        @Override
+        public T get(int index) { return rowAt.apply(rows == null ? index : rows[index]); }
+
+        @Override
+        public int size() { return count; }
+    }
+
+    private interface PositionComparator {
+        int compare(int a, int b);
+    }
+
+    /**
+     * Stable merge sort of int positions (no boxing).
+     */
+    private static void mergeSort(int[] a, int[] temp, int from, int to, PositionComparator cmp) {
+        if (to - from < 16) {
+            for (int i = from + 1; i < to; i++) {
+                int value = a[i];
+                int j = i - 1;
+                while (j >= from && cmp.compare(a[j], value) > 0) {
+                    a[j + 1] = a[j];
+                    j--;
+                }
+                a[j + 1] = value;
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(a, temp, from, mid, cmp);
+        mergeSort(a, temp, mid, to, cmp);
+        if (cmp.compare(a[mid - 1], a[mid]) <= 0) return; // Already in order
+        System.arraycopy(a, from, temp, from, to - from);
+        int i = from, j = mid, k = from;
+        while (i < mid && j < to) a[k++] = cmp.compare(temp[j], temp[i]) < 0 ? temp[j++] : temp[i++];
+        while (i < mid) a[k++] = temp[i++];
+        while (j < to) a[k++] = temp[j++];
+    }
+}
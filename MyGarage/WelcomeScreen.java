@@ -8,7 +8,7 @@ import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
 import javafx.stage.Stage;
-import java.util.ArrayList;
+import java.io.IOException;
 
 /**
  * The Welcome/Login Screen of the application.
@@ -85,29 +85,29 @@ public class WelcomeScreen {
      * It functions as an MVP login system: 
      * 1. If user exists -> Log in.
      * 2. If user is new -> Create account automatically and Log in.
+     * 3. If the user's data cannot be read -> Show the error and stay here (never register again over it).
      */
     private void handleLogin(Stage stage, String username) {
         if (username.isEmpty()) return;
 
-        ArrayList<User> allUsers = DataBaseManager.loadUsers();
-        User activeUser = null;
+        User activeUser;
+        try {
+            // Only the matching user's garage is opened, not the whole database
+            activeUser = DataBaseManager.loadUser(username);
 
-        // Search database for the username
-        for (User u : allUsers) {
-            if (u.getUsername().equalsIgnoreCase(username)) {
-                activeUser = u;
-                break;
+            // Logic: If user not found, create a new one (Auto-Register)
+            if (activeUser == null) {
+                activeUser = new User(username, "", "");
+                DataBaseManager.registerUser(activeUser);
+                System.out.println("🆕 New user created: " + username);
+            } else {
+                System.out.println("👋 Welcome back: " + username);
             }
-        }
-
-        // Logic: If user not found, create a new one (Auto-Register)
-        if (activeUser == null) {
-            activeUser = new User(username, "", ""); 
-            allUsers.add(activeUser);
-            DataBaseManager.saveUsers(allUsers);
-            System.out.println("🆕 New user created: " + username);
-        } else {
-            System.out.println("👋 Welcome back: " + username);
+        } catch (IOException e) {
+            System.out.println("❌ Load Error: " + e.getMessage());
+            new Alert(Alert.AlertType.ERROR, "The garage of " + username + " could not be opened:\n" + e.getMessage()
+                    + "\n\nNothing was changed on disk.", ButtonType.OK).showAndWait();
+            return;
         }
 
         // Save session locally so the user stays logged in next time
@@ -0,0 +1,45 @@
+package MyGarage.legacy;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Field-for-field copy of the original serialized {@code MyGarage.DreamItem}.
+ * Only used to read files written before the binary format; see {@link LegacyReader}.
+ */
+public class DreamItem implements Serializable {
+
+    private static final long serialVersionUID = -9175099479768868991L;
+
+    public enum DreamCategory {
+        WHEELS, TIRES, SPOILER, WRAP_PAINT, EXTERIOR_TRIM,
+        INTERIOR_TRIM, LIGHTS, SUSPENSION, PERFORMANCE, AUDIO_SYSTEM, OTHER
+    }
+
+    private DreamCategory category;
+    private String description;
+    private double estimatedCost;
+    private String currency;
+    private LocalDate plannedDate;
+    private boolean isDone;
+
+    /**
+     * Only used to write the old format, for comparison in {@code GarageBenchmark}.
+     */
+    public DreamItem(DreamCategory category, String description, double estimatedCost, String currency,
+                     LocalDate plannedDate, boolean isDone) {
+        this.category = category;
+        this.description = description;
+        this.estimatedCost = estimatedCost;
+        this.currency = currency;
+        this.plannedDate = plannedDate;
+        this.isDone = isDone;
+    }
+
+    public DreamCategory getCategory() { return category; }
+    public String getDescription() { return description; }
+    public double getEstimatedCost() { return estimatedCost; }
+    public String getCurrency() { return currency; }
+    public LocalDate getPlannedDate() { return plannedDate; }
+    public boolean isDone() { return isDone; }
+}
@@ -0,0 +1,40 @@
+package MyGarage.legacy;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Field-for-field copy of the original serialized {@code MyGarage.Expense}.
+ * Only used to read files written before the binary format; see {@link LegacyReader}.
+ */
+public class Expense implements Serializable {
+
+    private static final long serialVersionUID = 6630729975840476686L;
+
+    public enum ExpenseCategory {
+        FUEL, MAINTENANCE, MODIFICATION, INSURANCE, TAX, FINE, ACCIDENT, PARKING, WASH_DETAIL, OTHER
+    }
+
+    private ExpenseCategory category;
+    private double amount;
+    private String currency;
+    private String description;
+    private LocalDate date;
+
+    /**
+     * Only used to write the old format, for comparison in {@code GarageBenchmark}.
+     */
+    public Expense(ExpenseCategory category, double amount, String currency, String description, LocalDate date) {
+        this.category = category;
+        this.amount = amount;
+        this.currency = currency;
+        this.description = description;
+        this.date = date;
+    }
+
+    public ExpenseCategory getCategory() { return category; }
+    public double getAmount() { return amount; }
+    public String getCurrency() { return currency; }
+    public String getDescription() { return description; }
+    public LocalDate getDate() { return date; }
+}
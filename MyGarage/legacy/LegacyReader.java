@@ -0,0 +1,64 @@
+package MyGarage.legacy;
+
+import java.io.*;
+import java.util.ArrayList;
+
+/**
+ * Reads files written with Java serialization by older versions of MyGarage.
+ * The stream names the original classes ({@code MyGarage.User}, ...); they are resolved to the
+ * copies in this package instead, which keep the old field layout and serialVersionUID.
+ * This lets the real domain classes change freely while old files still open.
+ */
+public class LegacyReader extends ObjectInputStream {
+
+    private static final String OLD_PACKAGE = "MyGarage.";
+    private static final String LEGACY_PACKAGE = "MyGarage.legacy.";
+
+    private static final int STREAM_MAGIC_BYTES = 0xACED; // First two bytes of every serialized file
+
+    public LegacyReader(InputStream in) throws IOException {
+        super(in);
+    }
+
+    /**
+     * @return True if the data starts like a Java serialization stream.
+     */
+    public static boolean isLegacy(byte[] firstBytes) {
+        return firstBytes.length >= 2 && (((firstBytes[0] & 0xFF) << 8) | (firstBytes[1] & 0xFF)) == STREAM_MAGIC_BYTES;
+    }
+
+    /**
+     * Reads the user list of the original single-file database.
+     */
+    @SuppressWarnings("unchecked") // Suppresses the warning for casting Object to ArrayList
+    public ArrayList<User> readUsers() throws IOException, ClassNotFoundException {
+        return (ArrayList<User>) readObject();
+    }
+
+    /**
+     * Reads a single user (per-user shards written before the binary format).
+     */
+    public User readUser() throws IOException, ClassNotFoundException {
+        return (User) readObject();
+    }
+
+    /**
+     * Reads the journal position written after the data, or 0 if the file has none.
+     */
+    public long readJournalPosition() throws IOException {
+        try {
+            return readLong();
+        } catch (EOFException none) {
+            return 0; // Files written before the journal existed
+        }
+    }
+
+    @Override
+    protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+        String name = desc.getName();
+        if (name.startsWith(OLD_PACKAGE) && !name.startsWith(LEGACY_PACKAGE)) {
+            return Class.forName(LEGACY_PACKAGE + name.substring(OLD_PACKAGE.length()), false, getClass().getClassLoader());
+        }
+        return super.resolveClass(desc);
+    }
+}
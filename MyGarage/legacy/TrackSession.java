@@ -0,0 +1,36 @@
+package MyGarage.legacy;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Field-for-field copy of the original serialized {@code MyGarage.TrackSession}.
+ * Only used to read files written before the binary format; see {@link LegacyReader}.
+ */
+public class TrackSession implements Serializable {
+
+    private static final long serialVersionUID = 9106830398672068393L;
+
+    private String trackName;
+    private String lapTime;
+    private LocalDate date;
+    private String conditions;
+    private String tires;
+
+    /**
+     * Only used to write the old format, for comparison in {@code GarageBenchmark}.
+     */
+    public TrackSession(String trackName, String lapTime, LocalDate date, String conditions, String tires) {
+        this.trackName = trackName;
+        this.lapTime = lapTime;
+        this.date = date;
+        this.conditions = conditions;
+        this.tires = tires;
+    }
+
+    public String getTrackName() { return trackName; }
+    public String getLapTime() { return lapTime; }
+    public LocalDate getDate() { return date; }
+    public String getConditions() { return conditions; }
+    public String getTires() { return tires; }
+}
@@ -0,0 +1,33 @@
+package MyGarage.legacy;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+
+/**
+ * Field-for-field copy of the original serialized {@code MyGarage.User}.
+ * Only used to read files written before the binary format; see {@link LegacyReader}.
+ */
+public class User implements Serializable {
+
+    private static final long serialVersionUID = -7292600246777785248L;
+
+    private String username;
+    private String password;
+    private String email;
+    private ArrayList<Vehicle> myGarage;
+
+    /**
+     * Only used to write the old format, for comparison in {@code GarageBenchmark}.
+     */
+    public User(String username, String password, String email, ArrayList<Vehicle> myGarage) {
+        this.username = username;
+        this.password = password;
+        this.email = email;
+        this.myGarage = myGarage;
+    }
+
+    public String getUsername() { return username; }
+    public String getPassword() { return password; }
+    public String getEmail() { return email; }
+    public ArrayList<Vehicle> getGarage() { return myGarage; }
+}
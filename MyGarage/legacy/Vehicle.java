@@ -0,0 +1,61 @@
+package MyGarage.legacy;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+
+/**
+ * Field-for-field copy of the original serialized {@code MyGarage.Vehicle}.
+ * Only used to read files written before the binary format; see {@link LegacyReader}.
+ */
+public class Vehicle implements Serializable {
+
+    private static final long serialVersionUID = 1325178096156828795L;
+
+    private String id;
+    private String brand;
+    private String model;
+    private String generation;
+    private String year;
+    private String color;
+    private int kilometer;
+    private int power;
+    private int torque;
+    private ArrayList<Expense> expenseLog;
+    private ArrayList<DreamItem> dreamSpecLog;
+    private ArrayList<TrackSession> trackLog;
+
+    /**
+     * Only used to write the old format, for comparison in {@code GarageBenchmark}.
+     */
+    public Vehicle(String id, String brand, String model, String generation, String year, String color,
+                   int kilometer, int power, int torque,
+                   ArrayList<Expense> expenseLog, ArrayList<DreamItem> dreamSpecLog, ArrayList<TrackSession> trackLog) {
+        this.id = id;
+        this.brand = brand;
+        this.model = model;
+        this.generation = generation;
+        this.year = year;
+        this.color = color;
+        this.kilometer = kilometer;
+        this.power = power;
+        this.torque = torque;
+        this.expenseLog = expenseLog;
+        this.dreamSpecLog = dreamSpecLog;
+        this.trackLog = trackLog;
+    }
+
+    public String getId() { return id; }
+    public String getBrand() { return brand; }
+    public String getModel() { return model; }
+    public String getGeneration() { return generation; }
+    public String getYear() { return year; }
+    public String getColor() { return color; }
+    public int getKilometer() { return kilometer; }
+    public int getPower() { return power; }
+    public int getTorque() { return torque; }
+
+    // Lists can be null in very old files (the original getters had the same safety checks)
+    public ArrayList<Expense> getExpenses() { return expenseLog == null ? new ArrayList<>() : expenseLog; }
+    public ArrayList<DreamItem> getDreamList() { return dreamSpecLog == null ? new ArrayList<>() : dreamSpecLog; }
+    public ArrayList<TrackSession> getTrackLog() { return trackLog == null ? new ArrayList<>() : trackLog; }
+}